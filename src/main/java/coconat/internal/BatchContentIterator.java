@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * A batch content iterator will fetch the objects for a sequence of IDs in batches while the consumer proceeds.
+ */
+public class BatchContentIterator implements Iterator<Content> {
+
+    private final CoconatContentRepository repository;
+
+    private final Iterator<String> ids;
+
+    private final int batchSize;
+
+    private Iterator<Content> batch;
+
+
+    /**
+     * Create a content iterator from a repository and a sequence of IDs in that repository.
+     *
+     * @param repository repository to be used for the batch loads
+     * @param ids sequence of content IDs
+     * @param batchSize maximum number of contents loaded at once
+     */
+    public BatchContentIterator(CoconatContentRepository repository, Iterator<String> ids, int batchSize) {
+        this.repository = repository;
+        this.ids = ids;
+        this.batchSize = batchSize;
+    } // BatchContentIterator()
+
+
+    @Override
+    public boolean hasNext() {
+        while (((batch==null)||!batch.hasNext())&&ids.hasNext()) {
+            List<String> idBatch = new ArrayList<>(batchSize);
+            while ((idBatch.size()<batchSize)&&ids.hasNext()) {
+                idBatch.add(ids.next());
+            } // while
+            batch = repository.getContents(idBatch).values().iterator();
+        } // while
+        return (batch!=null)&&batch.hasNext();
+    } // hasNext()
+
+
+    @Override
+    public Content next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        } // if
+        return batch.next();
+    } // next()
+
+} // BatchContentIterator
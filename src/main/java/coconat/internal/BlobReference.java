@@ -0,0 +1,78 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Blob;
+
+
+/**
+ * Blob without its data which loads the bytes from the repository on access.
+ */
+final class BlobReference implements Blob {
+
+    private final CoconatContentRepository repository;
+
+    private final String contentId;
+
+    private final String propertyName;
+
+    private final String mimeType;
+
+    private final long len;
+
+
+    BlobReference(CoconatContentRepository repository, String contentId, String propertyName, String mimeType, long len) {
+        this.repository = repository;
+        this.contentId = contentId;
+        this.propertyName = propertyName;
+        this.mimeType = mimeType.isEmpty() ? null : mimeType;
+        this.len = len;
+    } // BlobReference()
+
+
+    @Override
+    public String getContentId() {
+        return contentId;
+    }
+
+
+    @Override
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+
+    @Override
+    public String getMimeType() {
+        return mimeType;
+    }
+
+
+    @Override
+    public long getLen() {
+        return len;
+    }
+
+
+    @Override
+    public byte[] getBytes() {
+        return repository.getBlobData(contentId, propertyName);
+    }
+
+} // BlobReference
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2011-2019 Martin Goellnitz
+ * Copyright 2011-2026 Martin Goellnitz
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Lesser General Public License as published by
@@ -22,18 +22,38 @@ import coconat.Content;
 import coconat.Repository;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,12 +72,19 @@ public class CoconatContentRepository implements Repository {
 
     private static final String VIRTUAL_PROPERTY_FOLDER_ID = "folderid_";
 
+    private static final String LINKS_SUFFIX = "_links_";
+
     private static final String VIRTUAL_PROPERTY_NAME = "name_";
 
     private static final String VIRTUAL_PROPERTY_TYPE = "documenttype_";
 
     private static final String SELECT_FROM_RESOURCES_CLAUSE = "SELECT * FROM Resources WHERE ";
 
+    /**
+     * maximum number of bind variables in one IN list
+     */
+    private static final int MAX_IN_LIST = 500;
+
     /**
      * describe which type are derived from which others - via documenttype definitions
      */
@@ -65,8 +92,87 @@ public class CoconatContentRepository implements Repository {
 
     private Connection dbConnection;
 
+    private final String dbUrl;
+
+    private final String dbUser;
+
+    private final String dbPassword;
+
+    /**
+     * optional routing over several equivalent databases - single database if null
+     */
+    private final ReplicaRouter replicaRouter;
+
+    /**
+     * optional cache of content objects by ID - no caching if null
+     */
+    private Map<String, Content> contentCache;
+
     private Map<String, Object> additionalProperties = new HashMap<>();
 
+    private DocTypeSchema schema;
+
+    private ContentFactory contentFactory;
+
+    /**
+     * parent folder of each folder - loaded at once on first use
+     */
+    private Map<String, String> folderParents;
+
+    private String identifierQuote;
+
+    /**
+     * column layout of the type tables - read once per type
+     */
+    private final Map<String, TypeMetadata> typeMetadata = new ConcurrentHashMap<>();
+
+    private int fetchSize = 100;
+
+    private int batchSize = 50;
+
+    /**
+     * optional cache of IDs and folder entries known to be missing - no negative caching if null
+     */
+    private NegativeCache negativeCache;
+
+    /**
+     * optional cache for ID listings - no caching of listings if null
+     */
+    private QueryResultCache queryCache;
+
+    /**
+     * declared secondary indexes by document type and property name
+     */
+    private final Map<String, PropertyIndex> propertyIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * optional full text index kept up to date with all loaded objects - no indexing if null
+     */
+    private FullTextIndex fullTextIndex;
+
+    /**
+     * optional limit for concurrent database calls - no limit if null
+     */
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    private int queryTimeout;
+
+    /**
+     * optional statistics of the executed statements - not collected if null
+     */
+    private QueryProfiler queryProfiler;
+
+    /**
+     * System.nanoTime() value by which the calls of the current thread must be done
+     */
+    private final ThreadLocal<Long> deadlines = new ThreadLocal<>();
+
+    private final SingleFlight<String, Content> contentLoads = new SingleFlight<>();
+
+    private final SingleFlight<String, String> pathLoads = new SingleFlight<>();
+
+    private final SingleFlight<Object, List<String>> listLoads = new SingleFlight<>();
+
 
     /**
      * Create a content repository instance from a DB connection descripbed by connection parameters.
@@ -77,19 +183,166 @@ public class CoconatContentRepository implements Repository {
      * @param dbPassword password to be used for the connection
      */
     public CoconatContentRepository(String dbUrl, String dbDriver, String dbUser, String dbPassword) {
+        this(dbUrl, null, dbDriver, dbUser, dbPassword);
+    } // CoconatContentRepository()
+
+
+    /**
+     * Create a content repository instance reading from several equivalent databases - e.g. the replicas of a live
+     * server. Queries are routed to the fastest healthy database and fail over to the others.
+     *
+     * @param dbUrls JDBC URLs of the databases to be used for this repository instance
+     * @param dbDriver class name of the JDBC driver to be used for the connections
+     * @param dbUser user name to be used for the connections
+     * @param dbPassword password to be used for the connections
+     */
+    public CoconatContentRepository(List<String> dbUrls, String dbDriver, String dbUser, String dbPassword) {
+        this(dbUrls.get(0), new ReplicaRouter(dbUrls, dbUser, dbPassword), dbDriver, dbUser, dbPassword);
+    } // CoconatContentRepository()
+
+
+    private CoconatContentRepository(String dbUrl, ReplicaRouter replicaRouter, String dbDriver, String dbUser, String dbPassword) {
+        this.dbUrl = dbUrl;
+        this.replicaRouter = replicaRouter;
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
         try {
             Class.forName(dbDriver).newInstance();
         } catch (RuntimeException|ClassNotFoundException|InstantiationException|IllegalAccessException ex) {
             LOG.error("() error loading driver {} {}", dbDriver, ex);
         } // try/catch
         try {
-            dbConnection = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+            dbConnection = openConnection();
         } catch (RuntimeException|SQLException ex) {
             LOG.error("() error getting connection to {} as {} {}", dbUrl, dbUser, ex);
         } // try/catch
     } // CoconatContentRepository()
 
 
+    /**
+     * Open a new connection to the database of this repository.
+     * Used for the main connection as well as for additional connections of parallel bulk operations.
+     *
+     * @return new database connection
+     * @throws SQLException in case the connection cannot be established
+     */
+    protected Connection openConnection() throws SQLException {
+        if (replicaRouter!=null) {
+            return replicaRouter.getConnection();
+        } // if
+        return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+    } // openConnection()
+
+
+    /**
+     * Get the routing over several databases to tune it or read its statistics.
+     *
+     * @return router of the repository or null if it was created for a single database
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+
+    /**
+     * Get the limiter for concurrent database calls.
+     *
+     * @return limiter or null if the number of concurrent calls is not limited
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+
+    /**
+     * Set the limiter for concurrent database calls.
+     * Calls exceeding the limit fail like other database errors, so the affected lookups return no result.
+     *
+     * @param concurrencyLimiter limiter or null to not limit the number of concurrent calls
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+
+    /**
+     * Get the statistics of the executed statements.
+     *
+     * @return profiler or null if no statistics are collected
+     */
+    public QueryProfiler getQueryProfiler() {
+        return queryProfiler;
+    }
+
+
+    /**
+     * Set the collector for statistics of the executed statements grouped by query shape.
+     *
+     * @param queryProfiler profiler or null to not collect statistics
+     */
+    public void setQueryProfiler(QueryProfiler queryProfiler) {
+        this.queryProfiler = queryProfiler;
+    }
+
+
+    public int getQueryTimeout() {
+        return queryTimeout;
+    }
+
+
+    /**
+     * Set the time after which any query toward the database is cancelled.
+     *
+     * @param queryTimeout timeout in seconds - 0 for no timeout
+     */
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+
+    private long getDeadline() {
+        Long deadline = deadlines.get();
+        return deadline==null ? 0 : deadline;
+    } // getDeadline()
+
+
+    /**
+     * Tell if the deadline of the current thread has not passed yet.
+     * Results loaded after the deadline may be incomplete and are neither cached nor passed to coalesced callers.
+     */
+    private boolean isInTime() {
+        long deadline = getDeadline();
+        return (deadline==0)||(System.nanoTime()-deadline<0);
+    } // isInTime()
+
+
+    /**
+     * Run repository calls with a deadline.
+     * All queries issued by the current thread within the call get the remaining time as query timeout - rounded
+     * up to whole seconds as JDBC demands - and queries due after the deadline fail at once. Nested deadlines can
+     * only shorten the outer one.
+     *
+     * @param <T> result type of the call
+     * @param timeoutMillis time in milliseconds the call may take
+     * @param call repository calls to run
+     * @return result of the call
+     */
+    public <T> T withDeadline(long timeoutMillis, Supplier<T> call) {
+        Long outer = deadlines.get();
+        long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        deadlines.set(((outer!=null)&&(outer-deadline<0)) ? outer : deadline);
+        try {
+            return call.get();
+        } finally {
+            if (outer==null) {
+                deadlines.remove();
+            } else {
+                deadlines.set(outer);
+            } // if
+        } // try/catch
+    } // withDeadline()
+
+
     /**
      * Get document type parent relation.
      *
@@ -110,6 +363,56 @@ public class CoconatContentRepository implements Repository {
     }
 
 
+    /**
+     * Get the registry of document types used by this repository.
+     *
+     * @return document type registry or null if none was set
+     */
+    public DocTypeSchema getSchema() {
+        return schema;
+    }
+
+
+    /**
+     * Set the registry of document types.
+     * The document type parents are taken from the registry and the column layouts of all types are read at once.
+     *
+     * @param schema document type registry read from the document type model
+     */
+    public void setSchema(DocTypeSchema schema) {
+        this.schema = schema;
+        this.parents = schema.getParents();
+        for (DocTypeSchema.DocType type : schema.getTypes()) {
+            try (Statement statement = createStatement(dbConnection)) {
+                typeMetadata.put(type.getName(), TypeMetadata.read(statement, type.getName()));
+            } catch (RuntimeException|SQLException e) {
+                LOG.debug("setSchema() no table for type {}", type.getName());
+            } // try/catch
+        } // for
+        LOG.info("setSchema() {} types with {} tables", schema.getTypes().size(), typeMetadata.size());
+    } // setSchema()
+
+
+    /**
+     * Get the factory for content objects.
+     *
+     * @return factory used to create content objects or null for plain CoconatContent objects
+     */
+    public ContentFactory getContentFactory() {
+        return contentFactory;
+    }
+
+
+    /**
+     * Set the factory for content objects - e.g. the one generated by DocTypeGenerator for typed access.
+     *
+     * @param contentFactory factory used to create content objects or null for plain CoconatContent objects
+     */
+    public void setContentFactory(ContentFactory contentFactory) {
+        this.contentFactory = contentFactory;
+    }
+
+
     /**
      * Get static additional properties.
      * Each content object generated through this repository implementation will receive these named values as properties.
@@ -133,318 +436,1830 @@ public class CoconatContentRepository implements Repository {
 
 
     /**
-     * Get content object with a given ID.
+     * Get the number of rows fetched from the database at once for streamed listings.
      *
-     * @param id ID of the object to look for
-     * @return content object for the ID or null
+     * @return JDBC fetch size for cursor based listings
      */
-    @Override
-    public Content getContent(String id) {
-        Content result = null;
+    public int getFetchSize() {
+        return fetchSize;
+    }
 
-        String type = getType(id);
-        if (type!=null) {
-            Map<String, Object> properties = getProperties(type, id);
-            properties.putAll(additionalProperties);
-            result = createContent(id, type, properties);
+
+    /**
+     * Set the number of rows fetched from the database at once for streamed listings.
+     * Some drivers need special values here to really stream results instead of reading them completely.
+     *
+     * @param fetchSize JDBC fetch size for cursor based listings
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+
+    /**
+     * Get the number of contents materialised at once for streamed listings.
+     *
+     * @return number of contents loaded in one batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+
+    /**
+     * Set the number of contents materialised at once for streamed listings.
+     *
+     * @param batchSize number of contents loaded in one batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+
+    /**
+     * Get the cache for content objects.
+     *
+     * @return map mapping content IDs to content objects or null if no caching takes place
+     */
+    public Map<String, Content> getContentCache() {
+        return contentCache;
+    }
+
+
+    /**
+     * Set the cache for content objects.
+     * Any map implementation may be used - also bounded ones - but it must be thread safe if the repository is used
+     * from more than one thread.
+     *
+     * @param contentCache map mapping content IDs to content objects or null to disable caching
+     */
+    public void setContentCache(Map<String, Content> contentCache) {
+        this.contentCache = contentCache;
+    }
+
+
+    /**
+     * Remove a content object from the cache after it has been changed.
+     *
+     * @param id ID of the changed object
+     */
+    public void invalidate(String id) {
+        if (contentCache!=null) {
+            contentCache.remove(id);
         } // if
+    } // invalidate()
 
-        return result;
-    } // getContent()
+
+    /**
+     * Get the cache for IDs and folder entries known to be missing.
+     *
+     * @return negative cache or null if missing objects are not remembered
+     */
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
 
 
     /**
-     * Get content object described by its path in the repository.
+     * Set the cache for IDs and folder entries known to be missing.
+     * Entries should have a short time to live since objects created by other processes are not noticed otherwise.
      *
-     * @param path path of the object to look for
-     * @return content object described by the path or the root folder
+     * @param negativeCache negative cache or null to disable negative caching
      */
-    @Override
-    public Content getChild(String path) {
-        return getContent(getChildId(path));
-    } // getChild()
+    public void setNegativeCache(NegativeCache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
 
 
     /**
-     * List content objects matching certain criteria.
+     * Tell this repository about a newly created object so that it is no longer considered missing.
      *
-     * @param typeName exact document type name of the document to look for - no subtypes
-     * @param optionalQuery SQL based where clause part to be used
-     * @param orderProperty name of the property to sort result list
-     * @param ascending true if sorting should be ascending - false otherwise
-     * @return sorted list of matching content objects
+     * @param id ID of the new object
+     * @param parentId ID of the folder holding the new object
+     * @param name name of the new object
      */
-    public List<Content> listContentsOfExactType(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
-        List<Content> result = new ArrayList<>();
-        for (String id : listIds(typeName, optionalQuery, orderProperty, ascending)) {
-            result.add(getContent(id));
-        } // for
-        return result;
-    } // listBeansOfExactClass()
+    public void resourceCreated(String id, String parentId, String name) {
+        if (negativeCache!=null) {
+            negativeCache.remove("id:"+id);
+            negativeCache.remove("child:"+parentId+"/"+name);
+        } // if
+    } // resourceCreated()
 
 
     /**
-     * List content objects matching certain criteria.
+     * Get the cache for ID listings of listIds() and getChildrenIds().
      *
-     * @param typeName document type name of the document to look for
-     * @param optionalQuery SQL based where clause part to be used
-     * @param orderProperty name of the property to sort result list
-     * @param ascending true if sorting should be ascending - false otherwise
-     * @return sorted list of matching content objects
+     * @return query result cache or null if listings are not cached
      */
-    public List<Content> listContents(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
-        List<Content> result = new ArrayList<>();
-        for (String t = typeName; t!=null; t = parents.get(t)) {
-            result.addAll(listContentsOfExactType(t, optionalQuery, orderProperty, ascending));
-        } // for
-        return result;
-    } // listBeans()
+    public QueryResultCache getQueryCache() {
+        return queryCache;
+    }
+
+
+    /**
+     * Set the cache for ID listings of listIds() and getChildrenIds().
+     *
+     * @param queryCache query result cache or null to disable caching of listings
+     */
+    public void setQueryCache(QueryResultCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+
+    /**
+     * Tell this repository about a changed, created, or deleted object so that cached data depending on it is
+     * dropped.
+     *
+     * @param id ID of the changed object
+     * @param parentId ID of the folder holding the changed object
+     * @param type document type of the changed object - null for folders
+     */
+    public void resourceChanged(String id, String parentId, String type) {
+        invalidate(id);
+        if (queryCache!=null) {
+            queryCache.invalidate(type, parentId);
+        } // if
+        if ((fullTextIndex!=null)&&(type!=null)) {
+            Content content = getContent(id);
+            if (content==null) {
+                fullTextIndex.remove(id);
+            } else {
+                fullTextIndex.update(content);
+            } // if
+        } // if
+        if (type==null) {
+            clearFolderCache();
+        } else {
+            updatePropertyIndexes(id, type);
+        } // if
+    } // resourceChanged()
+
+
+    /**
+     * Read the value of a property in the latest version of all documents of a type or of a single document.
+     *
+     * @param type document type table to read
+     * @param propertyName name of the property column
+     * @param id ID of the single document to read - null for all documents
+     * @param result map to put the values by document ID into - null values included
+     */
+    private void readLatestValues(String type, String propertyName, Integer id, Map<Integer, Object> result) {
+        TypeMetadata metadata = getTypeMetadata(type);
+        List<Integer> columns = metadata.getColumns(List.of(propertyName));
+        StringBuilder query = new StringBuilder(128).append("SELECT ").append(metadata.getSelectList(columns, getIdentifierQuote()));
+        query.append(" FROM ").append(type);
+        if (id!=null) {
+            query.append(" WHERE ").append(VIRTUAL_PROPERTY_ID).append(" = ").append(id);
+        } // if
+        query.append(" ORDER BY ").append(VIRTUAL_PROPERTY_ID).append(" ASC, ").append(VIRTUAL_PROPERTY_VERSION).append(" DESC");
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query.toString())) {
+            Map<String, Object> row = new HashMap<>();
+            while (resultSet.next()) {
+                int contentId = resultSet.getInt(VIRTUAL_PROPERTY_ID);
+                // only the first row of each ID is the latest version
+                if (!result.containsKey(contentId)) {
+                    metadata.read(resultSet, columns, row);
+                    result.put(contentId, row.get(propertyName));
+                } // if
+            } // while
+        } catch (SQLException se) {
+            LOG.error("readLatestValues() "+query, se);
+        } // try/catch
+    } // readLatestValues()
+
+
+    /**
+     * Declare a secondary index on a property of a document type and its subtypes.
+     * The index is built with one scan over the type tables and then maintained from the change notifications
+     * passed to resourceChanged(). Changes notified during the scan are read again afterwards. Declaring an existing
+     * index again returns the existing one once it has been built.
+     *
+     * @param type name of the document type
+     * @param propertyName name of the property to index
+     * @return index of the values of the property in the latest versions of the documents
+     */
+    public PropertyIndex createPropertyIndex(String type, String propertyName) {
+        String key = type+"#"+propertyName;
+        PropertyIndex existing = propertyIndexes.get(key);
+        if (existing==null) {
+            List<String> types = new ArrayList<>();
+            for (String subtype : getSubtypes(type)) {
+                TypeMetadata metadata = getTypeMetadata(subtype);
+                if ((metadata!=null)&&metadata.getColumnNames().contains(propertyName)) {
+                    types.add(subtype);
+                } // if
+            } // for
+            PropertyIndex index = new PropertyIndex(type, propertyName, types);
+            synchronized (index) {
+                // register before the scan so that changes during the scan reach the index
+                existing = propertyIndexes.putIfAbsent(key, index);
+                if (existing==null) {
+                    buildPropertyIndex(index);
+                    return index;
+                } // if
+            } // synchronized
+        } // if
+        synchronized (existing) {
+            // wait for the build of the existing index
+            return existing;
+        } // synchronized
+    } // createPropertyIndex()
+
+
+    private void buildPropertyIndex(PropertyIndex index) {
+        long start = System.currentTimeMillis();
+        Map<Integer, Object> latest = new HashMap<>();
+        for (String indexedType : index.getTypes()) {
+            readLatestValues(indexedType, index.getPropertyName(), null, latest);
+        } // for
+        index.load(latest);
+        int rereads = 0;
+        for (Set<Integer> changed = index.drainChanges(); !changed.isEmpty(); changed = index.drainChanges()) {
+            for (Integer id : changed) {
+                updatePropertyIndex(index, id, getType(id.toString()));
+                rereads++;
+            } // for
+        } // for
+        LOG.info("createPropertyIndex() {} with {} values for {} documents and {} changes in {}ms", index, index.getValueCount(),
+                index.size(), rereads, System.currentTimeMillis()-start);
+    } // buildPropertyIndex()
+
+
+    /**
+     * Get a declared secondary index.
+     *
+     * @param type name of the document type
+     * @param propertyName name of the indexed property
+     * @return index or null if no such index has been declared
+     */
+    public PropertyIndex getPropertyIndex(String type, String propertyName) {
+        return propertyIndexes.get(type+"#"+propertyName);
+    }
+
+
+    private void updatePropertyIndex(PropertyIndex index, Integer id, String type) {
+        Map<Integer, Object> latest = new HashMap<>();
+        if ((type!=null)&&index.getTypes().contains(type)) {
+            readLatestValues(type, index.getPropertyName(), id, latest);
+        } // if
+        index.put(id, latest.get(id));
+    } // updatePropertyIndex()
+
+
+    private void updatePropertyIndexes(String id, String type) {
+        for (PropertyIndex index : propertyIndexes.values()) {
+            if (index.getTypes().contains(type)) {
+                updatePropertyIndex(index, Integer.valueOf(id), getType(id));
+            } // if
+        } // for
+    } // updatePropertyIndexes()
+
+
+    /**
+     * Get the full text index kept up to date with the changes of this repository.
+     *
+     * @return index or null if changes are not indexed
+     */
+    public FullTextIndex getFullTextIndex() {
+        return fullTextIndex;
+    }
+
+
+    /**
+     * Set a full text index to be updated on changes.
+     * Loading objects leaves the index untouched, so use FullTextIndex.indexAll() to fill it initially.
+     *
+     * @param fullTextIndex index or null to not index changed objects
+     */
+    public void setFullTextIndex(FullTextIndex fullTextIndex) {
+        this.fullTextIndex = fullTextIndex;
+    }
+
+
+    /**
+     * Get the number of database loads saved because concurrent requests for the same object, path, or listing
+     * waited for a load already in progress.
+     *
+     * @return number of coalesced loads
+     */
+    public long getCoalescedLoads() {
+        return contentLoads.getCoalesced()+pathLoads.getCoalesced()+listLoads.getCoalesced();
+    }
+
+
+    /**
+     * Get content object with a given ID.
+     *
+     * Without a content cache concurrent callers for the same ID wait for one load, and all but the loading caller
+     * get a copy of the object. The property values - like link lists - are shared by these copies.
+     *
+     * @param id ID of the object to look for
+     * @return content object for the ID or null
+     */
+    @Override
+    public Content getContent(String id) {
+        Content result = (contentCache==null)||(id==null) ? null : contentCache.get(id);
+        if (result!=null) {
+            return result;
+        } // if
+        Content[] own = new Content[1];
+        result = contentLoads.load(""+id, () -> own[0] = loadContent(id), this::isInTime);
+        if ((contentCache==null)&&(result!=own[0])&&(result instanceof CoconatContent)) {
+            // loaded for another caller - which may modify its instance
+            result = createContent(result.getId(), ((CoconatContent) result).getDocumentType(), new HashMap<>(result));
+        } // if
+        return result;
+    } // getContent()
+
+
+    private Content loadContent(String id) {
+        Content result = null;
+        String type = getType(id);
+        if (type!=null) {
+            Map<String, Object> properties = getProperties(type, id);
+            properties.putAll(additionalProperties);
+            result = createContent(id, type, properties);
+            if ((contentCache!=null)&&isInTime()) {
+                contentCache.put(id, result);
+            } // if
+        } // if
+        return result;
+    } // loadContent()
+
+
+    /**
+     * Get a content object with only some of its properties - e.g. the teaser fields for a listing.
+     * Only the needed columns are selected and only the needed link lists, blobs, and texts are fetched. Such
+     * partial objects are neither taken from nor put into the content cache.
+     *
+     * @param id ID of the object to look for
+     * @param propertyNames names of the properties needed - internal properties like ID_ are always included
+     * @return content object for the ID with the given properties or null
+     */
+    public Content getContent(String id, Collection<String> propertyNames) {
+        String type = getType(id);
+        if (type==null) {
+            return null;
+        } // if
+        Map<String, Object> properties = getProperties(type, id, propertyNames);
+        properties.putAll(additionalProperties);
+        return createContent(id, type, properties);
+    } // getContent()
+
+
+    /**
+     * Get content object described by its path in the repository.
+     *
+     * @param path path of the object to look for
+     * @return content object described by the path or the root folder
+     */
+    @Override
+    public Content getChild(String path) {
+        return getContent(getChildId(path));
+    } // getChild()
+
+
+    /**
+     * List content objects matching certain criteria.
+     *
+     * @param typeName exact document type name of the document to look for - no subtypes
+     * @param optionalQuery SQL based where clause part to be used
+     * @param orderProperty name of the property to sort result list
+     * @param ascending true if sorting should be ascending - false otherwise
+     * @return sorted list of matching content objects
+     */
+    public List<Content> listContentsOfExactType(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
+        List<Content> result = new ArrayList<>();
+        for (String id : listIds(typeName, optionalQuery, orderProperty, ascending)) {
+            result.add(getContent(id));
+        } // for
+        return result;
+    } // listBeansOfExactClass()
+
+
+    /**
+     * List content objects matching certain criteria.
+     *
+     * @param typeName document type name of the document to look for
+     * @param optionalQuery SQL based where clause part to be used
+     * @param orderProperty name of the property to sort result list
+     * @param ascending true if sorting should be ascending - false otherwise
+     * @return sorted list of matching content objects
+     */
+    public List<Content> listContents(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
+        List<Content> result = new ArrayList<>();
+        for (String t = typeName; t!=null; t = parents.get(t)) {
+            result.addAll(listContentsOfExactType(t, optionalQuery, orderProperty, ascending));
+        } // for
+        return result;
+    } // listBeans()
+
+
+    /**
+     * supporting methods for implementing CM style access to content *
+     */
+    /**
+     * Get the properties for an object with a given type and id.
+     *
+     * The instance "id" must be of type "type" otherwise the method will fail!
+     *
+     * @param type document type of the content item to retrieve the properties map for
+     * @param id content id of the content item to retrieve the properties map for
+     * @return map mapping the property names to their respective values
+     */
+    protected Map<String, Object> getProperties(String type, String id) {
+        return getProperties(type, id, null);
+    } // getProperties()
+
+
+    /**
+     * Create a statement guarded by the query timeout, the deadline of the current thread, and the concurrency
+     * limiter, and reporting to the query profiler.
+     */
+    private Statement createStatement(Connection connection) throws SQLException {
+        return StatementGuard.wrap(connection.createStatement(), Statement.class, concurrencyLimiter, getDeadline(), queryTimeout,
+                queryProfiler, null);
+    } // createStatement()
+
+
+    private Statement createStatement(int maxRows) throws SQLException {
+        Statement statement = createStatement(dbConnection);
+        statement.setMaxRows(maxRows);
+        return statement;
+    } // createStatement()
+
+
+    /**
+     * Get the column layout of the table for a document type.
+     *
+     * @param type name of the document type
+     * @return column layout or null if the table cannot be read
+     */
+    public TypeMetadata getTypeMetadata(String type) {
+        return getTypeMetadata(dbConnection, type);
+    } // getTypeMetadata()
+
+
+    private TypeMetadata getTypeMetadata(Connection connection, String type) {
+        TypeMetadata result = typeMetadata.get(type);
+        if (result==null) {
+            try (Statement statement = createStatement(connection)) {
+                result = TypeMetadata.read(statement, type);
+                typeMetadata.put(type, result);
+            } catch (SQLException se) {
+                LOG.error("getTypeMetadata() "+type, se);
+            } // try/catch
+        } // if
+        return result;
+    } // getTypeMetadata()
+
+
+    /**
+     * Get some of the properties for an object with a given type and id.
+     *
+     * @param type document type of the content item to retrieve the properties map for
+     * @param id content id of the content item to retrieve the properties map for
+     * @param propertyNames names of the properties needed - null for all properties
+     * @return map mapping the property names to their respective values
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    protected Map<String, Object> getProperties(String type, String id, Collection<String> propertyNames) {
+        Map<String, Object> properties = new HashMap<>();
+        if ((type==null)||(type.length()==0)) {
+            // it's most likely a folder
+            return properties;
+        } // if
+        TypeMetadata metadata = getTypeMetadata(type);
+        if (metadata==null) {
+            return properties;
+        } // if
+        List<Integer> columns = metadata.getColumns(propertyNames);
+        String query = "SELECT "+metadata.getSelectList(columns, getIdentifierQuote())+" FROM "+type+" WHERE "
+                +VIRTUAL_PROPERTY_ID+" = "+id+" ORDER BY "+VIRTUAL_PROPERTY_VERSION+" DESC";
+        String sqlError = "getProperties() query=";
+        try (Statement baseStatement = createStatement(1); ResultSet baseSet = baseStatement.executeQuery(query)) {
+            if (baseSet.next()) {
+                int version = baseSet.getInt(VIRTUAL_PROPERTY_VERSION);
+                LOG.debug("getProperties() {}/{} :{}", id, version, type);
+                metadata.read(baseSet, columns, properties);
+
+                // select links
+                query = "SELECT * FROM LinkLists WHERE sourcedocument = "+id+" AND sourceversion = "+version
+                        +" ORDER BY propertyname ASC, linkindex ASC";
+                Map<String, List<String>> linkLists = new HashMap<>();
+                try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+                    while (resultSet.next()) {
+                        String propertyName = resultSet.getString("propertyname");
+                        if ((propertyNames!=null)&&!propertyNames.contains(propertyName)) {
+                            continue;
+                        } // if
+                        String targetId = resultSet.getString("targetdocument");
+                        int linkIndex = resultSet.getInt("linkindex");
+                        LOG.debug("getProperties() {}[{}] {}", propertyName, linkIndex, targetId);
+                        List<String> ids = linkLists.get(propertyName);
+                        if (ids==null) {
+                            ids = new ArrayList<>();
+                            linkLists.put(propertyName, ids);
+                        } // if
+                        ids.add(linkIndex, targetId);
+                    } // while
+                } catch (SQLException se) {
+                    LOG.error(sqlError+query, se);
+                } // try/catch
+                for (Entry<String, List<String>> entry : linkLists.entrySet()) {
+                    properties.put(entry.getKey(), new LazyContentList(this, entry.getValue()));
+                } // for
+
+                // select blobs
+                query = "SELECT * FROM Blobs WHERE documentid = "+id+" AND documentversion = "+version+" ORDER BY propertyname ASC";
+                try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+                    while (resultSet.next()) {
+                        String propertyName = resultSet.getString("propertyname");
+                        if ((propertyNames!=null)&&!propertyNames.contains(propertyName)) {
+                            continue;
+                        } // if
+                        int blobId = resultSet.getInt("target");
+
+                        query = "SELECT * FROM BlobData WHERE id = "+blobId;
+                        try (Statement st = createStatement(dbConnection); ResultSet blobSet = st.executeQuery(query)) {
+                            if (blobSet.next()) {
+                                String mimeType = blobSet.getString("mimetype");
+                                byte[] data = blobSet.getBytes("data");
+                                long len = blobSet.getLong("len");
+                                properties.put(propertyName, createBlob(id, propertyName, mimeType, len, data));
+                                LOG.debug("getProperties() {} blob bytes {} ({})", propertyName, data.length, len);
+                            } // if
+                        } catch (SQLException se) {
+                            LOG.error(sqlError+query, se);
+                        } // try/catch
+                    } // while
+                } catch (SQLException se) {
+                    LOG.error(sqlError+query, se);
+                } // try/catch
+
+                // select xml
+                query = "SELECT * FROM Texts WHERE documentid = "+id+" AND documentversion = "+version+" ORDER BY propertyname ASC";
+                try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+                    while (resultSet.next()) {
+                        String propertyName = resultSet.getString("propertyname");
+                        if ((propertyNames!=null)&&!propertyNames.contains(propertyName)) {
+                            continue;
+                        } // if
+                        int target = resultSet.getInt("target");
+                        // int segment = resultSet.getInt("segment");
+
+                        StringBuilder text = new StringBuilder(256);
+                        query = "SELECT * FROM SgmlText WHERE id = "+target;
+                        try (Statement st = createStatement(dbConnection); ResultSet textSet = st.executeQuery(query)) {
+                            while (textSet.next()) {
+                                String xmlText = textSet.getString("text");
+                                text.append(xmlText);
+                                if (LOG.isDebugEnabled()) {
+                                    LOG.debug("getBean() {} {} {} {}", propertyName, textSet.getInt("id"), textSet.getInt("segmentno"), xmlText);
+                                } // if
+                            } // if
+                        } catch (SQLException se) {
+                            LOG.error(sqlError+query, se);
+                        } // try/catch
+                        LOG.debug("getProperties() {} text={}", propertyName, text);
+
+                        query = "SELECT * FROM SgmlData WHERE id = "+target;
+                        StringBuilder data = new StringBuilder(256);
+                        try (Statement sd = createStatement(dbConnection); ResultSet dataSet = sd.executeQuery(query)) {
+                            while (dataSet.next()) {
+                                String xmlData = dataSet.getString("data");
+                                data.append(xmlData);
+                                if (LOG.isDebugEnabled()) {
+                                    LOG.debug("getProperties() {} {} {} {}", propertyName, dataSet.getInt("id"), dataSet.getInt("segmentno"), xmlData);
+                                } // if
+                            } // if
+                        } catch (SQLException se) {
+                            LOG.error(sqlError+query, se);
+                        } // try/catch
+                        LOG.debug("getProperties() {} data={}", propertyName, data);
+
+                        try {
+                            Set<String> linkIds = new LinkedHashSet<>();
+                            properties.put(propertyName, CoconatTextConverter.convert(text, data, linkIds));
+                            putLinkIds(properties, propertyName, linkIds);
+                        } catch (Exception e) {
+                            LOG.error("getProperties() ignoring richtext", e);
+                            properties.put(propertyName, text.toString());
+                        } // try/catch
+                    } // while
+                } catch (SQLException se) {
+                    LOG.error(sqlError+query, se);
+                } // try/catch
+            } // if
+        } catch (SQLException se) {
+            LOG.error(sqlError+query, se);
+        } // try/catch
+        return properties;
+    } // getProperties()
+
+
+    /**
+     * Callback for the rows of bulk queries.
+     */
+    private interface RowHandler {
+
+        void handle(ResultSet resultSet) throws SQLException;
+
+    } // RowHandler
+
+
+    private static String inList(int size) {
+        StringBuilder result = new StringBuilder(size*2+2).append('(');
+        for (int i = 0; i<size; i++) {
+            result.append(i>0 ? ",?" : "?");
+        } // for
+        return result.append(')').toString();
+    } // inList()
+
+
+    /**
+     * Issue a query with an IN list in chunks of limited size and pass each resulting row to a handler.
+     *
+     * @param prefix query part in front of the IN list
+     * @param suffix query part following the IN list
+     * @param values values for the IN list
+     * @param handler callback for each row
+     */
+    private void queryIn(String prefix, String suffix, List<?> values, RowHandler handler) {
+        try {
+            queryIn(dbConnection, prefix, suffix, values, handler);
+        } catch (SQLException se) {
+            LOG.error("queryIn() "+prefix, se);
+        } // try/catch
+    } // queryIn()
+
+
+    private void queryIn(Connection connection, String prefix, String suffix, List<?> values, RowHandler handler) throws SQLException {
+        for (int i = 0; i<values.size(); i += MAX_IN_LIST) {
+            List<Object> chunk = new ArrayList<>(values.subList(i, Math.min(i+MAX_IN_LIST, values.size())));
+            String query = prefix+inList(chunk.size())+suffix;
+            try (PreparedStatement s = prepareStatement(connection, query, chunk); ResultSet resultSet = s.executeQuery()) {
+                while (resultSet.next()) {
+                    handler.handle(resultSet);
+                } // while
+            } // try
+        } // for
+    } // queryIn()
+
+
+    private static List<Integer> toIntegers(Collection<String> ids) {
+        List<Integer> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(Integer.valueOf(id));
+        } // for
+        return result;
+    } // toIntegers()
+
+
+    /**
+     * Get the content objects for a number of IDs at once.
+     *
+     * The number of queries issued depends on the number of document types involved and not on the number of IDs.
+     * Cached objects are taken from the cache. Missing IDs are silently left out.
+     *
+     * @param ids IDs of the objects to look for
+     * @return map of content objects for the IDs in the order of the given IDs
+     */
+    public Map<String, Content> getContents(Collection<String> ids) {
+        Map<String, Content> loaded = new HashMap<>();
+        List<String> idList = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            Content content = contentCache==null ? null : contentCache.get(id);
+            if (content==null) {
+                if ((negativeCache==null)||!negativeCache.isMissing("id:"+id)) {
+                    idList.add(id);
+                } // if
+            } else {
+                loaded.put(id, content);
+            } // if
+        } // for
+        for (int i = 0; i<idList.size(); i += MAX_IN_LIST) {
+            Map<String, Content> batch = new HashMap<>();
+            try {
+                loadContents(dbConnection, idList.subList(i, Math.min(i+MAX_IN_LIST, idList.size())), batch);
+            } catch (SQLException se) {
+                LOG.error("getContents()", se);
+                continue;
+            } // try/catch
+            if (contentCache!=null) {
+                contentCache.putAll(batch);
+            } // if
+            loaded.putAll(batch);
+        } // for
+        Map<String, Content> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            Content content = loaded.get(id);
+            if (content!=null) {
+                result.put(id, content);
+            } // if
+        } // for
+        return result;
+    } // getContents()
+
+
+    @SuppressWarnings("PMD.ExcessiveMethodLength")
+    private void loadContents(Connection connection, List<String> ids, Map<String, Content> result) throws SQLException {
+        LOG.debug("loadContents() {}", ids);
+        Map<String, String> types = new HashMap<>();
+        queryIn(connection, "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_TYPE+" FROM Resources WHERE "+VIRTUAL_PROPERTY_ID+" IN ", "", toIntegers(ids), resultSet -> {
+            String type = resultSet.getString(2);
+            types.put(""+resultSet.getInt(1), type==null ? "" : type);
+        });
+        Map<String, List<String>> idsByType = new HashMap<>();
+        for (Entry<String, String> entry : types.entrySet()) {
+            if (entry.getValue().length()>0) {
+                idsByType.computeIfAbsent(entry.getValue(), t -> new ArrayList<>()).add(entry.getKey());
+            } // if
+        } // for
+
+        Map<String, Map<String, Object>> propertyMaps = new HashMap<>();
+        Map<String, Integer> versions = new HashMap<>();
+        for (Entry<String, List<String>> entry : idsByType.entrySet()) {
+            TypeMetadata metadata = getTypeMetadata(connection, entry.getKey());
+            if (metadata==null) {
+                continue;
+            } // if
+            List<Integer> columns = metadata.getColumns(null);
+            String prefix = "SELECT "+metadata.getSelectList(columns, getIdentifierQuote(connection))+" FROM "+entry.getKey()+" WHERE "+VIRTUAL_PROPERTY_ID+" IN ";
+            String suffix = " ORDER BY "+VIRTUAL_PROPERTY_ID+" ASC, "+VIRTUAL_PROPERTY_VERSION+" DESC";
+            queryIn(connection, prefix, suffix, toIntegers(entry.getValue()), baseSet -> {
+                String contentId = ""+baseSet.getInt(VIRTUAL_PROPERTY_ID);
+                if (!versions.containsKey(contentId)) {
+                    versions.put(contentId, baseSet.getInt(VIRTUAL_PROPERTY_VERSION));
+                    Map<String, Object> properties = new HashMap<>();
+                    metadata.read(baseSet, columns, properties);
+                    propertyMaps.put(contentId, properties);
+                } // if
+            });
+        } // for
+        List<Integer> documentIds = toIntegers(versions.keySet());
+
+        // select links
+        Map<String, Map<String, List<String>>> linkLists = new HashMap<>();
+        queryIn(connection, "SELECT sourcedocument, sourceversion, propertyname, targetdocument FROM LinkLists WHERE sourcedocument IN ",
+                " ORDER BY sourcedocument ASC, propertyname ASC, linkindex ASC", documentIds, resultSet -> {
+            String sourceId = ""+resultSet.getInt(1);
+            if (Integer.valueOf(resultSet.getInt(2)).equals(versions.get(sourceId))) {
+                linkLists.computeIfAbsent(sourceId, i -> new HashMap<>())
+                        .computeIfAbsent(resultSet.getString(3), p -> new ArrayList<>()).add(resultSet.getString(4));
+            } // if
+        });
+        for (Entry<String, Map<String, List<String>>> entry : linkLists.entrySet()) {
+            Map<String, Object> properties = propertyMaps.get(entry.getKey());
+            for (Entry<String, List<String>> linkList : entry.getValue().entrySet()) {
+                properties.put(linkList.getKey(), new LazyContentList(this, linkList.getValue()));
+            } // for
+        } // for
+
+        // select blobs
+        queryIn(connection, "SELECT b.documentid, b.documentversion, b.propertyname, d.mimetype, d.len, d.data FROM Blobs b, BlobData d"
+                +" WHERE b.target = d.id AND b.documentid IN ", "", documentIds, resultSet -> {
+            String contentId = ""+resultSet.getInt(1);
+            if (Integer.valueOf(resultSet.getInt(2)).equals(versions.get(contentId))) {
+                String propertyName = resultSet.getString(3);
+                Object blob = createBlob(contentId, propertyName, resultSet.getString(4), resultSet.getLong(5), resultSet.getBytes(6));
+                propertyMaps.get(contentId).put(propertyName, blob);
+            } // if
+        });
+
+        // select xml
+        Map<Integer, List<String[]>> textTargets = new HashMap<>();
+        queryIn(connection, "SELECT documentid, documentversion, propertyname, target FROM Texts WHERE documentid IN ", "", documentIds, resultSet -> {
+            String contentId = ""+resultSet.getInt(1);
+            if (Integer.valueOf(resultSet.getInt(2)).equals(versions.get(contentId))) {
+                String[] reference = {contentId, resultSet.getString(3)};
+                textTargets.computeIfAbsent(resultSet.getInt(4), t -> new ArrayList<>()).add(reference);
+            } // if
+        });
+        List<Integer> targets = new ArrayList<>(textTargets.keySet());
+        Map<Integer, StringBuilder> texts = new HashMap<>();
+        queryIn(connection, "SELECT id, text FROM SgmlText WHERE id IN ", " ORDER BY id ASC, segmentno ASC", targets, resultSet -> {
+            texts.computeIfAbsent(resultSet.getInt(1), t -> new StringBuilder(256)).append(resultSet.getString(2));
+        });
+        Map<Integer, StringBuilder> data = new HashMap<>();
+        queryIn(connection, "SELECT id, data FROM SgmlData WHERE id IN ", " ORDER BY id ASC, segmentno ASC", targets, resultSet -> {
+            data.computeIfAbsent(resultSet.getInt(1), t -> new StringBuilder(256)).append(resultSet.getString(2));
+        });
+        for (Entry<Integer, List<String[]>> entry : textTargets.entrySet()) {
+            StringBuilder text = texts.getOrDefault(entry.getKey(), new StringBuilder());
+            StringBuilder markup = data.getOrDefault(entry.getKey(), new StringBuilder());
+            Object value;
+            Set<String> linkIds = new LinkedHashSet<>();
+            try {
+                value = CoconatTextConverter.convert(text, markup, linkIds);
+            } catch (Exception e) {
+                LOG.error("loadContents() ignoring richtext", e);
+                value = text.toString();
+            } // try/catch
+            for (String[] reference : entry.getValue()) {
+                Map<String, Object> properties = propertyMaps.get(reference[0]);
+                properties.put(reference[1], value);
+                putLinkIds(properties, reference[1], linkIds);
+            } // for
+        } // for
+
+        for (String id : ids) {
+            String type = types.get(id);
+            if (type!=null) {
+                Map<String, Object> properties = propertyMaps.getOrDefault(id, new HashMap<>());
+                properties.putAll(additionalProperties);
+                result.put(id, createContent(id, type, properties));
+            } // if
+        } // for
+    } // loadContents()
+
+
+    /**
+     * Prefetch the objects reachable from a root object through link properties.
+     *
+     * The graph is fetched breadth first where each round loads all objects of the current frontier with the bulk
+     * queries of getContents(), so the number of queries depends on the depth and not on the number of objects.
+     *
+     * @param rootId ID of the object to start with
+     * @param propertyNames names of the link properties to follow or null to follow all link lists
+     * @param depth number of link hops to follow from the root object
+     * @return graph of the reachable content objects indexed by ID
+     */
+    public ContentGraph getContentGraph(String rootId, Collection<String> propertyNames, int depth) {
+        ContentGraph graph = new ContentGraph(this, rootId);
+        Set<String> frontier = new LinkedHashSet<>();
+        frontier.add(rootId);
+        for (int round = 0; (round<=depth)&&!frontier.isEmpty(); round++) {
+            Set<String> next = new LinkedHashSet<>();
+            for (Content content : getContents(frontier).values()) {
+                graph.add(content);
+                for (Entry<String, Object> entry : content.entrySet()) {
+                    boolean follow = (propertyNames==null)||propertyNames.contains(entry.getKey());
+                    if (follow&&(entry.getValue() instanceof LazyContentList)) {
+                        next.addAll(((LazyContentList) entry.getValue()).getIds());
+                    } // if
+                } // for
+            } // for
+            next.removeAll(graph.getIds());
+            LOG.debug("getContentGraph() round {}: {} loaded, {} next", round, graph.size(), next.size());
+            frontier = next;
+        } // for
+        return graph;
+    } // getContentGraph()
+
+
+    /**
+     * Get document type for a given content object.
+     *
+     * @param id ID of the object to get the document type for
+     * @return document type name or null
+     */
+    public String getType(String id) {
+        if ((negativeCache!=null)&&negativeCache.isMissing("id:"+id)) {
+            return null;
+        } // if
+        String type = null;
+        String query = SELECT_FROM_RESOURCES_CLAUSE+VIRTUAL_PROPERTY_ID+" = '"+id+"'";
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+            if (resultSet.next()) {
+                type = resultSet.getString(VIRTUAL_PROPERTY_TYPE);
+                if (LOG.isDebugEnabled()) {
+                    int contentId = resultSet.getInt(VIRTUAL_PROPERTY_ID);
+                    LOG.debug("getType() {}: {} ", contentId, type);
+                } // if
+                if (type==null) {
+                    type = ""; // Folder indication
+                } // if
+            } else if (negativeCache!=null) {
+                negativeCache.addMissing("id:"+id);
+            } // if
+        } catch (SQLException se) {
+            LOG.error("getType()", se);
+        } // try/catch
+        return type;
+    } // getType()
+
+
+    /**
+     * Get ID for a content object described by its path in the repository.
+     *
+     * @param path path of the object to look for
+     * @return ID of the object described by the path or at least "1" for the root folder
+     */
+    public String getChildId(String path) {
+        return (path==null) ? null : pathLoads.load(path, () -> resolvePath(path), this::isInTime);
+    } // getChildId()
+
+
+    private String resolvePath(String path) {
+        try {
+            String[] arcs = path.split("/");
+            String currentFolder = "1"; // root
+            for (String folder : arcs) {
+                LOG.info("getChildId() lookup up {} in id {}", folder, currentFolder);
+                if (folder.length()>0) {
+                    currentFolder = getChildId(folder, currentFolder);
+                    if (currentFolder==null) {
+                        return null;
+                    } // if
+                } // if
+            } // for
+            return currentFolder;
+        } catch (RuntimeException se) {
+            LOG.error("resolvePath()", se);
+        } // try/catch
+        return null;
+    } // resolvePath()
+
+
+    /**
+     * Node of the prefix tree of the paths to resolve with getChildIds().
+     */
+    private static final class PathNode {
+
+        private String id;
+
+        // the query for this node ran without failure - so a missing id means the child does not exist
+        private boolean resolved;
+
+        private final Map<String, PathNode> children = new LinkedHashMap<>();
+
+    } // PathNode
+
+
+    /**
+     * Resolve the next level of the prefix tree - the children of the given folders - with one query per chunk of
+     * folder IDs and names.
+     *
+     * @param folders nodes of the level mapped by their folder IDs
+     * @param names names of the children to look for in any of the folders
+     */
+    private void resolveChildren(Map<String, PathNode> folders, List<String> names) {
+        String prefix = "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_FOLDER_ID+", "+VIRTUAL_PROPERTY_NAME+" FROM Resources WHERE "
+                +VIRTUAL_PROPERTY_FOLDER_ID+" IN ";
+        List<Integer> folderIds = toIntegers(folders.keySet());
+        for (int i = 0; i<folderIds.size(); i += MAX_IN_LIST) {
+            List<Integer> folderChunk = folderIds.subList(i, Math.min(i+MAX_IN_LIST, folderIds.size()));
+            for (int j = 0; j<names.size(); j += MAX_IN_LIST) {
+                List<String> nameChunk = names.subList(j, Math.min(j+MAX_IN_LIST, names.size()));
+                String query = prefix+inList(folderChunk.size())+" AND "+VIRTUAL_PROPERTY_NAME+" IN "+inList(nameChunk.size());
+                List<Object> parameters = new ArrayList<>(folderChunk);
+                parameters.addAll(nameChunk);
+                try (PreparedStatement s = prepareStatement(query, parameters); ResultSet resultSet = s.executeQuery()) {
+                    while (resultSet.next()) {
+                        // folders and names are combined in the query - only take the rows asked for
+                        PathNode child = folders.get(""+resultSet.getInt(2)).children.get(resultSet.getString(3));
+                        if ((child!=null)&&(child.id==null)) {
+                            child.id = ""+resultSet.getInt(1);
+                        } // if
+                    } // while
+                } catch (SQLException se) {
+                    LOG.error("resolveChildren() "+query, se);
+                    continue;
+                } // try/catch
+                for (Integer folderId : folderChunk) {
+                    for (String name : nameChunk) {
+                        PathNode child = folders.get(""+folderId).children.get(name);
+                        if (child!=null) {
+                            child.resolved = true;
+                        } // if
+                    } // for
+                } // for
+            } // for
+        } // for
+    } // resolveChildren()
+
+
+    /**
+     * Get the IDs for a number of paths at once - e.g. for a sitemap or a link check.
+     *
+     * The paths are merged into a prefix tree which is resolved level by level, so the number of queries depends on
+     * the depth of the deepest path and not on the number of paths or path segments.
+     *
+     * @param paths paths of the objects to look for
+     * @return map of the paths found to the IDs of the objects - "1" for the root folder - in the order of the paths
+     */
+    public Map<String, String> getChildIds(Collection<String> paths) {
+        PathNode root = new PathNode();
+        root.id = "1";
+        Map<String, PathNode> leaves = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (path!=null) {
+                PathNode node = root;
+                for (String arc : path.split("/")) {
+                    if (arc.length()>0) {
+                        node = node.children.computeIfAbsent(arc, a -> new PathNode());
+                    } // if
+                } // for
+                leaves.put(path, node);
+            } // if
+        } // for
+        int depth = 0;
+        List<PathNode> level = List.of(root);
+        while (!level.isEmpty()) {
+            Map<String, PathNode> folders = new LinkedHashMap<>();
+            Set<String> names = new LinkedHashSet<>();
+            for (PathNode node : level) {
+                if (node.id!=null) {
+                    for (String name : node.children.keySet()) {
+                        if ((negativeCache==null)||!negativeCache.isMissing("child:"+node.id+"/"+name)) {
+                            folders.put(node.id, node);
+                            names.add(name);
+                        } // if
+                    } // for
+                } // if
+            } // for
+            if (names.isEmpty()) {
+                break;
+            } // if
+            depth++;
+            resolveChildren(folders, new ArrayList<>(names));
+            List<PathNode> next = new ArrayList<>();
+            for (PathNode folder : folders.values()) {
+                for (Map.Entry<String, PathNode> entry : folder.children.entrySet()) {
+                    if ((entry.getValue().id==null)&&entry.getValue().resolved&&(negativeCache!=null)) {
+                        negativeCache.addMissing("child:"+folder.id+"/"+entry.getKey());
+                    } // if
+                    next.add(entry.getValue());
+                } // for
+            } // for
+            level = next;
+        } // while
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, PathNode> entry : leaves.entrySet()) {
+            if (entry.getValue().id!=null) {
+                result.put(entry.getKey(), entry.getValue().id);
+            } // if
+        } // for
+        LOG.debug("getChildIds() {} of {} paths resolved in {} levels", result.size(), leaves.size(), depth);
+        return result;
+    } // getChildIds()
+
+
+    /**
+     * Get the ID of the parent folder for a given content object.
+     *
+     * @param childId ID of the child to find the parent for
+     * @return ID of the parent - or null
+     */
+    public String getParentId(String childId) {
+        String id = null;
+        String query = SELECT_FROM_RESOURCES_CLAUSE+VIRTUAL_PROPERTY_ID+" = "+childId;
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+            if (resultSet.next()) {
+                id = ""+resultSet.getInt(VIRTUAL_PROPERTY_FOLDER_ID);
+                LOG.debug("getParentId() {}: {}", childId, id);
+            } // if
+        } catch (SQLException se) {
+            LOG.error("getParentId() "+query, se);
+        } // try/catch
+        return id;
+    } // getParentId()
+
+
+    private synchronized Map<String, String> getFolderParents(boolean reload) {
+        if ((folderParents==null)||reload) {
+            Map<String, String> result = new HashMap<>();
+            String query = "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_FOLDER_ID+" FROM Resources WHERE "+VIRTUAL_PROPERTY_TYPE+" IS NULL";
+            try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query)) {
+                while (resultSet.next()) {
+                    int parentId = resultSet.getInt(2);
+                    String parent = resultSet.wasNull() ? null : ""+parentId;
+                    result.put(""+resultSet.getInt(1), parent);
+                } // while
+            } catch (SQLException se) {
+                LOG.error("getFolderParents() "+query, se);
+                // answer this call with the partial map but try again next time
+                return result;
+            } // try/catch
+            LOG.debug("getFolderParents() {} folders", result.size());
+            folderParents = result;
+        } // if
+        return folderParents;
+    } // getFolderParents()
+
+
+    /**
+     * Forget the cached folder tree used for ancestor lookups.
+     * Call this after folders have been created, moved, or deleted.
+     */
+    public void clearFolderCache() {
+        synchronized (this) {
+            folderParents = null;
+        } // synchronized
+    } // clearFolderCache()
+
+
+    private List<String> getAncestorChain(String parentId) {
+        List<String> result = new ArrayList<>();
+        Map<String, String> parentMap = getFolderParents(false);
+        boolean reloaded = false;
+        for (String id = parentId; (id!=null)&&!result.contains(id); id = parentMap.get(id)) {
+            if (!reloaded&&!parentMap.containsKey(id)) {
+                // unknown folder - the cached tree is outdated
+                parentMap = getFolderParents(true);
+                reloaded = true;
+            } // if
+            result.add(0, id);
+        } // for
+        return result;
+    } // getAncestorChain()
+
+
+    /**
+     * Get the IDs of the folders from the root folder down to the parent folder of a number of objects.
+     *
+     * The parent folders of all given objects are fetched with one query, while the folder tree above is taken from
+     * a cached map of folder parents, so no query per level is necessary.
+     *
+     * @param ids IDs of the objects to get the ancestors for
+     * @return map of ancestor IDs - starting with the root folder - for each of the objects found
+     */
+    public Map<String, List<String>> getAncestorIds(Collection<String> ids) {
+        Map<String, String> parentIds = new LinkedHashMap<>();
+        String prefix = "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_FOLDER_ID+" FROM Resources WHERE "+VIRTUAL_PROPERTY_ID+" IN ";
+        queryIn(prefix, "", toIntegers(new LinkedHashSet<>(ids)), resultSet -> {
+            int parentId = resultSet.getInt(2);
+            String parent = resultSet.wasNull() ? null : ""+parentId;
+            parentIds.put(""+resultSet.getInt(1), parent);
+        });
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            if (parentIds.containsKey(id)) {
+                result.put(id, getAncestorChain(parentIds.get(id)));
+            } // if
+        } // for
+        return result;
+    } // getAncestorIds()
+
+
+    /**
+     * Get the IDs of the folders from the root folder down to the parent folder of an object.
+     *
+     * @param id ID of the object to get the ancestors for
+     * @return list of folder IDs starting with the root folder - empty for the root folder or missing objects
+     */
+    public List<String> getAncestorIds(String id) {
+        return getAncestorIds(List.of(id)).getOrDefault(id, new ArrayList<>());
+    } // getAncestorIds()
+
+
+    /**
+     * Get the folders from the root folder down to the parent folder of an object.
+     *
+     * @param id ID of the object to get the ancestors for
+     * @return list of folders starting with the root folder
+     */
+    public List<Content> getAncestors(String id) {
+        return new ArrayList<>(getContents(getAncestorIds(id)).values());
+    } // getAncestors()
+
+
+    /**
+     * List IDs of documents fulfilling certain criteria.
+     *
+     * @param typeName exact document type name of the document to look for - no subtypes
+     * @param optionalQuery SQL based where clause part to be used
+     * @param orderProperty name of the property to sort result list
+     * @param ascending true if sorting should be ascending - false otherwise
+     * @return sorted list of IDs of matching content objects
+     */
+    public List<String> listIds(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
+        QueryResultCache cache = queryCache;
+        if (cache==null) {
+            List<String> ids = queryIds(typeName, optionalQuery, orderProperty, ascending);
+            return (ids==null) ? new ArrayList<>() : ids;
+        } // if
+        String key = QueryResultCache.key("list", typeName, optionalQuery, orderProperty, (ascending==null)||ascending);
+        List<String> ids = cache.get(key);
+        if (ids==null) {
+            long generation = cache.getGeneration();
+            ids = queryIds(typeName, optionalQuery, orderProperty, ascending);
+            if (ids==null) {
+                return new ArrayList<>();
+            } // if
+            if (isInTime()) {
+                cache.put(key, ids, typeName, null, generation);
+            } // if
+        } // if
+        return ids;
+    } // listIds()
+
+
+    /**
+     * Query IDs of documents of exactly one type.
+     *
+     * @return list of IDs or null if the query failed - so that no incomplete result gets cached
+     */
+    private List<String> queryIds(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
+        List<String> ids = new ArrayList<>();
+        @SuppressWarnings("PMD.ConsecutiveLiteralAppends") // Enhance readability using more than one line
+        StringBuilder query = new StringBuilder(128).append("SELECT ").append(VIRTUAL_PROPERTY_ID);
+        query.append(" FROM Resources WHERE ").append(VIRTUAL_PROPERTY_TYPE).append(" = '").append(typeName).append("' ");
+        if (optionalQuery!=null) {
+            query.append(optionalQuery);
+        } // if
+        if (orderProperty!=null) {
+            String asc = (ascending==null) ? "ASC" : (ascending ? "ASC" : "DESC");
+            String order = orderProperty+" "+asc;
+            query.append(" ORDER BY ");
+            query.append(order);
+        } // if
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query.toString())) {
+            while (resultSet.next()) {
+                int contentId = resultSet.getInt(VIRTUAL_PROPERTY_ID);
+                ids.add(""+contentId);
+                LOG.debug("getBean() {}", contentId);
+            } // while
+        } catch (SQLException se) {
+            LOG.error("queryIds() "+query, se);
+            return null;
+        } // try/catch
+        return ids;
+    } // queryIds()
+
+
+    /**
+     * Get the names of a document type and all its subtypes derived from the parents relation.
+     *
+     * @param typeName name of the document type
+     * @return list of type names starting with the given type itself
+     */
+    public List<String> getSubtypes(String typeName) {
+        List<String> result = new ArrayList<>();
+        result.add(typeName);
+        for (int i = 0; i<result.size(); i++) {
+            for (Entry<String, String> entry : parents.entrySet()) {
+                if (result.get(i).equals(entry.getValue())&&!result.contains(entry.getKey())) {
+                    result.add(entry.getKey());
+                } // if
+            } // for
+        } // for
+        return result;
+    } // getSubtypes()
+
+
+    private String getIdentifierQuote() {
+        return getIdentifierQuote(dbConnection);
+    } // getIdentifierQuote()
+
+
+    private String getIdentifierQuote(Connection connection) {
+        if (identifierQuote==null) {
+            try {
+                identifierQuote = connection.getMetaData().getIdentifierQuoteString().trim();
+            } catch (SQLException se) {
+                LOG.error("getIdentifierQuote()", se);
+                identifierQuote = "\"";
+            } // try/catch
+        } // if
+        return identifierQuote;
+    } // getIdentifierQuote()
+
+
+    /**
+     * Prepare a statement and bind the given values in order.
+     *
+     * @param query SQL statement with bind variables
+     * @param parameters values of the bind variables
+     * @return prepared statement ready for execution
+     * @throws SQLException in case of database errors
+     */
+    protected PreparedStatement prepareStatement(String query, List<Object> parameters) throws SQLException {
+        return prepareStatement(dbConnection, query, parameters);
+    } // prepareStatement()
+
+
+    private PreparedStatement prepareStatement(Connection connection, String query, List<Object> parameters) throws SQLException {
+        PreparedStatement statement = StatementGuard.wrap(connection.prepareStatement(query), PreparedStatement.class, concurrencyLimiter,
+                getDeadline(), queryTimeout, queryProfiler, query);
+        for (int i = 0; i<parameters.size(); i++) {
+            statement.setObject(i+1, parameters.get(i));
+        } // for
+        return statement;
+    } // prepareStatement()
+
+
+    /**
+     * Compile a typed query to SQL for the document types of this repository.
+     *
+     * @param query description of the documents to look for
+     * @param parameters list to add the bind variable values to
+     * @return SQL statement returning the content IDs in the first column
+     */
+    protected String compile(CoconatQuery query, List<Object> parameters) {
+        Collection<String> types = query.isIncludeSubtypes() ? getSubtypes(query.getType()) : List.of(query.getType());
+        return query.toSql(types, getIdentifierQuote(), parameters);
+    } // compile()
+
+
+    /**
+     * List IDs of documents matching a typed query.
+     * Filtering and ordering take place in the database using bind variables, while the rows before the page are
+     * skipped.
+     *
+     * @param query description of the documents to look for
+     * @return sorted list of IDs of matching content objects
+     */
+    public List<String> listIds(CoconatQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = compile(query, parameters);
+        int maxRows = query.getMaxRows();
+        int offset = query.getOffset();
+        // the query object is mutable - so coalesce on the compiled statement and page instead
+        List<Object> key = Arrays.asList(sql, parameters, maxRows, offset);
+        return new ArrayList<>(listLoads.load(key, () -> queryIds(sql, parameters, maxRows, offset), this::isInTime));
+    } // listIds()
+
+
+    private List<String> queryIds(String sql, List<Object> parameters, int maxRows, int offset) {
+        List<String> ids = new ArrayList<>();
+        LOG.debug("listIds() {} {}", sql, parameters);
+        try (PreparedStatement s = prepareStatement(sql, parameters)) {
+            s.setMaxRows(maxRows);
+            try (ResultSet resultSet = s.executeQuery()) {
+                int skip = offset;
+                while (resultSet.next()) {
+                    if (skip>0) {
+                        skip--;
+                    } else {
+                        ids.add(""+resultSet.getInt(1));
+                    } // if
+                } // while
+            } // try
+        } catch (SQLException se) {
+            LOG.error("queryIds() "+sql, se);
+        } // try/catch
+        return ids;
+    } // queryIds()
+
+
+    /**
+     * List content objects matching a typed query.
+     *
+     * @param query description of the documents to look for
+     * @return sorted list of matching content objects
+     */
+    public List<Content> listContents(CoconatQuery query) {
+        List<Content> result = new ArrayList<>();
+        for (String id : listIds(query)) {
+            result.add(getContent(id));
+        } // for
+        return result;
+    } // listContents()
+
+
+    /**
+     * Open a cursor on a connection of its own, which is closed with the cursor.
+     * Auto commit is switched off since some drivers only stream results within a transaction.
+     */
+    private IdCursor openCursor(String query, List<Object> parameters) {
+        return openCursor(query, parameters, 0);
+    } // openCursor()
+
+
+    private IdCursor openCursor(String query, List<Object> parameters, int maxRows) {
+        LOG.debug("openCursor() {} {}", query, parameters);
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = openConnection();
+            connection.setAutoCommit(false);
+            statement = prepareStatement(connection, query, parameters);
+            statement.setFetchSize(fetchSize);
+            statement.setMaxRows(maxRows);
+            return new IdCursor(statement, connection);
+        } catch (SQLException se) {
+            LOG.error("openCursor() "+query, se);
+            try {
+                if (statement!=null) {
+                    statement.close();
+                } // if
+            } catch (SQLException e) {
+                LOG.error("openCursor()", e);
+            } finally {
+                closeQuietly(connection);
+            } // try/catch
+        } // try/catch
+        return null;
+    } // openCursor()
+
+
+    private static void closeQuietly(Connection connection) {
+        if (connection!=null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.error("closeQuietly()", e);
+            } // try/catch
+        } // if
+    } // closeQuietly()
+
+
+    private IdCursor openCursor(CoconatQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        IdCursor cursor = openCursor(compile(query, parameters), parameters, query.getMaxRows());
+        if (cursor!=null) {
+            cursor.skip(query.getOffset());
+        } // if
+        return cursor;
+    } // openCursor()
+
+
+    private IdCursor openChildrenCursor(String parentId, String type) {
+        List<Object> parameters = new ArrayList<>();
+        String query = "SELECT "+VIRTUAL_PROPERTY_ID+" FROM Resources WHERE "+VIRTUAL_PROPERTY_FOLDER_ID+" = ?";
+        parameters.add(Integer.valueOf(parentId));
+        if (type!=null) {
+            query += " AND "+VIRTUAL_PROPERTY_TYPE+" = ?";
+            parameters.add(type);
+        } // if
+        return openCursor(query+" ORDER BY "+VIRTUAL_PROPERTY_ID+" ASC", parameters);
+    } // openChildrenCursor()
+
+
+    private static <T> Stream<T> stream(IdCursor cursor, Iterator<T> iterator) {
+        if (cursor==null) {
+            return Stream.empty();
+        } // if
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED|Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    } // stream()
+
+
+    /**
+     * Stream IDs of documents matching a typed query.
+     *
+     * The database cursor stays open while the stream is consumed and is released when the stream is closed.
+     * So callers should use the stream in a try with resources block.
+     *
+     * @param query description of the documents to look for
+     * @return sorted stream of IDs of matching content objects
+     */
+    public Stream<String> streamIds(CoconatQuery query) {
+        IdCursor cursor = openCursor(query);
+        return stream(cursor, cursor);
+    } // streamIds()
+
+
+    /**
+     * Stream content objects matching a typed query.
+     *
+     * Contents are materialised in batches while the stream is consumed.
+     * The database cursor is released when the stream is closed.
+     *
+     * @param query description of the documents to look for
+     * @return sorted stream of matching content objects
+     */
+    public Stream<Content> streamContents(CoconatQuery query) {
+        IdCursor cursor = openCursor(query);
+        return stream(cursor, new BatchContentIterator(this, cursor, batchSize));
+    } // streamContents()
+
+
+    /**
+     * Stream ids of the objects in a folder optionally restricted to a certain type.
+     *
+     * @param parentId id of the folder
+     * @param type document type name the children must fulfill or null
+     * @return stream of IDs of the objects in the folder ordered by ID
+     */
+    public Stream<String> streamChildrenIds(String parentId, String type) {
+        IdCursor cursor = openChildrenCursor(parentId, type);
+        return stream(cursor, cursor);
+    } // streamChildrenIds()
+
+
+    /**
+     * Stream the objects in a folder optionally restricted to a certain type.
+     *
+     * @param parentId id of the folder
+     * @param type document type name the children must fulfill or null
+     * @return stream of the objects in the folder ordered by ID
+     */
+    public Stream<Content> streamChildren(String parentId, String type) {
+        IdCursor cursor = openChildrenCursor(parentId, type);
+        return stream(cursor, new BatchContentIterator(this, cursor, batchSize));
+    } // streamChildren()
+
+
+    /**
+     * Get ids of all objects below a folder walking the folder tree level by level.
+     *
+     * Each level is fetched with batched IN list queries for all folders of that level, so the number of queries
+     * is bound by the depth of the tree and not by the number of folders.
+     *
+     * @param folderId id of the folder to start with - the folder itself is not part of the result
+     * @param typeName document type name - including subtypes - the results must fulfill or null for all objects
+     * @param maxDepth maximum number of levels to descend - negative values for no limit
+     * @return list of IDs of the objects below the folder in breadth first order
+     */
+    public List<String> getDescendantIds(String folderId, String typeName, int maxDepth) {
+        List<String> result = new ArrayList<>();
+        Set<String> types = typeName==null ? null : new HashSet<>(getSubtypes(typeName));
+        List<String> frontier = List.of(folderId);
+        for (int depth = 1; !frontier.isEmpty()&&((maxDepth<0)||(depth<=maxDepth)); depth++) {
+            List<String> folders = new ArrayList<>();
+            String prefix = "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_TYPE+" FROM Resources WHERE "+VIRTUAL_PROPERTY_FOLDER_ID+" IN ";
+            queryIn(prefix, " ORDER BY "+VIRTUAL_PROPERTY_FOLDER_ID+" ASC, "+VIRTUAL_PROPERTY_ID+" ASC", toIntegers(frontier), resultSet -> {
+                String id = ""+resultSet.getInt(1);
+                String type = resultSet.getString(2);
+                if (type==null) {
+                    folders.add(id);
+                } // if
+                if ((types==null)||types.contains(type)) {
+                    result.add(id);
+                } // if
+            });
+            LOG.debug("getDescendantIds() level {}: {} folders", depth, folders.size());
+            frontier = folders;
+        } // for
+        return result;
+    } // getDescendantIds()
+
+
+    /**
+     * Get all objects below a folder walking the folder tree level by level and loading the objects in batches.
+     *
+     * @param folderId id of the folder to start with - the folder itself is not part of the result
+     * @param typeName document type name - including subtypes - the results must fulfill or null for all objects
+     * @param maxDepth maximum number of levels to descend - negative values for no limit
+     * @return list of the objects below the folder in breadth first order
+     */
+    public List<Content> getDescendants(String folderId, String typeName, int maxDepth) {
+        return new ArrayList<>(getContents(getDescendantIds(folderId, typeName, maxDepth)).values());
+    } // getDescendants()
+
+
+    /**
+     * Resolve the roots of a preload to the IDs of the objects to load.
+     *
+     * Roots starting with a slash are paths, numeric roots are IDs - e.g. recorded from the key set of the content
+     * cache of a previous run - and all other roots are document type names including their subtypes. For paths and
+     * IDs denoting folders the whole subtree below the folder is taken. Empty roots denote nothing.
+     *
+     * @param roots paths, IDs, or document type names
+     * @return IDs of the objects to preload without duplicates
+     */
+    public Set<String> resolvePreloadIds(Collection<String> roots) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String root : roots) {
+            if ((root==null)||root.isEmpty()) {
+                LOG.debug("resolvePreloadIds() skipping empty root");
+            } else if (root.startsWith("/")) {
+                String id = getChildId(root);
+                if (id!=null) {
+                    ids.add(id);
+                } // if
+            } else if (root.chars().allMatch(Character::isDigit)) {
+                ids.add(root);
+            } else {
+                ids.addAll(listIds(new CoconatQuery(root)));
+            } // if
+        } // for
+        Set<String> result = new LinkedHashSet<>();
+        List<String> idList = new ArrayList<>(ids);
+        for (int i = 0; i<idList.size(); i += MAX_IN_LIST) {
+            for (CoconatResource resource : getResources(idList.subList(i, Math.min(i+MAX_IN_LIST, idList.size()))).values()) {
+                if (resource.isFolder()) {
+                    result.addAll(getDescendantIds(resource.getId(), null, -1));
+                } else {
+                    result.add(resource.getId());
+                } // if
+            } // for
+        } // for
+        return result;
+    } // resolvePreloadIds()
+
+
+    /**
+     * Load all objects reachable from the given roots into the content cache.
+     *
+     * The IDs are split into chunks each of which is loaded with the bulk queries of getContents() - one per type
+     * table plus one each for link lists, blobs and texts. Chunks are distributed over the given number of threads
+     * each using a separate database connection. The content cache is only filled from the calling thread, so
+     * any map implementation can be used as a cache.
+     *
+     * @param roots paths, IDs, or document type names as described for resolvePreloadIds()
+     * @param parallelism number of threads and connections to use
+     * @param progress optional callback receiving the number of objects loaded so far and the total number of objects
+     * @return number of objects loaded into the cache
+     */
+    public int preload(Collection<String> roots, int parallelism, BiConsumer<Integer, Integer> progress) {
+        if (contentCache==null) {
+            LOG.warn("preload() no content cache set");
+            return 0;
+        } // if
+        List<String> ids = new ArrayList<>();
+        for (String id : resolvePreloadIds(roots)) {
+            if (!contentCache.containsKey(id)) {
+                ids.add(id);
+            } // if
+        } // for
+        int total = ids.size();
+        LOG.info("preload() {} objects with {} threads", total, parallelism);
+        List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<Connection> connection = ThreadLocal.withInitial(() -> {
+            try {
+                Connection c = openConnection();
+                connections.add(c);
+                return c;
+            } catch (SQLException se) {
+                throw new IllegalStateException("cannot open connection for preload", se);
+            } // try/catch
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        CompletionService<Map<String, Content>> completion = new ExecutorCompletionService<>(executor);
+        int count = 0;
+        try {
+            int chunks = 0;
+            for (int i = 0; i<total; i += MAX_IN_LIST) {
+                List<String> chunk = ids.subList(i, Math.min(i+MAX_IN_LIST, total));
+                completion.submit(() -> {
+                    Map<String, Content> batch = new HashMap<>();
+                    loadContents(connection.get(), chunk, batch);
+                    return batch;
+                });
+                chunks++;
+            } // for
+            for (int i = 0; i<chunks; i++) {
+                Map<String, Content> batch;
+                try {
+                    batch = completion.take().get();
+                } catch (ExecutionException ee) {
+                    // the objects of a failed chunk are just left to be loaded on demand
+                    LOG.error("preload() chunk failed", ee.getCause());
+                    continue;
+                } // try/catch
+                contentCache.putAll(batch);
+                count += batch.size();
+                if (progress!=null) {
+                    progress.accept(count, total);
+                } // if
+                LOG.debug("preload() {}/{}", count, total);
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            LOG.error("preload() interrupted after {} objects", count);
+        } finally {
+            executor.shutdownNow();
+            // running tasks still use their connections - so wait for them before closing
+            boolean interrupted = Thread.interrupted();
+            while (!executor.isTerminated()) {
+                try {
+                    executor.awaitTermination(1, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                } // try/catch
+            } // while
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            } // if
+            for (Connection c : connections) {
+                try {
+                    c.close();
+                } catch (SQLException se) {
+                    LOG.error("preload() error closing connection", se);
+                } // try/catch
+            } // for
+        } // try/finally
+        LOG.info("preload() {} objects loaded", count);
+        return count;
+    } // preload()
 
 
     /**
-     * supporting methods for implementing CM style access to content *
+     * Stream all objects below a folder in breadth first order.
+     * Only one folder listing is open at a time and released when the stream is closed.
+     *
+     * @param folderId id of the folder to start with - the folder itself is not part of the result
+     * @return stream of the objects below the folder
      */
+    public Stream<Content> streamSubtree(String folderId) {
+        SubtreeIterator iterator = new SubtreeIterator(this, folderId);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED|Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    } // streamSubtree()
+
+
     /**
-     * Get the properties for an object with a given type and id.
-     *
-     * The instance "id" must be of type "type" otherwise the method will fail!
+     * Publish content objects matching a typed query.
+     * The demand of the subscriber drives the batched reads from the database.
      *
-     * @param type document type of the content item to retrieve the properties map for
-     * @param id content id of the content item to retrieve the properties map for
-     * @return map mapping the property names to their respective values
+     * @param query description of the documents to look for
+     * @return publisher of the matching content objects
      */
-    protected Map<String, Object> getProperties(String type, String id) {
-        Map<String, Object> properties = new HashMap<>();
-        if ((type==null)||(type.length()==0)) {
-            // it's most likely a folder
-            return properties;
-        } // if
-        String query = "SELECT * FROM "+type+" WHERE "+VIRTUAL_PROPERTY_ID+" = "+id+" ORDER BY "+VIRTUAL_PROPERTY_VERSION+" DESC";
-        String sqlError = "getProperties() query=";
-        try (Statement baseStatement = dbConnection.createStatement(); ResultSet baseSet = baseStatement.executeQuery(query)) {
-            if (baseSet.next()) {
-                int contentId = baseSet.getInt(VIRTUAL_PROPERTY_ID);
-                int version = baseSet.getInt(VIRTUAL_PROPERTY_VERSION);
-                LOG.debug("getProperties() {}/{} :{}", contentId, version, type);
-
-                ResultSetMetaData metaData = baseSet.getMetaData();
-                for (int i = 1; i<=metaData.getColumnCount(); i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = baseSet.getObject(i);
-                    LOG.debug("getProperties() property {} = {}", columnName, value);
-                    properties.put(columnName, value);
-                } // for
-
-                // select links
-                query = "SELECT * FROM LinkLists WHERE sourcedocument = "+id+" AND sourceversion = "+version
-                        +" ORDER BY propertyname ASC, linkindex ASC";
-                Map<String, List<String>> linkLists = new HashMap<>();
-                try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query)) {
-                    while (resultSet.next()) {
-                        String propertyName = resultSet.getString("propertyname");
-                        String targetId = resultSet.getString("targetdocument");
-                        int linkIndex = resultSet.getInt("linkindex");
-                        LOG.debug("getProperties() {}[{}] {}", propertyName, linkIndex, targetId);
-                        List<String> ids = linkLists.get(propertyName);
-                        if (ids==null) {
-                            ids = new ArrayList<>();
-                            linkLists.put(propertyName, ids);
-                        } // if
-                        ids.add(linkIndex, targetId);
-                    } // while
-                } catch (SQLException se) {
-                    LOG.error(sqlError+query, se);
-                } // try/catch
-                for (Entry<String, List<String>> entry : linkLists.entrySet()) {
-                    properties.put(entry.getKey(), new LazyContentList(this, entry.getValue()));
-                } // for
+    public Flow.Publisher<Content> publishContents(CoconatQuery query) {
+        return new ContentPublisher(() -> streamContents(query));
+    } // publishContents()
 
-                // select blobs
-                query = "SELECT * FROM Blobs WHERE documentid = "+id+" AND documentversion = "+version+" ORDER BY propertyname ASC";
-                try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query)) {
-                    while (resultSet.next()) {
-                        String propertyName = resultSet.getString("propertyname");
-                        int blobId = resultSet.getInt("target");
 
-                        query = "SELECT * FROM BlobData WHERE id = "+blobId;
-                        try (Statement st = dbConnection.createStatement(); ResultSet blobSet = st.executeQuery(query)) {
-                            if (blobSet.next()) {
-                                String mimeType = blobSet.getString("mimetype");
-                                byte[] data = blobSet.getBytes("data");
-                                long len = blobSet.getLong("len");
-                                properties.put(propertyName, createBlob(id, propertyName, mimeType, len, data));
-                                LOG.debug("getProperties() {} blob bytes {} ({})", propertyName, data.length, len);
-                            } // if
-                        } catch (SQLException se) {
-                            LOG.error(sqlError+query, se);
-                        } // try/catch
-                    } // while
-                } catch (SQLException se) {
-                    LOG.error(sqlError+query, se);
-                } // try/catch
+    /**
+     * Publish the objects in a folder optionally restricted to a certain type.
+     *
+     * @param parentId id of the folder
+     * @param type document type name the children must fulfill or null
+     * @return publisher of the objects in the folder
+     */
+    public Flow.Publisher<Content> publishChildren(String parentId, String type) {
+        return new ContentPublisher(() -> streamChildren(parentId, type));
+    } // publishChildren()
 
-                // select xml
-                query = "SELECT * FROM Texts WHERE documentid = "+id+" AND documentversion = "+version+" ORDER BY propertyname ASC";
-                try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query)) {
-                    while (resultSet.next()) {
-                        String propertyName = resultSet.getString("propertyname");
-                        int target = resultSet.getInt("target");
-                        // int segment = resultSet.getInt("segment");
 
-                        StringBuilder text = new StringBuilder(256);
-                        query = "SELECT * FROM SgmlText WHERE id = "+target;
-                        try (Statement st = dbConnection.createStatement(); ResultSet textSet = st.executeQuery(query)) {
-                            while (textSet.next()) {
-                                String xmlText = textSet.getString("text");
-                                text.append(xmlText);
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.debug("getBean() {} {} {} {}", propertyName, textSet.getInt("id"), textSet.getInt("segmentno"), xmlText);
-                                } // if
-                            } // if
-                        } catch (SQLException se) {
-                            LOG.error(sqlError+query, se);
-                        } // try/catch
-                        LOG.debug("getProperties() {} text={}", propertyName, text);
+    /**
+     * Publish all objects below a folder in breadth first order.
+     *
+     * @param folderId id of the folder to start with
+     * @return publisher of the objects below the folder
+     */
+    public Flow.Publisher<Content> publishSubtree(String folderId) {
+        return new ContentPublisher(() -> streamSubtree(folderId));
+    } // publishSubtree()
 
-                        query = "SELECT * FROM SgmlData WHERE id = "+target;
-                        StringBuilder data = new StringBuilder(256);
-                        try (Statement sd = dbConnection.createStatement(); ResultSet dataSet = sd.executeQuery(query)) {
-                            while (dataSet.next()) {
-                                String xmlData = dataSet.getString("data");
-                                data.append(xmlData);
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.debug("getProperties() {} {} {} {}", propertyName, dataSet.getInt("id"), dataSet.getInt("segmentno"), xmlData);
-                                } // if
-                            } // if
-                        } catch (SQLException se) {
-                            LOG.error(sqlError+query, se);
-                        } // try/catch
-                        LOG.debug("getProperties() {} data={}", propertyName, data);
 
-                        try {
-                            properties.put(propertyName, CoconatTextConverter.convert(text, data));
-                        } catch (Exception e) {
-                            LOG.error("getProperties() ignoring richtext", e);
-                            properties.put(propertyName, text.toString());
-                        } // try/catch
-                    } // while
-                } catch (SQLException se) {
-                    LOG.error(sqlError+query, se);
-                } // try/catch
-            } // if
-        } catch (SQLException se) {
-            LOG.error(sqlError+query, se);
-        } // try/catch
-        return properties;
-    } // getProperties()
+    /**
+     * Stream the IDs of all objects - folders and documents - in the repository.
+     *
+     * @return stream of all IDs in ascending order
+     */
+    public Stream<String> streamResourceIds() {
+        IdCursor cursor = openCursor("SELECT "+VIRTUAL_PROPERTY_ID+" FROM Resources ORDER BY "+VIRTUAL_PROPERTY_ID+" ASC", new ArrayList<>());
+        return stream(cursor, cursor);
+    } // streamResourceIds()
 
 
     /**
-     * Get document type for a given content object.
+     * Get the smallest and the largest ID of all objects in the repository.
      *
-     * @param id ID of the object to get the document type for
-     * @return document type name or null
+     * @param connection database connection to use
+     * @return array holding the smallest and the largest ID - or null for an empty repository
+     * @throws SQLException in case of database errors
      */
-    public String getType(String id) {
-        String type = null;
-        String query = SELECT_FROM_RESOURCES_CLAUSE+VIRTUAL_PROPERTY_ID+" = '"+id+"'";
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query)) {
+    int[] getIdRange(Connection connection) throws SQLException {
+        String query = "SELECT MIN("+VIRTUAL_PROPERTY_ID+"), MAX("+VIRTUAL_PROPERTY_ID+") FROM Resources";
+        try (Statement s = createStatement(connection); ResultSet resultSet = s.executeQuery(query)) {
             if (resultSet.next()) {
-                type = resultSet.getString(VIRTUAL_PROPERTY_TYPE);
-                if (LOG.isDebugEnabled()) {
-                    int contentId = resultSet.getInt(VIRTUAL_PROPERTY_ID);
-                    LOG.debug("getType() {}: {} ", contentId, type);
-                } // if
-                if (type==null) {
-                    type = ""; // Folder indication
-                } // if
+                int min = resultSet.getInt(1);
+                boolean empty = resultSet.wasNull();
+                return empty ? null : new int[]{min, resultSet.getInt(2)};
             } // if
-        } catch (SQLException se) {
-            LOG.error("getType()", se);
-        } // try/catch
-        return type;
-    } // getType()
+        } // try
+        return null;
+    } // getIdRange()
 
 
     /**
-     * Get ID for a content object described by its path in the repository.
+     * Open a cursor over the IDs of all documents - not folders - in a range of IDs.
+     * The cursor uses a connection of its own, so the documents can be loaded over another connection while the
+     * cursor is open.
      *
-     * @param path path of the object to look for
-     * @return ID of the object described by the path or at least "1" for the root folder
+     * @param from smallest ID of the range
+     * @param to first ID not part of the range anymore
+     * @return cursor over the IDs in ascending order or null in case of errors
      */
-    public String getChildId(String path) {
-        try {
-            String[] arcs = path.split("/");
-            String currentFolder = "1"; // root
-            for (String folder : arcs) {
-                LOG.info("getChildId() lookup up {} in id {}", folder, currentFolder);
-                if (folder.length()>0) {
-                    currentFolder = getChildId(folder, currentFolder);
-                } // if
-            } // for
-            return currentFolder;
-        } catch (RuntimeException se) {
-            LOG.error("getChildId()", se);
-        } // try/catch
-        return null;
-    } // getChildId()
+    IdCursor openDocumentCursor(int from, int to) {
+        String query = "SELECT "+VIRTUAL_PROPERTY_ID+" FROM Resources WHERE "+VIRTUAL_PROPERTY_ID+" >= ? AND "
+                +VIRTUAL_PROPERTY_ID+" < ? AND "+VIRTUAL_PROPERTY_TYPE+" IS NOT NULL ORDER BY "+VIRTUAL_PROPERTY_ID+" ASC";
+        return openCursor(query, List.of(from, to));
+    } // openDocumentCursor()
 
 
     /**
-     * Get the ID of the parent folder for a given content object.
+     * Bulk load objects through a given connection bypassing the content cache.
      *
-     * @param childId ID of the child to find the parent for
-     * @return ID of the parent - or null
+     * @param connection database connection to use
+     * @param ids IDs of the objects to load
+     * @return map of content objects for the IDs found
+     * @throws SQLException if any of the queries fails - so that no partially loaded objects are returned
      */
-    public String getParentId(String childId) {
-        String id = null;
-        String query = SELECT_FROM_RESOURCES_CLAUSE+VIRTUAL_PROPERTY_ID+" = "+childId;
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query)) {
-            if (resultSet.next()) {
-                id = ""+resultSet.getInt(VIRTUAL_PROPERTY_FOLDER_ID);
-                LOG.debug("getParentId() {}: {}", childId, id);
-            } // if
-        } catch (SQLException se) {
-            LOG.error("getParentId() "+query, se);
-        } // try/catch
-        return id;
-    } // getParentId()
+    Map<String, Content> getContents(Connection connection, List<String> ids) throws SQLException {
+        Map<String, Content> result = new HashMap<>();
+        for (int i = 0; i<ids.size(); i += MAX_IN_LIST) {
+            loadContents(connection, ids.subList(i, Math.min(i+MAX_IN_LIST, ids.size())), result);
+        } // for
+        return result;
+    } // getContents()
 
 
     /**
-     * List IDs of documents fulfilling certain criteria.
+     * Get the placement in the folder tree for a number of objects at once.
      *
-     * @param typeName exact document type name of the document to look for - no subtypes
-     * @param optionalQuery SQL based where clause part to be used
-     * @param orderProperty name of the property to sort result list
-     * @param ascending true if sorting should be ascending - false otherwise
-     * @return sorted list of IDs of matching content objects
+     * @param ids IDs of the objects
+     * @return map of resource descriptions for the IDs found
      */
-    public List<String> listIds(String typeName, String optionalQuery, String orderProperty, Boolean ascending) {
-        List<String> ids = new ArrayList<>();
-        @SuppressWarnings("PMD.ConsecutiveLiteralAppends") // Enhance readability using more than one line
-        StringBuilder query = new StringBuilder(128).append("SELECT ").append(VIRTUAL_PROPERTY_ID);
-        query.append(" FROM Resources WHERE ").append(VIRTUAL_PROPERTY_TYPE).append(" = '").append(typeName).append("' ");
-        if (optionalQuery!=null) {
-            query.append(optionalQuery);
-        } // if
-        if (orderProperty!=null) {
-            String asc = (ascending==null) ? "ASC" : (ascending ? "ASC" : "DESC");
-            String order = orderProperty+" "+asc;
-            query.append(" ORDER BY ");
-            query.append(order);
-        } // if
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query.toString())) {
-            while (resultSet.next()) {
-                int contentId = resultSet.getInt(VIRTUAL_PROPERTY_ID);
-                ids.add(""+contentId);
-                LOG.debug("getBean() {}", contentId);
-            } // while
-        } catch (SQLException se) {
-            LOG.error("listIds() "+query, se);
-        } // try/catch
-        return ids;
-    } // listIds()
+    public Map<String, CoconatResource> getResources(Collection<String> ids) {
+        Map<String, CoconatResource> result = new LinkedHashMap<>();
+        String prefix = "SELECT "+VIRTUAL_PROPERTY_ID+", "+VIRTUAL_PROPERTY_FOLDER_ID+", "+VIRTUAL_PROPERTY_NAME+", "
+                +VIRTUAL_PROPERTY_TYPE+" FROM Resources WHERE "+VIRTUAL_PROPERTY_ID+" IN ";
+        queryIn(prefix, " ORDER BY "+VIRTUAL_PROPERTY_ID+" ASC", toIntegers(new LinkedHashSet<>(ids)), resultSet -> {
+            String id = ""+resultSet.getInt(1);
+            int parentId = resultSet.getInt(2);
+            String parent = resultSet.wasNull() ? null : ""+parentId;
+            String type = resultSet.getString(4);
+            result.put(id, new CoconatResource(id, parent, resultSet.getString(3), type==null ? "" : type));
+        });
+        return result;
+    } // getResources()
 
 
     /**
@@ -455,12 +2270,18 @@ public class CoconatContentRepository implements Repository {
      * @return id of the object or null
      */
     public String getChildId(String name, String parentId) {
+        String key = "child:"+parentId+"/"+name;
+        if ((negativeCache!=null)&&negativeCache.isMissing(key)) {
+            return null;
+        } // if
         String id = null;
         String q = SELECT_FROM_RESOURCES_CLAUSE+VIRTUAL_PROPERTY_FOLDER_ID+" = "+parentId+" AND "+VIRTUAL_PROPERTY_NAME+" = '"+name+"'";
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(q)) {
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(q)) {
             if (resultSet.next()) {
                 id = ""+resultSet.getInt(VIRTUAL_PROPERTY_ID);
                 LOG.debug("getChildId() {}/{}: {}", parentId, name, id);
+            } else if (negativeCache!=null) {
+                negativeCache.addMissing(key);
             } // if
         } catch (SQLException se) {
             LOG.error("getChildId() "+q, se);
@@ -478,6 +2299,34 @@ public class CoconatContentRepository implements Repository {
      * @return set of IDs of the objects in the folder matching the pattern
      */
     public Set<String> getChildrenIds(String parentId, String type, String pattern) {
+        String key = QueryResultCache.key("children", parentId, type, pattern);
+        QueryResultCache cache = queryCache;
+        List<String> ids = (cache==null) ? null : cache.get(key);
+        if (ids==null) {
+            // only the loading thread stores the result with the generation from before its query
+            ids = listLoads.load(key, () -> {
+                long generation = (cache==null) ? 0 : cache.getGeneration();
+                Set<String> children = queryChildrenIds(parentId, type, pattern);
+                if (children==null) {
+                    return new ArrayList<String>();
+                } // if
+                List<String> result = new ArrayList<>(children);
+                if ((cache!=null)&&isInTime()) {
+                    cache.put(key, result, type, parentId, generation);
+                } // if
+                return result;
+            }, this::isInTime);
+        } // if
+        return new HashSet<>(ids);
+    } // getChildrenIds()
+
+
+    /**
+     * Query the children of a folder.
+     *
+     * @return set of IDs or null if the query failed - so that no incomplete result gets cached
+     */
+    private Set<String> queryChildrenIds(String parentId, String type, String pattern) {
         LOG.info("getChildrenIds() parentId={} type={} pattern={}", parentId, type, pattern);
         Pattern p = null;
         if (pattern!=null) {
@@ -489,7 +2338,7 @@ public class CoconatContentRepository implements Repository {
         if (type!=null) {
             query.append(" AND ").append(VIRTUAL_PROPERTY_TYPE).append(" = '").append(type).append('\'');
         } // if
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query.toString())) {
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query.toString())) {
             while (resultSet.next()) {
                 String id = ""+resultSet.getInt(VIRTUAL_PROPERTY_ID);
                 String name = resultSet.getString(VIRTUAL_PROPERTY_NAME);
@@ -504,10 +2353,11 @@ public class CoconatContentRepository implements Repository {
                 } // if
             } // if
         } catch (SQLException se) {
-            LOG.error("getChildrenIds() "+query, se);
+            LOG.error("queryChildrenIds() "+query, se);
+            return null;
         } // try/catch
         return result;
-    } // getChildrenIds()
+    } // queryChildrenIds()
 
 
     /**
@@ -561,7 +2411,7 @@ public class CoconatContentRepository implements Repository {
         if (property!=null) {
             query.append(" AND propertyname = '").append(property).append('\'');
         } // if
-        try (Statement s = dbConnection.createStatement(); ResultSet resultSet = s.executeQuery(query.toString())) {
+        try (Statement s = createStatement(dbConnection); ResultSet resultSet = s.executeQuery(query.toString())) {
             while (resultSet.next()) {
                 String sourceId = ""+resultSet.getInt("sourcedocument");
                 String sourceVersion = ""+resultSet.getInt("sourceversion");
@@ -585,6 +2435,57 @@ public class CoconatContentRepository implements Repository {
     } // getReferrerIds()
 
 
+    /**
+     * Get the name of the property holding the link targets of a richtext property.
+     * The property is a link list and only present if the text contains internal links. Like the internal columns
+     * its name ends with an underscore.
+     *
+     * @param propertyName name of the richtext property
+     * @return name of the link list property
+     */
+    public static String getLinksPropertyName(String propertyName) {
+        return propertyName+LINKS_SUFFIX;
+    } // getLinksPropertyName()
+
+
+    private void putLinkIds(Map<String, Object> properties, String propertyName, Collection<String> linkIds) {
+        if (!linkIds.isEmpty()) {
+            properties.put(getLinksPropertyName(propertyName), new LazyContentList(this, new ArrayList<>(linkIds)));
+        } // if
+    } // putLinkIds()
+
+
+    /**
+     * Get the IDs of all objects linked from the richtext properties of some content objects.
+     *
+     * @param contents content objects - e.g. all objects rendered on a page
+     * @return distinct IDs of the link targets
+     */
+    public Set<String> getRichtextLinkIds(Collection<? extends Content> contents) {
+        Set<String> result = new LinkedHashSet<>();
+        for (Content content : contents) {
+            for (Entry<String, Object> entry : content.entrySet()) {
+                if (entry.getKey().endsWith(LINKS_SUFFIX)&&(entry.getValue() instanceof LazyContentList)) {
+                    result.addAll(((LazyContentList) entry.getValue()).getIds());
+                } // if
+            } // for
+        } // for
+        return result;
+    } // getRichtextLinkIds()
+
+
+    /**
+     * Load all objects linked from the richtext properties of some content objects with one bulk call, so that
+     * rendering the texts afterwards needs no further database access - given a content cache is set.
+     *
+     * @param contents content objects - e.g. all objects rendered on a page
+     * @return map of the loaded link targets by ID
+     */
+    public Map<String, Content> loadRichtextLinks(Collection<? extends Content> contents) {
+        return getContents(getRichtextLinkIds(contents));
+    } // loadRichtextLinks()
+
+
     /**
      * Create a transient blob object from content instance.
      *
@@ -600,6 +2501,29 @@ public class CoconatContentRepository implements Repository {
     } // createBlob()
 
 
+    /**
+     * Load the data of a blob of the latest version of a content object.
+     * Used for blobs kept as references only - e.g. by off-heap caches.
+     *
+     * @param id id of the content
+     * @param propertyName name of the property to find the blob in
+     * @return bytes of the blob or null if the blob cannot be found
+     */
+    public byte[] getBlobData(String id, String propertyName) {
+        String query = "SELECT d.data FROM Blobs b, BlobData d WHERE b.target = d.id AND b.documentid = ? AND b.propertyname = ?"
+                +" ORDER BY b.documentversion DESC";
+        try (PreparedStatement s = prepareStatement(query, List.of(Integer.valueOf(id), propertyName))) {
+            s.setMaxRows(1);
+            try (ResultSet resultSet = s.executeQuery()) {
+                return resultSet.next() ? resultSet.getBytes(1) : null;
+            } // try
+        } catch (SQLException se) {
+            LOG.error("getBlobData() "+query, se);
+        } // try/catch
+        return null;
+    } // getBlobData()
+
+
     /**
      * Create a content instance for the given id and type with the given properties.
      *
@@ -609,7 +2533,7 @@ public class CoconatContentRepository implements Repository {
      * @return content instance - may not be null
      */
     protected Content createContent(String id, String type, Map<String, Object> properties) {
-        return new CoconatContent(id, type, properties);
+        return (contentFactory==null) ? new CoconatContent(id, type, properties) : contentFactory.create(id, type, properties);
     } // createContent()
 
 
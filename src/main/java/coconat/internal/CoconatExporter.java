@@ -0,0 +1,443 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Blob;
+import coconat.Content;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Export of the latest version of all documents of a repository to JSON Lines files.
+ *
+ * The ID space is split into fixed ranges. Each range is read by one of several producer threads with its own
+ * database connection and batched bulk loads. The resulting lines are passed through a bounded queue to the
+ * calling thread which writes one file per range. A file only gets its final name when its range is complete, so
+ * an interrupted export can be resumed and skips all ranges already written.
+ */
+public class CoconatExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoconatExporter.class);
+
+    private final CoconatContentRepository repository;
+
+    private int partitionSize = 10000;
+
+    private int parallelism = 4;
+
+    private int queueCapacity = 64;
+
+    private boolean compress;
+
+
+    /**
+     * Lines of a partition passed from the producers to the writer.
+     */
+    private static final class Chunk {
+
+        private final long partition;
+
+        private final List<String> lines;
+
+        private final boolean last;
+
+        private final Exception error;
+
+
+        Chunk(long partition, List<String> lines, boolean last, Exception error) {
+            this.partition = partition;
+            this.lines = lines;
+            this.last = last;
+            this.error = error;
+        }
+
+    } // Chunk
+
+
+    /**
+     * Create an exporter for a repository.
+     *
+     * @param repository repository to export the documents of
+     */
+    public CoconatExporter(CoconatContentRepository repository) {
+        this.repository = repository;
+    }
+
+
+    /**
+     * Get the width of the ID ranges each written to one file.
+     *
+     * @return number of IDs in each range
+     */
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+
+
+    /**
+     * Set the width of the ID ranges each written to one file.
+     * Resuming an export only works with the same partition size.
+     *
+     * @param partitionSize number of IDs in each range
+     */
+    public void setPartitionSize(int partitionSize) {
+        this.partitionSize = partitionSize;
+    }
+
+
+    /**
+     * Get the number of producer threads each using a separate database connection.
+     *
+     * @return number of threads reading from the database
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+
+    /**
+     * Set the number of producer threads each using a separate database connection.
+     *
+     * @param parallelism number of threads reading from the database
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * Get the number of batches which may wait for the writer before the producers are blocked.
+     *
+     * @return capacity of the queue between producers and writer
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+
+    /**
+     * Set the number of batches which may wait for the writer before the producers are blocked.
+     *
+     * @param queueCapacity capacity of the queue between producers and writer
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+
+    /**
+     * Tell if the files are gzip compressed.
+     *
+     * @return true if .jsonl.gz files are written instead of plain .jsonl files
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+
+    /**
+     * Set if the files should be gzip compressed.
+     *
+     * @param compress true to write .jsonl.gz files instead of plain .jsonl files
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+
+    /**
+     * Get the file name for the partition starting with a given ID.
+     *
+     * @param partition first ID of the range
+     * @return name of the file for the range
+     */
+    public String getFileName(long partition) {
+        return String.format("part-%010d.jsonl", partition)+(compress ? ".gz" : "");
+    }
+
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i<value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c<0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    } // if
+            } // switch
+        } // for
+        json.append('"');
+    } // appendString()
+
+
+    private static void appendValue(StringBuilder json, Object value) {
+        if (value==null) {
+            json.append("null");
+        } else if ((value instanceof Number)||(value instanceof Boolean)) {
+            json.append(value);
+        } else if (value instanceof Timestamp) {
+            appendString(json, ((Timestamp) value).toInstant().toString());
+        } else if (value instanceof Date) {
+            appendString(json, Instant.ofEpochMilli(((Date) value).getTime()).toString());
+        } else if (value instanceof LazyContentList) {
+            json.append('[');
+            String separator = "";
+            for (String id : ((LazyContentList) value).getIds()) {
+                json.append(separator);
+                appendString(json, id);
+                separator = ",";
+            } // for
+            json.append(']');
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            json.append("{\"mimeType\":");
+            appendString(json, blob.getMimeType());
+            json.append(",\"len\":").append(blob.getLen()).append('}');
+        } else {
+            appendString(json, value.toString());
+        } // if
+    } // appendValue()
+
+
+    /**
+     * Convert a content object to a single line JSON object.
+     * Richtext properties are already converted to XML strings when loading, link lists are given as arrays of IDs,
+     * and blobs only by their mime type and length.
+     *
+     * @param content content object to convert
+     * @param skip properties not to write
+     * @return JSON representation of the object without line breaks
+     */
+    static String toJson(CoconatContent content, Map<String, Object> skip) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"id\":");
+        appendString(json, content.getId());
+        json.append(",\"type\":");
+        appendString(json, content.getDocumentType());
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            if (!skip.containsKey(entry.getKey())) {
+                json.append(',');
+                appendString(json, entry.getKey());
+                json.append(':');
+                appendValue(json, entry.getValue());
+            } // if
+        } // for
+        return json.append('}').toString();
+    } // toJson()
+
+
+    private void produce(Connection connection, long partition, BlockingQueue<Chunk> queue) throws InterruptedException, SQLException {
+        Map<String, Object> skip = repository.getAdditionalProperties();
+        int to = (int) Math.min(partition+partitionSize, Integer.MAX_VALUE);
+        try (IdCursor cursor = repository.openDocumentCursor((int) partition, to)) {
+            if (cursor==null) {
+                throw new IllegalStateException("cannot list partition "+partition);
+            } // if
+            List<String> batch = new ArrayList<>();
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if ((batch.size()>=repository.getBatchSize())||!cursor.hasNext()) {
+                    Map<String, Content> contents = repository.getContents(connection, batch);
+                    List<String> lines = new ArrayList<>(batch.size());
+                    for (String id : batch) {
+                        Content content = contents.get(id);
+                        if (content==null) {
+                            // e.g. deleted since listing - a later run will export the partition consistently
+                            throw new SQLException("document "+id+" of partition "+partition+" not loaded");
+                        } // if
+                        lines.add(toJson((CoconatContent) content, skip));
+                    } // for
+                    queue.put(new Chunk(partition, lines, false, null));
+                    batch = new ArrayList<>();
+                } // if
+            } // while
+            if (cursor.getFailure()!=null) {
+                throw cursor.getFailure();
+            } // if
+            queue.put(new Chunk(partition, Collections.emptyList(), true, null));
+        } // try
+    } // produce()
+
+
+    private Writer openWriter(Path file) throws IOException {
+        OutputStream os = Files.newOutputStream(file);
+        if (compress) {
+            os = new GZIPOutputStream(os, 65536);
+        } // if
+        return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 65536);
+    } // openWriter()
+
+
+    /**
+     * Export all documents of the repository to a directory.
+     * Partitions with an existing file in the directory are skipped.
+     *
+     * @param directory directory to write the files to
+     * @return number of documents written in this run
+     * @throws IOException in case of write errors or if partitions could not be read - a later call may resume
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    public long export(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        List<Long> partitions = new ArrayList<>();
+        List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+        try {
+            Connection connection = repository.openConnection();
+            connections.add(connection);
+            int[] range = repository.getIdRange(connection);
+            for (long p = range==null ? 0 : range[0]-(range[0]%partitionSize); (range!=null)&&(p<=range[1]); p += partitionSize) {
+                if (Files.exists(directory.resolve(getFileName(p)))) {
+                    LOG.debug("export() skipping completed partition {}", p);
+                } else {
+                    partitions.add(p);
+                } // if
+            } // for
+        } catch (SQLException se) {
+            throw new IOException("cannot determine partitions", se);
+        } // try/catch
+        LOG.info("export() {} partitions to write to {}", partitions.size(), directory);
+
+        ThreadLocal<Connection> connection = ThreadLocal.withInitial(() -> {
+            try {
+                Connection c = repository.openConnection();
+                connections.add(c);
+                return c;
+            } catch (SQLException se) {
+                throw new IllegalStateException("cannot open connection for export", se);
+            } // try/catch
+        });
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        Map<Long, Writer> writers = new HashMap<>();
+        Map<Long, Long> counts = new HashMap<>();
+        List<Long> failed = new ArrayList<>();
+        long total = 0;
+        long start = System.currentTimeMillis();
+        try {
+            for (Long partition : partitions) {
+                executor.execute(() -> {
+                    try {
+                        try {
+                            produce(connection.get(), partition, queue);
+                        } catch (RuntimeException|SQLException e) {
+                            queue.put(new Chunk(partition, Collections.emptyList(), true, e));
+                        } // try/catch
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    } // try/catch
+                });
+            } // for
+            for (int open = partitions.size(); open>0;) {
+                Chunk chunk = queue.take();
+                Path temp = directory.resolve(getFileName(chunk.partition)+".tmp");
+                Writer writer = writers.get(chunk.partition);
+                if (writer==null) {
+                    writer = openWriter(temp);
+                    writers.put(chunk.partition, writer);
+                } // if
+                for (String line : chunk.lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                } // for
+                long count = counts.getOrDefault(chunk.partition, 0L)+chunk.lines.size();
+                counts.put(chunk.partition, count);
+                total += chunk.lines.size();
+                if (chunk.last) {
+                    open--;
+                    writers.remove(chunk.partition).close();
+                    if (chunk.error==null) {
+                        Files.move(temp, directory.resolve(getFileName(chunk.partition)), StandardCopyOption.ATOMIC_MOVE);
+                        long millis = Math.max(1, System.currentTimeMillis()-start);
+                        LOG.info("export() partition {} with {} documents done - {} documents/s", chunk.partition, count, total*1000/millis);
+                    } else {
+                        LOG.error("export() partition "+chunk.partition+" failed", chunk.error);
+                        Files.delete(temp);
+                        failed.add(chunk.partition);
+                        total -= count;
+                    } // if
+                } // if
+            } // for
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrupted", ie);
+        } finally {
+            executor.shutdownNow();
+            for (Writer writer : writers.values()) {
+                writer.close();
+            } // for
+            for (Connection c : connections) {
+                try {
+                    c.close();
+                } catch (SQLException se) {
+                    LOG.error("export() error closing connection", se);
+                } // try/catch
+            } // for
+        } // try/finally
+        long millis = Math.max(1, System.currentTimeMillis()-start);
+        LOG.info("export() {} documents in {}ms - {} documents/s", total, millis, total*1000/millis);
+        if (!failed.isEmpty()) {
+            throw new IOException("export incomplete - failed partitions "+failed);
+        } // if
+        return total;
+    } // export()
+
+} // CoconatExporter
@@ -0,0 +1,376 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Typed description of a content listing.
+ *
+ * Instances are compiled by the CoconatContentRepository to a parameterised SQL statement joining the Resources table
+ * with the latest version in the document type tables, so that filtering and ordering take place in the database.
+ * Values are never pasted into the statement but always passed as bind variables. Paging is not part of the
+ * statement, since the syntax differs between databases, but applied through the maximum number of rows of the
+ * statement and by skipping the leading rows.
+ */
+public class CoconatQuery {
+
+    /**
+     * Comparison operators available for property conditions.
+     */
+    public enum Operator {
+
+        EQUAL("="), NOT_EQUAL("<>"), LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">="), LIKE("LIKE");
+
+        private final String sql;
+
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+
+        public String getSql() {
+            return sql;
+        }
+
+    } // Operator
+
+
+    /**
+     * A single condition on a column of the document type tables.
+     */
+    private static final class Condition {
+
+        private final String property;
+
+        private final Operator operator;
+
+        private final Object value;
+
+
+        Condition(String property, Operator operator, Object value) {
+            this.property = property;
+            this.operator = operator;
+            this.value = value;
+        }
+
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Condition)) {
+                return false;
+            } // if
+            Condition c = (Condition) o;
+            return property.equals(c.property)&&operator==c.operator&&Objects.equals(value, c.value);
+        } // equals()
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(property, operator, value);
+        }
+
+
+        @Override
+        public String toString() {
+            return property+" "+operator.getSql()+" "+value;
+        }
+
+    } // Condition
+
+    private final String type;
+
+    private boolean includeSubtypes = true;
+
+    private String folderId;
+
+    private boolean subtree;
+
+    private String namePattern;
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    private String orderProperty;
+
+    private boolean ascending = true;
+
+    private int offset;
+
+    private int limit = -1;
+
+
+    /**
+     * Create a query for documents of a given type including its subtypes.
+     *
+     * @param type name of the document type to look for
+     */
+    public CoconatQuery(String type) {
+        this.type = type;
+    } // CoconatQuery()
+
+
+    public String getType() {
+        return type;
+    }
+
+
+    public boolean isIncludeSubtypes() {
+        return includeSubtypes;
+    }
+
+
+    /**
+     * Restrict the query to the exact document type given.
+     *
+     * @return this query
+     */
+    public CoconatQuery exactType() {
+        includeSubtypes = false;
+        return this;
+    } // exactType()
+
+
+    private static String checkFolderId(String folderId) {
+        try {
+            Integer.parseInt(folderId);
+            return folderId;
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("folder id must be numeric: '"+folderId+"'", nfe);
+        } // try/catch
+    } // checkFolderId()
+
+
+    /**
+     * Restrict the query to the direct children of a folder.
+     *
+     * @param folderId id of the folder
+     * @return this query
+     * @throws IllegalArgumentException if the folder id is not numeric
+     */
+    public CoconatQuery inFolder(String folderId) {
+        this.folderId = checkFolderId(folderId);
+        this.subtree = false;
+        return this;
+    } // inFolder()
+
+
+    /**
+     * Restrict the query to the whole subtree below a folder.
+     * The subtree is taken from the FolderIndex table maintained by the server.
+     *
+     * @param folderId id of the top most folder
+     * @return this query
+     * @throws IllegalArgumentException if the folder id is not numeric
+     */
+    public CoconatQuery below(String folderId) {
+        this.folderId = checkFolderId(folderId);
+        this.subtree = true;
+        return this;
+    } // below()
+
+
+    /**
+     * Restrict the query to documents with a name matching a SQL LIKE pattern.
+     *
+     * @param namePattern pattern using '%' and '_' as wildcards
+     * @return this query
+     */
+    public CoconatQuery withName(String namePattern) {
+        this.namePattern = namePattern;
+        return this;
+    } // withName()
+
+
+    /**
+     * Add a condition on a property column of the document type tables.
+     *
+     * @param property name of the property - internal columns end with an underscore
+     * @param operator comparison operator
+     * @param value value to compare the property with - passed as bind variable
+     * @return this query
+     */
+    public CoconatQuery where(String property, Operator operator, Object value) {
+        conditions.add(new Condition(property, operator, value));
+        return this;
+    } // where()
+
+
+    /**
+     * Add an equality condition on a property column of the document type tables.
+     *
+     * @param property name of the property - internal columns end with an underscore
+     * @param value value the property must be equal to
+     * @return this query
+     */
+    public CoconatQuery where(String property, Object value) {
+        return where(property, Operator.EQUAL, value);
+    } // where()
+
+
+    /**
+     * Order the result by a property of the document type tables or a column of the Resources table like name_.
+     *
+     * @param orderProperty name of the property
+     * @param ascending true if sorting should be ascending - false otherwise
+     * @return this query
+     */
+    public CoconatQuery orderBy(String orderProperty, boolean ascending) {
+        this.orderProperty = orderProperty;
+        this.ascending = ascending;
+        return this;
+    } // orderBy()
+
+
+    /**
+     * Select a page of the result list.
+     *
+     * @param offset number of leading results to skip
+     * @param limit maximum number of results - negative values for no limit
+     * @return this query
+     */
+    public CoconatQuery page(int offset, int limit) {
+        this.offset = offset;
+        this.limit = limit;
+        return this;
+    } // page()
+
+
+    public int getOffset() {
+        return offset;
+    }
+
+
+    public int getLimit() {
+        return limit;
+    }
+
+
+    /**
+     * Get the number of rows to fetch for the page including the skipped leading rows.
+     *
+     * @return maximum number of rows - 0 for no limit as used by Statement.setMaxRows()
+     */
+    int getMaxRows() {
+        return (limit<0) ? 0 : (int) Math.min(Integer.MAX_VALUE, (long) offset+limit);
+    } // getMaxRows()
+
+
+    private static boolean isResourceColumn(String property) {
+        return "name_".equalsIgnoreCase(property)||"folderid_".equalsIgnoreCase(property)
+                ||"creationdate_".equalsIgnoreCase(property)||"modificationdate_".equalsIgnoreCase(property);
+    } // isResourceColumn()
+
+
+    private static String column(String property, String quote) {
+        if (isResourceColumn(property)) {
+            return "r."+property;
+        } // if
+        // internal columns are not quoted while the user defined properties preserve their case
+        return property.endsWith("_") ? "t."+property : "t."+quote+property+quote;
+    } // column()
+
+
+    /**
+     * Compile this query to SQL.
+     * The page is not part of the statement - see getMaxRows() and getOffset().
+     *
+     * @param types names of the document type tables to search in - one union part each
+     * @param quote identifier quote string of the database
+     * @param parameters list to add the bind variable values to in statement order
+     * @return SQL select statement returning the content id as first column
+     */
+    @SuppressWarnings("PMD.ConsecutiveLiteralAppends") // Enhance readability using more than one line
+    String toSql(Collection<String> types, String quote, List<Object> parameters) {
+        StringBuilder query = new StringBuilder(256);
+        for (String t : types) {
+            if (query.length()>0) {
+                query.append(" UNION ALL ");
+            } // if
+            query.append("SELECT r.id_");
+            if (orderProperty!=null) {
+                query.append(", ").append(column(orderProperty, quote));
+            } // if
+            query.append(" FROM Resources r, ").append(t).append(" t WHERE r.id_ = t.id_ AND r.documenttype_ = ?");
+            parameters.add(t);
+            query.append(" AND t.version_ = (SELECT MAX(v.version_) FROM ").append(t).append(" v WHERE v.id_ = t.id_)");
+            if (folderId!=null) {
+                if (subtree) {
+                    query.append(" AND (r.folderid_ = ? OR r.folderid_ IN (SELECT child FROM FolderIndex WHERE parent = ?))");
+                    parameters.add(Integer.valueOf(folderId));
+                } else {
+                    query.append(" AND r.folderid_ = ?");
+                } // if
+                parameters.add(Integer.valueOf(folderId));
+            } // if
+            if (namePattern!=null) {
+                query.append(" AND r.name_ LIKE ?");
+                parameters.add(namePattern);
+            } // if
+            for (Condition condition : conditions) {
+                query.append(" AND ").append(column(condition.property, quote));
+                if (condition.value==null) {
+                    query.append(condition.operator==Operator.NOT_EQUAL ? " IS NOT NULL" : " IS NULL");
+                } else {
+                    query.append(' ').append(condition.operator.getSql()).append(" ?");
+                    parameters.add(condition.value);
+                } // if
+            } // for
+        } // for
+        // the id as last sort key keeps the order of equal values - and so the pages - stable
+        if (orderProperty==null) {
+            query.append(" ORDER BY 1");
+        } else {
+            query.append(" ORDER BY 2 ").append(ascending ? "ASC" : "DESC").append(", 1");
+        } // if
+        return query.toString();
+    } // toSql()
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CoconatQuery)) {
+            return false;
+        } // if
+        CoconatQuery q = (CoconatQuery) o;
+        return Objects.equals(type, q.type)&&includeSubtypes==q.includeSubtypes&&Objects.equals(folderId, q.folderId)
+                &&subtree==q.subtree&&Objects.equals(namePattern, q.namePattern)&&conditions.equals(q.conditions)
+                &&Objects.equals(orderProperty, q.orderProperty)&&ascending==q.ascending&&offset==q.offset&&limit==q.limit;
+    } // equals()
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, includeSubtypes, folderId, subtree, namePattern, conditions, orderProperty, ascending, offset, limit);
+    } // hashCode()
+
+
+    @Override
+    public String toString() {
+        return type+(includeSubtypes ? "*" : "")+(folderId==null ? "" : (subtree ? " below " : " in ")+folderId)
+                +(namePattern==null ? "" : " name "+namePattern)+" "+conditions
+                +(orderProperty==null ? "" : " order "+orderProperty+(ascending ? " ASC" : " DESC"))
+                +(limit<0 ? "" : " limit "+limit)+(offset>0 ? " offset "+offset : "");
+    } // toString()
+
+} // CoconatQuery
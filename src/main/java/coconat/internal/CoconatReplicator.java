@@ -0,0 +1,482 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Keeps a local replica database in sync with the tables of a Replication Live Server database.
+ *
+ * The replica holds the same tables the CoconatContentRepository reads - but only with the latest version of each
+ * document - so that a repository instance can be pointed to it for low latency reads, e.g. with an embedded file
+ * based hsqldb. The first sync copies everything, while subsequent syncs only copy the objects mentioned in the
+ * CHANGELOG and LINKCHANGELOG entries since the last sync.
+ */
+public class CoconatReplicator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoconatReplicator.class);
+
+    private static final String STATE_TABLE = "CoconatReplicaState";
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final Connection source;
+
+    private final Connection target;
+
+    private final String quote;
+
+    private final Set<String> tables = new HashSet<>();
+
+
+    /**
+     * Filter for rows to be copied.
+     */
+    private interface RowFilter {
+
+        boolean accept(ResultSet resultSet) throws SQLException;
+
+    } // RowFilter
+
+
+    /**
+     * Create a replicator between two database connections.
+     *
+     * @param source connection to the Replication Live Server database
+     * @param target connection to the replica database - tables are created as needed
+     * @throws SQLException in case the database metadata cannot be read
+     */
+    public CoconatReplicator(Connection source, Connection target) throws SQLException {
+        this.source = source;
+        this.target = target;
+        this.quote = target.getMetaData().getIdentifierQuoteString().trim();
+    } // CoconatReplicator()
+
+
+    private static String inList(int size) {
+        StringBuilder result = new StringBuilder(size*2+2).append('(');
+        for (int i = 0; i<size; i++) {
+            result.append(i>0 ? ",?" : "?");
+        } // for
+        return result.append(')').toString();
+    } // inList()
+
+
+    private static PreparedStatement prepare(Connection connection, String query, List<?> parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        for (int i = 0; i<parameters.size(); i++) {
+            statement.setObject(i+1, parameters.get(i));
+        } // for
+        return statement;
+    } // prepare()
+
+
+    private static boolean isBinary(int type) {
+        return (type==Types.BINARY)||(type==Types.VARBINARY)||(type==Types.LONGVARBINARY)||(type==Types.BLOB);
+    } // isBinary()
+
+
+    /**
+     * Map column types of the source database to a portable SQL type declaration.
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static String getTypeDeclaration(ResultSetMetaData metaData, int column) throws SQLException {
+        int type = metaData.getColumnType(column);
+        switch (type) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return "VARCHAR("+Math.max(1, metaData.getPrecision(column))+")";
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+                return "LONGVARCHAR";
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return "BOOLEAN";
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return "INTEGER";
+            case Types.BIGINT:
+                return "BIGINT";
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return "DOUBLE";
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return "DECIMAL("+metaData.getPrecision(column)+","+metaData.getScale(column)+")";
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return "TIMESTAMP";
+            default:
+                return isBinary(type) ? "LONGVARBINARY" : metaData.getColumnTypeName(column);
+        } // switch
+    } // getTypeDeclaration()
+
+
+    private void execute(String sql) throws SQLException {
+        try (Statement s = target.createStatement()) {
+            s.execute(sql);
+        } // try
+    } // execute()
+
+
+    private boolean exists(String table) {
+        try (Statement s = target.createStatement()) {
+            s.executeQuery("SELECT * FROM "+table+" WHERE 1=0").close();
+            return true;
+        } catch (SQLException se) {
+            return false;
+        } // try/catch
+    } // exists()
+
+
+    /**
+     * Get the primary key columns of a table in the source database.
+     *
+     * @return column names in key order - empty if the table has no primary key
+     */
+    private List<String> getPrimaryKey(String table) throws SQLException {
+        DatabaseMetaData metaData = source.getMetaData();
+        for (String name : new LinkedHashSet<>(List.of(table, table.toUpperCase(), table.toLowerCase()))) {
+            Map<Short, String> columns = new TreeMap<>();
+            try (ResultSet resultSet = metaData.getPrimaryKeys(null, null, name)) {
+                while (resultSet.next()) {
+                    columns.put(resultSet.getShort("KEY_SEQ"), resultSet.getString("COLUMN_NAME"));
+                } // while
+            } // try
+            if (!columns.isEmpty()) {
+                return new ArrayList<>(columns.values());
+            } // if
+        } // for
+        return List.of();
+    } // getPrimaryKey()
+
+
+    /**
+     * Create a table in the replica with the structure and the primary key of the same table in the source database
+     * if necessary.
+     *
+     * @param table name of the table
+     * @param indexColumn column to create an index for unless it leads the primary key
+     */
+    private void ensureTable(String table, String indexColumn) throws SQLException {
+        if (tables.contains(table)) {
+            return;
+        } // if
+        if (!exists(table)) {
+            StringBuilder create = new StringBuilder(256).append("CREATE TABLE ").append(table).append(" (");
+            try (Statement s = source.createStatement(); ResultSet resultSet = s.executeQuery("SELECT * FROM "+table+" WHERE 1=0")) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i<=metaData.getColumnCount(); i++) {
+                    create.append(i>1 ? ", " : "").append(quote).append(metaData.getColumnName(i)).append(quote);
+                    create.append(' ').append(getTypeDeclaration(metaData, i));
+                } // for
+            } // try
+            List<String> primaryKey = getPrimaryKey(table);
+            if (!primaryKey.isEmpty()) {
+                create.append(", PRIMARY KEY (");
+                for (int i = 0; i<primaryKey.size(); i++) {
+                    create.append(i>0 ? ", " : "").append(quote).append(primaryKey.get(i)).append(quote);
+                } // for
+                create.append(')');
+            } // if
+            create.append(')');
+            LOG.info("ensureTable() {}", create);
+            execute(create.toString());
+            if (primaryKey.isEmpty()||!primaryKey.get(0).equalsIgnoreCase(indexColumn)) {
+                execute("CREATE INDEX replica_"+table+"_"+indexColumn+" ON "+table+" ("+indexColumn+")");
+            } // if
+        } // if
+        tables.add(table);
+    } // ensureTable()
+
+
+    /**
+     * Copy the rows of a source query to a table of the replica.
+     *
+     * @return number of rows copied
+     */
+    private int copyRows(String query, List<?> parameters, String table, RowFilter filter) throws SQLException {
+        int count = 0;
+        try (PreparedStatement s = prepare(source, query, parameters); ResultSet resultSet = s.executeQuery()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columns = metaData.getColumnCount();
+            StringBuilder insert = new StringBuilder(256).append("INSERT INTO ").append(table).append(" (");
+            for (int i = 1; i<=columns; i++) {
+                insert.append(i>1 ? ", " : "").append(quote).append(metaData.getColumnName(i)).append(quote);
+            } // for
+            insert.append(") VALUES ").append(inList(columns));
+            try (PreparedStatement i = target.prepareStatement(insert.toString())) {
+                while (resultSet.next()) {
+                    if ((filter==null)||filter.accept(resultSet)) {
+                        for (int c = 1; c<=columns; c++) {
+                            int type = metaData.getColumnType(c);
+                            Object value = isBinary(type) ? resultSet.getBytes(c) : resultSet.getObject(c);
+                            if (value==null) {
+                                i.setNull(c, type);
+                            } else {
+                                i.setObject(c, value);
+                            } // if
+                        } // for
+                        i.executeUpdate();
+                        count++;
+                    } // if
+                } // while
+            } // try
+        } // try
+        return count;
+    } // copyRows()
+
+
+    private void update(String sql, List<Integer> parameters) throws SQLException {
+        try (PreparedStatement s = prepare(target, sql, parameters)) {
+            s.executeUpdate();
+        } // try
+    } // update()
+
+
+    private Map<Integer, String> getTypes(Connection connection, List<Integer> ids) throws SQLException {
+        Map<Integer, String> result = new HashMap<>();
+        String query = "SELECT id_, documenttype_ FROM Resources WHERE id_ IN "+inList(ids.size());
+        try (PreparedStatement s = prepare(connection, query, ids); ResultSet resultSet = s.executeQuery()) {
+            while (resultSet.next()) {
+                String type = resultSet.getString(2);
+                result.put(resultSet.getInt(1), type==null ? "" : type);
+            } // while
+        } // try
+        return result;
+    } // getTypes()
+
+
+    private void removeChunk(List<Integer> ids) throws SQLException {
+        String inIds = inList(ids.size());
+        for (String type : new HashSet<>(getTypes(target, ids).values())) {
+            if (type.length()>0) {
+                update("DELETE FROM "+type+" WHERE id_ IN "+inIds, ids);
+            } // if
+        } // for
+        update("DELETE FROM BlobData WHERE id IN (SELECT target FROM Blobs WHERE documentid IN "+inIds+")", ids);
+        update("DELETE FROM SgmlText WHERE id IN (SELECT target FROM Texts WHERE documentid IN "+inIds+")", ids);
+        update("DELETE FROM SgmlData WHERE id IN (SELECT target FROM Texts WHERE documentid IN "+inIds+")", ids);
+        update("DELETE FROM Blobs WHERE documentid IN "+inIds, ids);
+        update("DELETE FROM Texts WHERE documentid IN "+inIds, ids);
+        update("DELETE FROM LinkLists WHERE sourcedocument IN "+inIds, ids);
+        update("DELETE FROM Resources WHERE id_ IN "+inIds, ids);
+    } // removeChunk()
+
+
+    private int copyChunk(List<Integer> ids) throws SQLException {
+        String inIds = inList(ids.size());
+        int count = copyRows("SELECT * FROM Resources WHERE id_ IN "+inIds, ids, "Resources", null);
+        Map<Integer, Integer> versions = new HashMap<>();
+        Map<String, List<Integer>> idsByType = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : getTypes(source, ids).entrySet()) {
+            if (entry.getValue().length()>0) {
+                idsByType.computeIfAbsent(entry.getValue(), t -> new ArrayList<>()).add(entry.getKey());
+            } // if
+        } // for
+        for (Map.Entry<String, List<Integer>> entry : idsByType.entrySet()) {
+            String type = entry.getKey();
+            String query = "SELECT t.* FROM "+type+" t WHERE t.id_ IN "+inList(entry.getValue().size())
+                    +" AND t.version_ = (SELECT MAX(v.version_) FROM "+type+" v WHERE v.id_ = t.id_)";
+            copyRows(query, entry.getValue(), type, resultSet -> {
+                versions.put(resultSet.getInt("id_"), resultSet.getInt("version_"));
+                return true;
+            });
+        } // for
+        if (versions.isEmpty()) {
+            return count;
+        } // if
+        List<Integer> documentIds = new ArrayList<>(versions.keySet());
+        String inDocuments = inList(documentIds.size());
+        copyRows("SELECT * FROM LinkLists WHERE sourcedocument IN "+inDocuments, documentIds, "LinkLists",
+                resultSet -> Integer.valueOf(resultSet.getInt("sourceversion")).equals(versions.get(resultSet.getInt("sourcedocument"))));
+        List<Integer> blobs = new ArrayList<>();
+        copyRows("SELECT * FROM Blobs WHERE documentid IN "+inDocuments, documentIds, "Blobs", resultSet -> {
+            boolean latest = Integer.valueOf(resultSet.getInt("documentversion")).equals(versions.get(resultSet.getInt("documentid")));
+            if (latest) {
+                blobs.add(resultSet.getInt("target"));
+            } // if
+            return latest;
+        });
+        if (!blobs.isEmpty()) {
+            copyRows("SELECT * FROM BlobData WHERE id IN "+inList(blobs.size()), blobs, "BlobData", null);
+        } // if
+        List<Integer> texts = new ArrayList<>();
+        copyRows("SELECT * FROM Texts WHERE documentid IN "+inDocuments, documentIds, "Texts", resultSet -> {
+            boolean latest = Integer.valueOf(resultSet.getInt("documentversion")).equals(versions.get(resultSet.getInt("documentid")));
+            if (latest) {
+                texts.add(resultSet.getInt("target"));
+            } // if
+            return latest;
+        });
+        if (!texts.isEmpty()) {
+            List<Integer> targets = new ArrayList<>(new LinkedHashSet<>(texts));
+            copyRows("SELECT * FROM SgmlText WHERE id IN "+inList(targets.size()), targets, "SgmlText", null);
+            copyRows("SELECT * FROM SgmlData WHERE id IN "+inList(targets.size()), targets, "SgmlData", null);
+        } // if
+        return count;
+    } // copyChunk()
+
+
+    private void ensureTables() throws SQLException {
+        ensureTable("Resources", "folderid_");
+        ensureTable("LinkLists", "sourcedocument");
+        ensureTable("Blobs", "documentid");
+        ensureTable("BlobData", "id");
+        ensureTable("Texts", "documentid");
+        ensureTable("SgmlText", "id");
+        ensureTable("SgmlData", "id");
+        if (!exists(STATE_TABLE)) {
+            execute("CREATE TABLE "+STATE_TABLE+" (sequenceno INTEGER)");
+        } // if
+        for (String type : getIds("SELECT DISTINCT documenttype_ FROM Resources WHERE documenttype_ IS NOT NULL", List.of(), false)) {
+            if (type.length()>0) {
+                ensureTable(type, "id_");
+            } // if
+        } // for
+    } // ensureTables()
+
+
+    /**
+     * Replace the given objects in the replica with their latest version from the source.
+     * Objects no longer present in the source are removed from the replica.
+     *
+     * @param ids IDs of the objects to copy
+     * @return number of objects copied
+     * @throws SQLException in case of database errors
+     */
+    public int replicate(Collection<String> ids) throws SQLException {
+        ensureTables();
+        List<Integer> idList = new ArrayList<>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            idList.add(Integer.valueOf(id));
+        } // for
+        int count = 0;
+        for (int i = 0; i<idList.size(); i += CHUNK_SIZE) {
+            List<Integer> chunk = idList.subList(i, Math.min(i+CHUNK_SIZE, idList.size()));
+            removeChunk(chunk);
+            count += copyChunk(chunk);
+        } // for
+        return count;
+    } // replicate()
+
+
+    /**
+     * Get the sequence number of the last change log entry applied to the replica.
+     *
+     * @return sequence number or -1 if the replica has not been filled yet
+     */
+    public int getLastSequenceNo() {
+        try (Statement s = target.createStatement(); ResultSet resultSet = s.executeQuery("SELECT MAX(sequenceno) FROM "+STATE_TABLE)) {
+            if (resultSet.next()) {
+                int result = resultSet.getInt(1);
+                return resultSet.wasNull() ? -1 : result;
+            } // if
+        } catch (SQLException se) {
+            LOG.debug("getLastSequenceNo() no state yet {}", se.getMessage());
+        } // try/catch
+        return -1;
+    } // getLastSequenceNo()
+
+
+    private List<String> getIds(String query, List<?> parameters) throws SQLException {
+        return getIds(query, parameters, true);
+    } // getIds()
+
+
+    private List<String> getIds(String query, List<?> parameters, boolean numeric) throws SQLException {
+        List<String> result = new ArrayList<>();
+        try (PreparedStatement s = prepare(source, query, parameters); ResultSet resultSet = s.executeQuery()) {
+            while (resultSet.next()) {
+                String value = numeric ? ""+resultSet.getInt(1) : resultSet.getString(1);
+                if (!resultSet.wasNull()) {
+                    result.add(value);
+                } // if
+            } // while
+        } // try
+        return result;
+    } // getIds()
+
+
+    /**
+     * Bring the replica up to date.
+     *
+     * An empty replica receives a full copy of the source, otherwise the objects referenced by change log entries
+     * after the last applied sequence number are copied again. All changes of one sync are committed at once.
+     *
+     * @return number of objects copied
+     * @throws SQLException in case of database errors - the replica stays unchanged then
+     */
+    public synchronized int sync() throws SQLException {
+        // most databases commit implicitly on DDL - so the tables are created before the transaction starts
+        ensureTables();
+        boolean autoCommit = target.getAutoCommit();
+        target.setAutoCommit(false);
+        try {
+            int last = getLastSequenceNo();
+            List<String> current = getIds("SELECT MAX(sequenceno) FROM CHANGELOG", List.of());
+            int upTo = current.isEmpty() ? 0 : Integer.parseInt(current.get(0));
+            List<String> ids;
+            if (last<0) {
+                ids = getIds("SELECT id_ FROM Resources ORDER BY id_", List.of());
+            } else {
+                List<Integer> range = List.of(last, upTo);
+                ids = getIds("SELECT i1 FROM CHANGELOG WHERE sequenceno > ? AND sequenceno <= ?", range);
+                ids.addAll(getIds("SELECT target FROM LINKCHANGELOG WHERE sequenceno > ? AND sequenceno <= ?", range));
+            } // if
+            int count = replicate(ids);
+            execute("DELETE FROM "+STATE_TABLE);
+            execute("INSERT INTO "+STATE_TABLE+" (sequenceno) VALUES ("+upTo+")");
+            target.commit();
+            LOG.info("sync() {} objects copied for sequence numbers {} to {}", count, last, upTo);
+            return count;
+        } catch (SQLException|RuntimeException e) {
+            target.rollback();
+            throw e;
+        } finally {
+            target.setAutoCommit(autoCommit);
+        } // try/catch/finally
+    } // sync()
+
+} // CoconatReplicator
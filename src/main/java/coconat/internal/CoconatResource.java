@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+
+/**
+ * Placement of a content object in the folder tree as stored in the Resources table.
+ */
+public class CoconatResource {
+
+    private final String id;
+
+    private final String parentId;
+
+    private final String name;
+
+    private final String documentType;
+
+
+    /**
+     * Create a resource description.
+     *
+     * @param id ID of the content object
+     * @param parentId ID of the parent folder or null for the root folder
+     * @param name name of the object in its folder
+     * @param documentType document type name or the empty string for folders
+     */
+    public CoconatResource(String id, String parentId, String name, String documentType) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.documentType = documentType;
+    } // CoconatResource()
+
+
+    public String getId() {
+        return id;
+    }
+
+
+    public String getParentId() {
+        return parentId;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public String getDocumentType() {
+        return documentType;
+    }
+
+
+    public boolean isFolder() {
+        return documentType.isEmpty();
+    }
+
+
+    @Override
+    public String toString() {
+        return parentId+"/"+name+": "+id+" :"+documentType;
+    } // toString()
+
+} // CoconatResource
@@ -0,0 +1,231 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import coconat.Repository;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Request scoped identity map in front of a repository.
+ *
+ * Each ID is loaded at most once per session and always resolves to the same content object. Link lists of the
+ * contents resolve their elements through the session, and their targets are registered as deferred loads. The
+ * first access to any deferred ID loads all deferred IDs with one bulk call, so rendering a list of teasers costs
+ * one round trip instead of one per teaser. A session is meant to be used by one thread and discarded at the end
+ * of the request.
+ */
+public class CoconatSession implements Repository, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoconatSession.class);
+
+    private final CoconatContentRepository repository;
+
+    private final Map<String, Content> contents = new HashMap<>();
+
+    private final Map<String, String> paths = new HashMap<>();
+
+    private final Set<String> missing = new HashSet<>();
+
+    private final Set<String> deferred = new LinkedHashSet<>();
+
+    private int loads;
+
+    private boolean closed;
+
+
+    /**
+     * Start a session for a repository.
+     *
+     * @param repository repository to load the contents from
+     */
+    public CoconatSession(CoconatContentRepository repository) {
+        this.repository = repository;
+    }
+
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("session already closed");
+        } // if
+    } // checkOpen()
+
+
+    private boolean isKnown(String id) {
+        return contents.containsKey(id)||missing.contains(id);
+    } // isKnown()
+
+
+    /**
+     * Take a content object into the session.
+     * The object is copied so that objects shared with other sessions - e.g. through a content cache - are not
+     * changed when its link lists are bound to this session.
+     */
+    private Content adopt(Content content) {
+        if (!(content instanceof CoconatContent)) {
+            contents.put(content.getId(), content);
+            return content;
+        } // if
+        Content result = LazyContentList.rebind(content, this, repository);
+        for (Object value : result.values()) {
+            if (value instanceof LazyContentList) {
+                for (String target : ((LazyContentList) value).getIds()) {
+                    if (!isKnown(target)) {
+                        deferred.add(target);
+                    } // if
+                } // for
+            } // if
+        } // for
+        contents.put(result.getId(), result);
+        return result;
+    } // adopt()
+
+
+    /**
+     * Register IDs to be loaded with the next bulk load of this session.
+     *
+     * @param ids IDs of the objects needed later
+     */
+    public void defer(Collection<String> ids) {
+        checkOpen();
+        for (String id : ids) {
+            if (!isKnown(id)) {
+                deferred.add(id);
+            } // if
+        } // for
+    } // defer()
+
+
+    /**
+     * Register IDs to be loaded with the next bulk load of this session.
+     *
+     * @param ids IDs of the objects needed later
+     */
+    public void defer(String... ids) {
+        defer(Arrays.asList(ids));
+    }
+
+
+    /**
+     * Load all deferred objects with one bulk call - e.g. at the end of a template phase.
+     *
+     * @return number of objects loaded
+     */
+    public int flush() {
+        checkOpen();
+        if (deferred.isEmpty()) {
+            return 0;
+        } // if
+        Set<String> ids = new LinkedHashSet<>(deferred);
+        deferred.clear();
+        loads++;
+        Map<String, Content> loaded = repository.getContents(ids);
+        for (String id : ids) {
+            Content content = loaded.get(id);
+            if (content==null) {
+                missing.add(id);
+            } else {
+                adopt(content);
+            } // if
+        } // for
+        LOG.debug("flush() {} of {} objects loaded", loaded.size(), ids.size());
+        return loaded.size();
+    } // flush()
+
+
+    @Override
+    public Content getContent(String id) {
+        checkOpen();
+        if (id==null) {
+            return null;
+        } // if
+        Content result = contents.get(id);
+        if ((result==null)&&!missing.contains(id)) {
+            if (deferred.contains(id)) {
+                flush();
+                result = contents.get(id);
+            } else {
+                loads++;
+                Content content = repository.getContent(id);
+                if (content==null) {
+                    missing.add(id);
+                } else {
+                    result = adopt(content);
+                } // if
+            } // if
+        } // if
+        return result;
+    } // getContent()
+
+
+    @Override
+    public Content getChild(String path) {
+        checkOpen();
+        String id = paths.get(path);
+        if ((id==null)&&!paths.containsKey(path)) {
+            id = repository.getChildId(path);
+            paths.put(path, id);
+        } // if
+        return getContent(id);
+    } // getChild()
+
+
+    /**
+     * Get the number of objects held by this session.
+     *
+     * @return number of loaded objects
+     */
+    public int size() {
+        return contents.size();
+    }
+
+
+    /**
+     * Get the number of calls to the underlying repository for content objects.
+     *
+     * @return number of single and bulk loads issued by this session
+     */
+    public int getLoads() {
+        return loads;
+    }
+
+
+    /**
+     * Discard all objects of this session.
+     */
+    @Override
+    public void close() {
+        LOG.debug("close() {} objects with {} loads", contents.size(), loads);
+        contents.clear();
+        paths.clear();
+        missing.clear();
+        deferred.clear();
+        closed = true;
+    } // close()
+
+} // CoconatSession
@@ -0,0 +1,384 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Blob;
+import coconat.Content;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Export of the latest version of all objects of a repository to a compact indexed snapshot file.
+ *
+ * The file consists of the records of all objects in ascending ID order followed by an index sorted by ID, an index
+ * sorted by parent folder and name, and a fixed size trailer pointing to the two indexes. This way a reader can
+ * map the file and find any object without reading more than the trailer at startup.
+ */
+public final class CoconatSnapshot {
+
+    static final int MAGIC = 0x43434E53;
+
+    static final int FORMAT_VERSION = 2;
+
+    static final int TRAILER_SIZE = 12;
+
+    static final byte TAG_NULL = 0;
+
+    static final byte TAG_STRING = 1;
+
+    static final byte TAG_INTEGER = 2;
+
+    static final byte TAG_LONG = 3;
+
+    static final byte TAG_DOUBLE = 4;
+
+    static final byte TAG_BOOLEAN = 5;
+
+    static final byte TAG_TIMESTAMP = 6;
+
+    static final byte TAG_DECIMAL = 7;
+
+    static final byte TAG_LINKS = 8;
+
+    static final byte TAG_BLOB = 9;
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoconatSnapshot.class);
+
+
+    /**
+     * Output stream counting the bytes written in a long - unlike DataOutputStream.size() which stops at
+     * Integer.MAX_VALUE.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+
+        /**
+         * Get the current position as an offset of the file format.
+         */
+        int getOffset() throws IOException {
+            if (count>Integer.MAX_VALUE) {
+                throw new IOException("snapshot exceeds size limit of "+Integer.MAX_VALUE+" bytes");
+            } // if
+            return (int) count;
+        } // getOffset()
+
+    } // CountingOutputStream
+
+
+    private CoconatSnapshot() {
+    }
+
+
+    /**
+     * Index entry for the parent and name index.
+     */
+    private static final class NameEntry implements Comparable<NameEntry> {
+
+        private final int parentId;
+
+        private final String name;
+
+        private final int offset;
+
+
+        NameEntry(int parentId, String name, int offset) {
+            this.parentId = parentId;
+            this.name = name;
+            this.offset = offset;
+        }
+
+
+        @Override
+        public int compareTo(NameEntry o) {
+            int result = Integer.compare(parentId, o.parentId);
+            return (result==0) ? name.compareTo(o.name) : result;
+        } // compareTo()
+
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof NameEntry)&&(compareTo((NameEntry) o)==0);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return parentId*31+name.hashCode();
+        }
+
+    } // NameEntry
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value==null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } // if
+    } // writeString()
+
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length<0) {
+            return null;
+        } // if
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    } // readString()
+
+
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static void writeValue(DataOutputStream out, Object value, boolean includeBlobs) throws IOException {
+        if (value==null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if ((value instanceof Integer)||(value instanceof Short)||(value instanceof Byte)) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if ((value instanceof Double)||(value instanceof Float)) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof java.util.Date) {
+            out.writeByte(TAG_TIMESTAMP);
+            out.writeLong(((java.util.Date) value).getTime());
+            // the nanoseconds beyond the milliseconds - as of version 2
+            out.writeInt((value instanceof Timestamp) ? ((Timestamp) value).getNanos()%1_000_000 : 0);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TAG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof LazyContentList) {
+            List<String> ids = ((LazyContentList) value).getIds();
+            out.writeByte(TAG_LINKS);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeInt(Integer.parseInt(id));
+            } // for
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            out.writeByte(TAG_BLOB);
+            writeString(out, blob.getMimeType());
+            out.writeLong(blob.getLen());
+            byte[] bytes = includeBlobs ? blob.getBytes() : null;
+            out.writeInt(bytes==null ? -1 : bytes.length);
+            if (bytes!=null) {
+                out.write(bytes);
+            } // if
+        } else {
+            out.writeByte(TAG_STRING);
+            writeString(out, value.toString());
+        } // if
+    } // writeValue()
+
+
+    /**
+     * Decode a property value at the current position of a buffer.
+     *
+     * @param buffer buffer positioned at the value's tag
+     * @param repository repository to resolve link lists through
+     * @param contentId ID of the content holding the value
+     * @param propertyName name of the property holding the value
+     * @return decoded value
+     */
+    static Object readValue(ByteBuffer buffer, SnapshotRepository repository, String contentId, String propertyName) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(buffer);
+            case TAG_INTEGER:
+                return buffer.getInt();
+            case TAG_LONG:
+                return buffer.getLong();
+            case TAG_DOUBLE:
+                return buffer.getDouble();
+            case TAG_BOOLEAN:
+                return buffer.get()!=0;
+            case TAG_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(timestamp.getNanos()+buffer.getInt());
+                return timestamp;
+            case TAG_DECIMAL:
+                return new BigDecimal(readString(buffer));
+            case TAG_LINKS:
+                int size = buffer.getInt();
+                List<String> ids = new ArrayList<>(size);
+                for (int i = 0; i<size; i++) {
+                    ids.add(""+buffer.getInt());
+                } // for
+                return new LazyContentList(repository, ids);
+            case TAG_BLOB:
+                String mimeType = readString(buffer);
+                long len = buffer.getLong();
+                int length = buffer.getInt();
+                byte[] data = null;
+                if (length>=0) {
+                    data = new byte[length];
+                    buffer.get(data);
+                } // if
+                return new CoconatBlob(contentId, propertyName, mimeType, len, data);
+            default:
+                throw new IllegalStateException("Unknown value tag "+tag+" for "+contentId+"#"+propertyName);
+        } // switch
+    } // readValue()
+
+
+    private static void writeRecord(DataOutputStream out, CoconatResource resource, Content content, Map<String, Object> skip,
+            boolean includeBlobs) throws IOException {
+        out.writeInt(Integer.parseInt(resource.getId()));
+        out.writeInt(resource.getParentId()==null ? -1 : Integer.parseInt(resource.getParentId()));
+        writeString(out, resource.getName());
+        writeString(out, resource.getDocumentType());
+        List<Map.Entry<String, Object>> properties = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            if (!skip.containsKey(entry.getKey())) {
+                properties.add(entry);
+            } // if
+        } // for
+        out.writeInt(properties.size());
+        for (Map.Entry<String, Object> entry : properties) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue(), includeBlobs);
+        } // for
+    } // writeRecord()
+
+
+    /**
+     * Write the latest version of all objects of a repository to a snapshot file.
+     *
+     * Objects are read in batches through the bulk loading facilities of the repository. The file size is limited
+     * to 2GB so that readers can map it as a whole.
+     *
+     * @param repository repository to take the objects from
+     * @param file path of the snapshot file to write
+     * @param includeBlobs true if the blob contents should be part of the snapshot - otherwise only their descriptions
+     * @return number of objects written
+     * @throws IOException in case of write errors or if the snapshot would exceed the size limit
+     */
+    public static int export(CoconatContentRepository repository, Path file, boolean includeBlobs) throws IOException {
+        List<int[]> idIndex = new ArrayList<>();
+        List<NameEntry> nameIndex = new ArrayList<>();
+        Map<String, Object> additionalProperties = repository.getAdditionalProperties();
+        Path temp = file.resolveSibling(file.getFileName()+".tmp");
+        try (OutputStream os = Files.newOutputStream(temp); CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(os, 65536));
+                DataOutputStream out = new DataOutputStream(counter); Stream<String> ids = repository.streamResourceIds()) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            Iterator<String> iterator = ids.iterator();
+            List<String> batch = new ArrayList<>();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if ((batch.size()>=repository.getBatchSize())||!iterator.hasNext()) {
+                    Map<String, CoconatResource> resources = repository.getResources(batch);
+                    Map<String, Content> contents = repository.getContents(batch);
+                    for (String id : batch) {
+                        CoconatResource resource = resources.get(id);
+                        Content content = contents.get(id);
+                        if ((resource!=null)&&(content!=null)) {
+                            int offset = counter.getOffset();
+                            idIndex.add(new int[]{Integer.parseInt(id), offset});
+                            int parentId = resource.getParentId()==null ? -1 : Integer.parseInt(resource.getParentId());
+                            nameIndex.add(new NameEntry(parentId, resource.getName(), offset));
+                            writeRecord(out, resource, content, additionalProperties, includeBlobs);
+                        } // if
+                    } // for
+                    batch.clear();
+                } // if
+            } // while
+
+            int idIndexPosition = counter.getOffset();
+            out.writeInt(idIndex.size());
+            for (int[] entry : idIndex) {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+            } // for
+            Collections.sort(nameIndex);
+            int nameIndexPosition = counter.getOffset();
+            out.writeInt(nameIndex.size());
+            for (NameEntry entry : nameIndex) {
+                out.writeInt(entry.parentId);
+                out.writeInt(entry.offset);
+            } // for
+            out.writeInt(idIndexPosition);
+            out.writeInt(nameIndexPosition);
+            out.writeInt(MAGIC);
+            out.flush();
+            counter.getOffset();
+        } catch (IOException|RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } // try/catch
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("export() {} objects written to {}", idIndex.size(), file);
+        return idIndex.size();
+    } // export()
+
+} // CoconatSnapshot
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2011-2019 Martin Goellnitz
+ * Copyright 2011-2026 Martin Goellnitz
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Lesser General Public License as published by
@@ -19,6 +19,9 @@
 package coconat.internal;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -29,6 +32,11 @@ public final class CoconatTextConverter {
 
     private static final byte[] SEDEC = new byte['g'];
 
+    /**
+     * internal link targets - also for links to blobs of other objects
+     */
+    private static final Pattern INTERNAL_LINK = Pattern.compile("^coremedia:///cap/(?:blob/)?(?:content|resources)/(\\d+)");
+
     @SuppressWarnings("PMD.AvoidStringBufferField")
     private final StringBuilder dataBuilder;
 
@@ -42,6 +50,8 @@ public final class CoconatTextConverter {
 
     private int textPosition;
 
+    private final Collection<String> linkIds;
+
 
     static {
         SEDEC['0'] = 0;
@@ -69,9 +79,10 @@ public final class CoconatTextConverter {
     }
 
 
-    private CoconatTextConverter(StringBuilder text, StringBuilder data) {
+    private CoconatTextConverter(StringBuilder text, StringBuilder data, Collection<String> linkIds) {
         this.dataBuilder = data;
         this.textBuilder = text;
+        this.linkIds = linkIds;
         dataPosition = 0;
         textPosition = 0;
         this.resultBuilder = new StringBuilder(512);
@@ -143,6 +154,12 @@ public final class CoconatTextConverter {
             if (hasValue) {
                 attributeValue = attributeValue.substring(0, attributeValue.length()-1);
             } // if
+            if ((linkIds!=null)&&"xlink:href".equals(attributeName)) {
+                String linkId = getLinkId(attributeValue);
+                if (linkId!=null) {
+                    linkIds.add(linkId);
+                } // if
+            } // if
             resultBuilder.append(' ');
             resultBuilder.append(attributeName);
             if (hasValue) {
@@ -227,7 +244,32 @@ public final class CoconatTextConverter {
      * @return readable text in XML format
      */
     public static String convert(StringBuilder text, StringBuilder data) {
-        return new CoconatTextConverter(text, data).mergeTextAndData();
+        return convert(text, data, null);
     } // convert()
 
+
+    /**
+     * Prepare net string from text and data segments and collect the IDs of the content objects linked from it.
+     *
+     * @param text text segment as fetched from the database
+     * @param data data segment as fetched from the database
+     * @param linkIds collection to add the IDs of the internal link targets to in document order - may be null
+     * @return readable text in XML format
+     */
+    public static String convert(StringBuilder text, StringBuilder data, Collection<String> linkIds) {
+        return new CoconatTextConverter(text, data, linkIds).mergeTextAndData();
+    } // convert()
+
+
+    /**
+     * Get the ID of the content object an internal link points to.
+     *
+     * @param href value of an xlink:href attribute
+     * @return content ID or null for external links
+     */
+    public static String getLinkId(String href) {
+        Matcher matcher = INTERNAL_LINK.matcher(href);
+        return matcher.find() ? matcher.group(1) : null;
+    } // getLinkId()
+
 } // CoconatTextConverter
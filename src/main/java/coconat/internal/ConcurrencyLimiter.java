@@ -0,0 +1,289 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Adaptive limit for the number of concurrent database calls.
+ *
+ * The limit follows the additive increase / multiplicative decrease scheme: each call answered within the
+ * tolerated latency raises it by one per limit's worth of calls, while each call slower than that - or timing out -
+ * lowers it by the backoff factor. The tolerated latency is a multiple of the baseline latency, which is a low
+ * percentile of the recent calls of the same query shape, so neither a single fast call nor a mix of cheap lookups
+ * and expensive scans distorts it. Calls beyond the limit wait in a bounded queue until a slot frees up, their
+ * deadline passes, or the maximum wait time is reached; calls arriving at a full queue are rejected at once, so a
+ * slow database sheds load instead of piling up threads.
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private static final int WINDOW = 64;
+
+    private static final int MAX_SHAPES = 256;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final int maxQueue;
+
+    private double limit;
+
+    private double tolerance = 2;
+
+    private double backoff = 0.9;
+
+    private long maxWaitMillis = 1000;
+
+    private final Map<String, Baseline> baselines = new LinkedHashMap<>(64, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Baseline> eldest) {
+            return size()>MAX_SHAPES;
+        }
+
+    };
+
+    private int inFlight;
+
+    private int queued;
+
+    private long completed;
+
+    private long rejected;
+
+    private long timeouts;
+
+
+    /**
+     * Latencies of the recent calls of one query shape.
+     */
+    private static final class Baseline {
+
+        private final long[] samples = new long[WINDOW];
+
+        private int count;
+
+        private int next;
+
+        private long nanos = -1;
+
+
+        /**
+         * Add a sample and recompute the baseline every few samples.
+         *
+         * @return baseline latency in nanoseconds
+         */
+        long add(long sample) {
+            samples[next] = sample;
+            next = (next+1)%WINDOW;
+            count = Math.min(count+1, WINDOW);
+            if ((nanos<0)||(next%8==0)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                nanos = sorted[count/10];
+            } // if
+            return nanos;
+        } // add()
+
+    } // Baseline
+
+
+    /**
+     * Create a limiter.
+     *
+     * @param initialLimit number of concurrent calls allowed at start
+     * @param minLimit lower bound of the limit
+     * @param maxLimit upper bound of the limit
+     * @param maxQueue number of calls allowed to wait for a free slot
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+        if ((minLimit<1)||(minLimit>maxLimit)) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= min <= max");
+        } // if
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    } // ConcurrencyLimiter()
+
+
+    /**
+     * Set the factor by which calls may be slower than the baseline before the limit is lowered.
+     *
+     * @param tolerance latency factor - default 2
+     */
+    public synchronized void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+
+    /**
+     * Set the factor applied to the limit on slow calls and timeouts.
+     *
+     * @param backoff factor between 0 and 1 - default 0.9
+     */
+    public synchronized void setBackoff(double backoff) {
+        this.backoff = backoff;
+    }
+
+
+    /**
+     * Set the longest time a call waits in the queue when it has no earlier deadline.
+     *
+     * @param maxWaitMillis wait time in milliseconds - default 1000
+     */
+    public synchronized void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+
+    /**
+     * Wait for a free slot for a database call.
+     *
+     * @param deadlineNanos System.nanoTime() value by which the call must be done - 0 for no deadline
+     * @throws SQLException if the queue is full, or the deadline or maximum wait time passed while waiting
+     */
+    public synchronized void acquire(long deadlineNanos) throws SQLException {
+        if (inFlight<(int) limit) {
+            inFlight++;
+            return;
+        } // if
+        if (queued>=maxQueue) {
+            rejected++;
+            LOG.debug("acquire() rejecting call at limit {} with {} queued", (int) limit, queued);
+            throw new SQLTransientException("database concurrency limit "+(int) limit+" reached");
+        } // if
+        long end = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        if ((deadlineNanos!=0)&&(deadlineNanos-end<0)) {
+            end = deadlineNanos;
+        } // if
+        queued++;
+        try {
+            while (inFlight>=(int) limit) {
+                long remaining = end-System.nanoTime();
+                if (remaining<=0) {
+                    timeouts++;
+                    throw new SQLTimeoutException("no database slot free in time at limit "+(int) limit);
+                } // if
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } // while
+            inFlight++;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientException("interrupted while waiting for a database slot", ie);
+        } finally {
+            queued--;
+        } // try/catch
+    } // acquire()
+
+
+    /**
+     * Free the slot of a finished call and adapt the limit to its outcome.
+     *
+     * @param nanos duration of the call
+     * @param overload true if the call failed with a timeout
+     */
+    public void release(long nanos, boolean overload) {
+        release("", nanos, overload);
+    }
+
+
+    /**
+     * Free the slot of a finished call and adapt the limit to its outcome compared to calls of the same kind.
+     *
+     * @param shape normalised SQL of the call - see QueryProfiler.normalize()
+     * @param nanos duration of the call
+     * @param overload true if the call failed with a timeout
+     */
+    public synchronized void release(String shape, long nanos, boolean overload) {
+        boolean saturated = inFlight>=(int) limit;
+        inFlight--;
+        completed++;
+        long baselineNanos = baselines.computeIfAbsent(shape, s -> new Baseline()).add(nanos);
+        if (overload||(nanos>tolerance*baselineNanos)) {
+            limit = Math.max(minLimit, limit*backoff);
+        } else if (saturated||(inFlight*2>=limit)) {
+            limit = Math.min(maxLimit, limit+1/limit);
+        } // if
+        notifyAll();
+    } // release()
+
+
+    /**
+     * Get the current number of concurrent calls allowed.
+     *
+     * @return current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+
+    /**
+     * Get the number of calls waiting for a free slot.
+     *
+     * @return queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return queued;
+    }
+
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+
+    /**
+     * Get the number of calls rejected because the queue was full.
+     *
+     * @return number of rejected calls
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+
+    /**
+     * Get the number of calls which gave up waiting in the queue.
+     *
+     * @return number of timed out calls
+     */
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+} // ConcurrencyLimiter
@@ -0,0 +1,397 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Blob;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * Compact binary format for content objects.
+ *
+ * A record starts with the index of a layout - the document type and the sorted property names - which is shared
+ * by all records with the same properties, followed by the ID and the values in layout order. Numbers are written
+ * as variable length integers, timestamps as milliseconds and the remaining nanoseconds, strings as UTF-8, link
+ * lists as lists of IDs, and blobs only as references without their data. The number of layouts is limited, and
+ * records needing further layouts cannot be encoded.
+ */
+final class ContentCodec {
+
+    private static final byte TAG_NULL = 0;
+
+    private static final byte TAG_STRING = 1;
+
+    private static final byte TAG_INTEGER = 2;
+
+    private static final byte TAG_LONG = 3;
+
+    private static final byte TAG_DOUBLE = 4;
+
+    private static final byte TAG_TRUE = 5;
+
+    private static final byte TAG_FALSE = 6;
+
+    private static final byte TAG_TIMESTAMP = 7;
+
+    private static final byte TAG_DECIMAL = 8;
+
+    private static final byte TAG_LINKS = 9;
+
+    private static final byte TAG_BLOB = 10;
+
+    private final int maxLayouts;
+
+    private final List<String[]> layouts = new ArrayList<>();
+
+    private final Map<List<String>, Integer> layoutIndexes = new HashMap<>();
+
+
+    /**
+     * Create a codec.
+     *
+     * @param maxLayouts maximum number of distinct layouts
+     */
+    ContentCodec(int maxLayouts) {
+        this.maxLayouts = maxLayouts;
+    }
+
+
+    /**
+     * Growable byte array for encoding.
+     */
+    private static final class Output {
+
+        private byte[] bytes = new byte[256];
+
+        private int length;
+
+
+        void write(int b) {
+            if (length==bytes.length) {
+                bytes = Arrays.copyOf(bytes, length*2);
+            } // if
+            bytes[length++] = (byte) b;
+        }
+
+
+        void write(byte[] data) {
+            if (length+data.length>bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length*2, length+data.length));
+            } // if
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+
+
+        void writeVarLong(long value) {
+            long v = value;
+            while ((v&~0x7FL)!=0) {
+                write((int) ((v&0x7F)|0x80));
+                v >>>= 7;
+            } // while
+            write((int) v);
+        }
+
+
+        void writeSigned(long value) {
+            writeVarLong((value<<1)^(value>>63));
+        }
+
+
+        void writeString(String value) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(data.length);
+            write(data);
+        }
+
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+    } // Output
+
+
+    /**
+     * Cursor over an encoded record.
+     */
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+
+        int read() {
+            return bytes[position++];
+        }
+
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0;; shift += 7) {
+                int b = bytes[position++];
+                result |= (long) (b&0x7F)<<shift;
+                if ((b&0x80)==0) {
+                    return result;
+                } // if
+            } // for
+        }
+
+
+        long readSigned() {
+            long v = readVarLong();
+            return (v>>>1)^-(v&1);
+        }
+
+
+        String readString() {
+            int length = (int) readVarLong();
+            String result = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return result;
+        }
+
+    } // Input
+
+
+    private synchronized int getLayoutIndex(String type, List<String> names) {
+        List<String> key = new ArrayList<>(names.size()+1);
+        key.add(type);
+        key.addAll(names);
+        Integer index = layoutIndexes.get(key);
+        if (index==null) {
+            if (layouts.size()>=maxLayouts) {
+                return -1;
+            } // if
+            index = layouts.size();
+            layouts.add(key.toArray(new String[0]));
+            layoutIndexes.put(key, index);
+        } // if
+        return index;
+    } // getLayoutIndex()
+
+
+    private synchronized String[] getLayout(int index) {
+        return layouts.get(index);
+    }
+
+
+    /**
+     * Get the layout of an encoded record.
+     *
+     * @param record encoded record
+     * @return document type name followed by the property names in record order
+     */
+    String[] getLayout(byte[] record) {
+        return getLayout((int) new Input(record).readVarLong());
+    }
+
+
+    /**
+     * Get the number of distinct layouts seen so far.
+     *
+     * @return number of layouts shared by the encoded records
+     */
+    synchronized int getLayoutCount() {
+        return layouts.size();
+    }
+
+
+    /**
+     * Forget all layouts - only valid when no encoded records are kept anymore.
+     * Properties decoded later on need the layout of their record fetched through getLayout() beforehand.
+     */
+    synchronized void clear() {
+        layouts.clear();
+        layoutIndexes.clear();
+    } // clear()
+
+
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    private static boolean writeValue(Output out, Object value) {
+        if (value==null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof String) {
+            out.write(TAG_STRING);
+            out.writeString((String) value);
+        } else if ((value instanceof Integer)||(value instanceof Short)||(value instanceof Byte)) {
+            out.write(TAG_INTEGER);
+            out.writeSigned(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.write(TAG_LONG);
+            out.writeSigned((Long) value);
+        } else if (value instanceof Double) {
+            out.write(TAG_DOUBLE);
+            out.writeVarLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Boolean) {
+            out.write(((Boolean) value) ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Date) {
+            out.write(TAG_TIMESTAMP);
+            out.writeSigned(((Date) value).getTime());
+            out.writeVarLong((value instanceof Timestamp) ? ((Timestamp) value).getNanos()%1_000_000 : 0);
+        } else if (value instanceof BigDecimal) {
+            out.write(TAG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (value instanceof LazyContentList) {
+            List<String> ids = ((LazyContentList) value).getIds();
+            out.write(TAG_LINKS);
+            out.writeVarLong(ids.size());
+            for (String id : ids) {
+                out.writeVarLong(Integer.parseInt(id));
+            } // for
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            out.write(TAG_BLOB);
+            out.writeString(blob.getMimeType()==null ? "" : blob.getMimeType());
+            out.writeVarLong(blob.getLen());
+        } else {
+            return false;
+        } // if
+        return true;
+    } // writeValue()
+
+
+    /**
+     * Encode a content object.
+     *
+     * @param content content object to encode
+     * @param skip properties not to encode
+     * @return encoded record or null if the object contains values which cannot be encoded or needs a layout beyond
+     * the limit
+     */
+    byte[] encode(CoconatContent content, Map<String, Object> skip) {
+        TreeSet<String> sorted = new TreeSet<>(content.keySet());
+        sorted.removeAll(skip.keySet());
+        List<String> names = new ArrayList<>(sorted);
+        int layout = getLayoutIndex(content.getDocumentType(), names);
+        if (layout<0) {
+            return null;
+        } // if
+        Output out = new Output();
+        try {
+            out.writeVarLong(layout);
+            out.writeVarLong(Integer.parseInt(content.getId()));
+            for (String name : names) {
+                if (!writeValue(out, content.get(name))) {
+                    return null;
+                } // if
+            } // for
+        } catch (NumberFormatException nfe) {
+            return null;
+        } // try/catch
+        return out.toByteArray();
+    } // encode()
+
+
+    /**
+     * Read the ID of an encoded record without decoding its properties.
+     *
+     * @param record encoded record
+     * @return document type name and ID of the record
+     */
+    String[] decodeHeader(byte[] record) {
+        Input in = new Input(record);
+        String[] layout = getLayout((int) in.readVarLong());
+        return new String[]{layout[0], Long.toString(in.readVarLong())};
+    } // decodeHeader()
+
+
+    /**
+     * Decode the properties of an encoded record.
+     *
+     * @param record encoded record
+     * @param layout layout of the record as returned by getLayout()
+     * @param repository repository to resolve link lists and blob data through
+     * @return map of the properties
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    Map<String, Object> decodeProperties(byte[] record, String[] layout, CoconatContentRepository repository) {
+        Input in = new Input(record);
+        in.readVarLong();
+        String id = Long.toString(in.readVarLong());
+        Map<String, Object> properties = new HashMap<>(layout.length*2);
+        for (int i = 1; i<layout.length; i++) {
+            int tag = in.read();
+            Object value;
+            switch (tag) {
+                case TAG_NULL:
+                    value = null;
+                    break;
+                case TAG_STRING:
+                    value = in.readString();
+                    break;
+                case TAG_INTEGER:
+                    value = (int) in.readSigned();
+                    break;
+                case TAG_LONG:
+                    value = in.readSigned();
+                    break;
+                case TAG_DOUBLE:
+                    value = Double.longBitsToDouble(in.readVarLong());
+                    break;
+                case TAG_TRUE:
+                    value = Boolean.TRUE;
+                    break;
+                case TAG_FALSE:
+                    value = Boolean.FALSE;
+                    break;
+                case TAG_TIMESTAMP:
+                    Timestamp timestamp = new Timestamp(in.readSigned());
+                    timestamp.setNanos(timestamp.getNanos()+(int) in.readVarLong());
+                    value = timestamp;
+                    break;
+                case TAG_DECIMAL:
+                    value = new BigDecimal(in.readString());
+                    break;
+                case TAG_LINKS:
+                    int size = (int) in.readVarLong();
+                    List<String> ids = new ArrayList<>(size);
+                    for (int j = 0; j<size; j++) {
+                        ids.add(Long.toString(in.readVarLong()));
+                    } // for
+                    value = new LazyContentList(repository, ids);
+                    break;
+                case TAG_BLOB:
+                    String mimeType = in.readString();
+                    value = new BlobReference(repository, id, layout[i], mimeType, in.readVarLong());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown value tag "+tag+" for "+id+"#"+layout[i]);
+            } // switch
+            properties.put(layout[i], value);
+        } // for
+        return properties;
+    } // decodeProperties()
+
+} // ContentCodec
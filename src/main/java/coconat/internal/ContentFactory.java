@@ -0,0 +1,41 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.util.Map;
+
+
+/**
+ * Factory for the content objects created by CoconatContentRepository.
+ * Implementations should return CoconatContent instances - or instances of subclasses like SlotContent.
+ */
+public interface ContentFactory {
+
+    /**
+     * Create a content object.
+     *
+     * @param id ID of the content object
+     * @param type document type name of the content object - empty for folders
+     * @param properties named values for the properties of the content object
+     * @return content object for the given values
+     */
+    Content create(String id, String type, Map<String, Object> properties);
+
+} // ContentFactory
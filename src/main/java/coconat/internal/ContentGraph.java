@@ -0,0 +1,115 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import coconat.Repository;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Id indexed set of prefetched content objects.
+ *
+ * Link lists of the contents in the graph resolve their elements through the graph. So navigating the prefetched
+ * part of the link structure needs no database access. Targets outside of the graph are fetched from the underlying
+ * repository.
+ */
+public class ContentGraph implements Repository {
+
+    private final Repository repository;
+
+    private final String rootId;
+
+    private final Map<String, Content> contents = new LinkedHashMap<>();
+
+
+    /**
+     * Create an empty graph for a given root object.
+     *
+     * @param repository repository to fetch contents outside of the graph from
+     * @param rootId id of the object the graph starts with
+     */
+    public ContentGraph(Repository repository, String rootId) {
+        this.repository = repository;
+        this.rootId = rootId;
+    } // ContentGraph()
+
+
+    /**
+     * Add a content object to the graph and let its link lists resolve through the graph.
+     * The object is copied so that objects shared with other callers - e.g. through a content cache - are not
+     * changed when its link lists are bound to this graph.
+     *
+     * @param content content object to add
+     * @return copy of the object as held by the graph
+     */
+    public Content add(Content content) {
+        Content result = LazyContentList.rebind(content, this, repository);
+        contents.put(result.getId(), result);
+        return result;
+    } // add()
+
+
+    public Content getRoot() {
+        return contents.get(rootId);
+    }
+
+
+    /**
+     * Check if a content object is part of the graph.
+     *
+     * @param id ID of the object to look for
+     * @return true if the object is available without database access
+     */
+    public boolean contains(String id) {
+        return contents.containsKey(id);
+    } // contains()
+
+
+    public Set<String> getIds() {
+        return contents.keySet();
+    }
+
+
+    public Collection<Content> getContents() {
+        return contents.values();
+    }
+
+
+    public int size() {
+        return contents.size();
+    }
+
+
+    @Override
+    public Content getContent(String id) {
+        Content result = contents.get(id);
+        return (result==null) ? repository.getContent(id) : result;
+    } // getContent()
+
+
+    @Override
+    public Content getChild(String path) {
+        return repository.getChild(path);
+    } // getChild()
+
+} // ContentGraph
@@ -0,0 +1,211 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Publisher of content objects from a lazily consumed content stream.
+ *
+ * Each subscription opens its own stream from the given source when the first demand arrives. Elements are only
+ * taken from the stream - and thus from the database - as far as the subscriber requested them. Completion,
+ * failure, and cancellation close the stream and release the database cursor behind it. Exceptions thrown by the
+ * subscriber itself cancel the subscription and are only logged, since a subscriber must not be signalled again
+ * after it failed.
+ */
+public class ContentPublisher implements Flow.Publisher<Content> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentPublisher.class);
+
+    private final Supplier<Stream<Content>> source;
+
+    private final Executor executor;
+
+
+    /**
+     * Create a publisher emitting on the thread requesting the elements.
+     *
+     * @param source supplier of a fresh content stream for each subscription
+     */
+    public ContentPublisher(Supplier<Stream<Content>> source) {
+        this(source, Runnable::run);
+    } // ContentPublisher()
+
+
+    /**
+     * Create a publisher emitting through a given executor.
+     *
+     * @param source supplier of a fresh content stream for each subscription
+     * @param executor executor to run the emission on
+     */
+    public ContentPublisher(Supplier<Stream<Content>> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    } // ContentPublisher()
+
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Content> subscriber) {
+        subscriber.onSubscribe(new ContentSubscription(subscriber));
+    } // subscribe()
+
+
+    /**
+     * Subscription serialising all emissions through a work in progress counter.
+     */
+    private final class ContentSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Content> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable failure;
+
+        private Stream<Content> stream;
+
+        private Iterator<Content> iterator;
+
+        private boolean done;
+
+
+        ContentSubscription(Flow.Subscriber<? super Content> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public void request(long n) {
+            if (n<=0) {
+                failure = new IllegalArgumentException("non-positive request "+n);
+            } else {
+                demand.getAndUpdate(d -> (d+n<0) ? Long.MAX_VALUE : d+n);
+            } // if
+            drain();
+        } // request()
+
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        } // cancel()
+
+
+        private void drain() {
+            if (wip.getAndIncrement()==0) {
+                executor.execute(this::emit);
+            } // if
+        } // drain()
+
+
+        private void release() {
+            done = true;
+            if (stream!=null) {
+                stream.close();
+                stream = null;
+            } // if
+        } // release()
+
+
+        private void emit() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    if (cancelled) {
+                        release();
+                    } else if (failure!=null) {
+                        release();
+                        subscriber.onError(failure);
+                    } else {
+                        emitRequested();
+                    } // if
+                } // if
+                missed = wip.addAndGet(-missed);
+            } while (missed!=0);
+        } // emit()
+
+
+        private void complete() {
+            release();
+            try {
+                subscriber.onComplete();
+            } catch (RuntimeException e) {
+                LOG.error("complete() subscriber failed on completion", e);
+            } // try/catch
+        } // complete()
+
+
+        private void emitRequested() {
+            try {
+                long requested = demand.get();
+                long emitted = 0;
+                while ((emitted<requested)&&!cancelled) {
+                    if (iterator==null) {
+                        stream = source.get();
+                        iterator = stream.iterator();
+                    } // if
+                    if (!iterator.hasNext()) {
+                        complete();
+                        return;
+                    } // if
+                    Content next = iterator.next();
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        LOG.error("emitRequested() subscriber failed - cancelling", e);
+                        cancelled = true;
+                        release();
+                        return;
+                    } // try/catch
+                    emitted++;
+                } // while
+                if (requested!=Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                } // if
+                if (cancelled) {
+                    release();
+                } else if ((iterator!=null)&&!iterator.hasNext()) {
+                    // complete without waiting for further demand to release the stream's connection
+                    complete();
+                } // if
+            } catch (RuntimeException e) {
+                // failures of the source only - the subscriber's own exceptions are handled above
+                LOG.error("emitRequested()", e);
+                release();
+                subscriber.onError(e);
+            } // try/catch
+        } // emitRequested()
+
+    } // ContentSubscription
+
+} // ContentPublisher
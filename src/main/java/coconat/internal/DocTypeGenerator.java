@@ -0,0 +1,204 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Generator for typed content interfaces from a document type model.
+ *
+ * For each document type an interface with one accessor per property, an implementation class based on
+ * SlotContent, and one ContentFactory for all types are written. The factory can be passed to the repository
+ * so that all loaded objects implement the interfaces of their types. Generated code only uses fully qualified
+ * names, so document type names cannot clash with imports.
+ *
+ * Usage: DocTypeGenerator &lt;doctypes.xml&gt; &lt;package&gt; &lt;output directory&gt;
+ */
+public final class DocTypeGenerator {
+
+    /**
+     * simple name of the generated factory class
+     */
+    public static final String FACTORY_NAME = "GeneratedContentFactory";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocTypeGenerator.class);
+
+    private static final Set<String> RESERVED = Set.of("getClass", "getId", "getDocumentType");
+
+
+    private DocTypeGenerator() {
+    }
+
+
+    private static String getJavaType(DocTypeSchema.PropertyType type) {
+        switch (type) {
+            case INTEGER:
+                return "java.lang.Integer";
+            case DATE:
+                return "java.util.Date";
+            case LINK_LIST:
+                return "java.util.List<coconat.Content>";
+            case BLOB:
+                return "coconat.Blob";
+            default:
+                return "java.lang.String";
+        } // switch
+    } // getJavaType()
+
+
+    /**
+     * Derive the accessor name for a property.
+     *
+     * @param propertyName name of the property in the document type model
+     * @return name of the generated getter method
+     */
+    public static String getAccessorName(String propertyName) {
+        StringBuilder name = new StringBuilder("get");
+        for (int i = 0; i<propertyName.length(); i++) {
+            char c = propertyName.charAt(i);
+            if (!Character.isJavaIdentifierPart(c)) {
+                c = '_';
+            } // if
+            name.append(i==0 ? Character.toUpperCase(c) : c);
+        } // for
+        if (RESERVED.contains(name.toString())) {
+            name.append("Property");
+        } // if
+        return name.toString();
+    } // getAccessorName()
+
+
+    private static String header(String packageName, String comment) {
+        return "package "+packageName+";\n\n\n/**\n * "+comment+"\n *\n * Generated from the document type model - do not edit.\n */\n";
+    } // header()
+
+
+    private static String generateInterface(DocTypeSchema schema, DocTypeSchema.DocType type, String packageName) {
+        StringBuilder code = new StringBuilder(1024);
+        code.append(header(packageName, "Typed access to the properties of document type "+type.getName()+"."));
+        String parent = (type.getParent()==null)||(schema.getType(type.getParent())==null) ? "coconat.internal.TypedContent" : type.getParent();
+        code.append("public interface ").append(type.getName()).append(" extends ").append(parent).append(" {\n");
+        List<DocTypeSchema.Property> layout = schema.getLayout(type.getName());
+        int offset = layout.size()-type.getProperties().size();
+        for (int i = 0; i<type.getProperties().size(); i++) {
+            DocTypeSchema.Property property = type.getProperties().get(i);
+            String javaType = getJavaType(property.getType());
+            code.append("\n    /**\n     * @return value of property ").append(property.getName()).append("\n     */\n");
+            if (property.getType()==DocTypeSchema.PropertyType.LINK_LIST) {
+                code.append("    @SuppressWarnings(\"unchecked\")\n");
+            } // if
+            code.append("    default ").append(javaType).append(' ').append(getAccessorName(property.getName())).append("() {\n");
+            code.append("        return (").append(javaType).append(") slot(").append(offset+i).append(");\n    }\n\n");
+        } // for
+        code.append("} // ").append(type.getName()).append('\n');
+        return code.toString();
+    } // generateInterface()
+
+
+    private static String generateClass(DocTypeSchema schema, DocTypeSchema.DocType type, String packageName) {
+        String name = type.getName()+"Content";
+        StringBuilder code = new StringBuilder(1024);
+        code.append(header(packageName, "Content object of document type "+type.getName()+"."));
+        code.append("public class ").append(name).append(" extends coconat.internal.SlotContent implements ").append(type.getName()).append(" {\n\n");
+        code.append("    static final String[] LAYOUT = {");
+        String separator = "";
+        for (DocTypeSchema.Property property : schema.getLayout(type.getName())) {
+            code.append(separator).append('"').append(property.getName()).append('"');
+            separator = ", ";
+        } // for
+        code.append("};\n\n\n");
+        code.append("    public ").append(name).append("(String id, java.util.Map<String, Object> properties) {\n");
+        code.append("        super(id, \"").append(type.getName()).append("\", properties, LAYOUT);\n    }\n\n");
+        code.append("} // ").append(name).append('\n');
+        return code.toString();
+    } // generateClass()
+
+
+    private static String generateFactory(DocTypeSchema schema, String packageName) {
+        StringBuilder code = new StringBuilder(1024);
+        code.append(header(packageName, "Factory creating typed content objects for all document types of the model."));
+        code.append("public class ").append(FACTORY_NAME).append(" implements coconat.internal.ContentFactory {\n\n");
+        code.append("    @Override\n");
+        code.append("    public coconat.Content create(String id, String type, java.util.Map<String, Object> properties) {\n");
+        code.append("        switch (type) {\n");
+        for (DocTypeSchema.DocType type : schema.getTypes()) {
+            code.append("            case \"").append(type.getName()).append("\":\n");
+            code.append("                return new ").append(type.getName()).append("Content(id, properties);\n");
+        } // for
+        code.append("            default:\n");
+        code.append("                return new coconat.internal.CoconatContent(id, type, properties);\n");
+        code.append("        } // switch\n    } // create()\n\n");
+        code.append("} // ").append(FACTORY_NAME).append('\n');
+        return code.toString();
+    } // generateFactory()
+
+
+    /**
+     * Write the typed content sources for all types of a schema.
+     *
+     * @param schema registry of the document types
+     * @param packageName package of the generated classes
+     * @param directory source root to write the files to
+     * @return paths of the written files
+     * @throws IOException in case of write errors
+     */
+    public static List<Path> generate(DocTypeSchema schema, String packageName, Path directory) throws IOException {
+        Path packageDirectory = directory.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(packageDirectory);
+        List<Path> result = new ArrayList<>();
+        for (DocTypeSchema.DocType type : schema.getTypes()) {
+            Path file = packageDirectory.resolve(type.getName()+".java");
+            Files.write(file, generateInterface(schema, type, packageName).getBytes(StandardCharsets.UTF_8));
+            result.add(file);
+            file = packageDirectory.resolve(type.getName()+"Content.java");
+            Files.write(file, generateClass(schema, type, packageName).getBytes(StandardCharsets.UTF_8));
+            result.add(file);
+        } // for
+        Path file = packageDirectory.resolve(FACTORY_NAME+".java");
+        Files.write(file, generateFactory(schema, packageName).getBytes(StandardCharsets.UTF_8));
+        result.add(file);
+        LOG.info("generate() {} files written to {}", result.size(), packageDirectory);
+        return result;
+    } // generate()
+
+
+    /**
+     * Command line entry point for build integration.
+     *
+     * @param args document type model file, package name, and output directory
+     * @throws IOException in case of read or write errors
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length!=3) {
+            throw new IllegalArgumentException("usage: DocTypeGenerator <doctypes.xml> <package> <output directory>");
+        } // if
+        generate(DocTypeSchema.read(Paths.get(args[0])), args[1], Paths.get(args[2]));
+    } // main()
+
+} // DocTypeGenerator
@@ -0,0 +1,306 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+
+/**
+ * Registry of the document types of a repository read from a document type model XML file.
+ *
+ * Both the 5.0 and the 7.0 flavour of the format are supported. Besides the type hierarchy - which can be passed
+ * to the repository instead of filling the parents by hand - the registry provides a stable property layout per
+ * type where inherited properties always come first, so a property has the same slot index in a type and all its
+ * subtypes.
+ */
+public final class DocTypeSchema {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocTypeSchema.class);
+
+    /**
+     * Kinds of properties in a document type model.
+     */
+    public enum PropertyType {
+        STRING, INTEGER, DATE, LINK_LIST, BLOB, XML
+    }
+
+
+    /**
+     * Description of a single property.
+     */
+    public static final class Property {
+
+        private final String name;
+
+        private final PropertyType type;
+
+        private final String linkType;
+
+
+        Property(String name, PropertyType type, String linkType) {
+            this.name = name;
+            this.type = type;
+            this.linkType = linkType;
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+
+        public PropertyType getType() {
+            return type;
+        }
+
+
+        /**
+         * Get the document type of the link targets.
+         *
+         * @return target document type name for link lists - null otherwise
+         */
+        public String getLinkType() {
+            return linkType;
+        }
+
+
+        @Override
+        public String toString() {
+            return name+":"+type;
+        }
+
+    } // Property
+
+
+    /**
+     * Description of a document type with its own properties.
+     */
+    public static final class DocType {
+
+        private final String name;
+
+        private final String parent;
+
+        private final List<Property> properties;
+
+
+        DocType(String name, String parent, List<Property> properties) {
+            this.name = name;
+            this.parent = parent;
+            this.properties = Collections.unmodifiableList(properties);
+        }
+
+
+        public String getName() {
+            return name;
+        }
+
+
+        /**
+         * Get the name of the parent document type.
+         *
+         * @return parent type name or null for top level types
+         */
+        public String getParent() {
+            return parent;
+        }
+
+
+        /**
+         * Get the properties declared by this type - without inherited ones.
+         *
+         * @return list of properties in declaration order
+         */
+        public List<Property> getProperties() {
+            return properties;
+        }
+
+    } // DocType
+
+
+    private final Map<String, DocType> types;
+
+    private final Map<String, List<Property>> layouts = new HashMap<>();
+
+
+    private DocTypeSchema(Map<String, DocType> types) {
+        this.types = types;
+        for (String name : types.keySet()) {
+            List<Property> layout = new ArrayList<>();
+            List<DocType> chain = new ArrayList<>();
+            for (DocType t = types.get(name); (t!=null)&&!chain.contains(t); t = types.get(t.getParent())) {
+                chain.add(0, t);
+            } // for
+            for (DocType t : chain) {
+                layout.addAll(t.getProperties());
+            } // for
+            layouts.put(name, Collections.unmodifiableList(layout));
+        } // for
+    } // DocTypeSchema()
+
+
+    private static PropertyType getPropertyType(String elementName) {
+        switch (elementName) {
+            case "StringProperty":
+                return PropertyType.STRING;
+            case "IntProperty":
+                return PropertyType.INTEGER;
+            case "DateProperty":
+                return PropertyType.DATE;
+            case "LinkListProperty":
+                return PropertyType.LINK_LIST;
+            case "BlobProperty":
+                return PropertyType.BLOB;
+            case "XmlProperty":
+                return PropertyType.XML;
+            default:
+                return null;
+        } // switch
+    } // getPropertyType()
+
+
+    private static String attribute(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value.length()==0 ? null : value;
+    } // attribute()
+
+
+    /**
+     * Read a document type model.
+     * References to external DTDs are not resolved.
+     *
+     * @param input stream to read the XML document type model from
+     * @return registry of the document types in the model
+     * @throws IOException in case the model cannot be read or parsed
+     */
+    public static DocTypeSchema read(InputStream input) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+            document = builder.parse(input);
+        } catch (ParserConfigurationException|SAXException e) {
+            throw new IOException("cannot parse document type model", e);
+        } // try/catch
+        Map<String, DocType> types = new LinkedHashMap<>();
+        NodeList docTypes = document.getElementsByTagName("DocType");
+        for (int i = 0; i<docTypes.getLength(); i++) {
+            Element docType = (Element) docTypes.item(i);
+            List<Property> properties = new ArrayList<>();
+            for (Node child = docType.getFirstChild(); child!=null; child = child.getNextSibling()) {
+                if (child instanceof Element) {
+                    Element element = (Element) child;
+                    PropertyType type = getPropertyType(element.getTagName());
+                    if (type==null) {
+                        LOG.warn("read() ignoring unknown property kind {}", element.getTagName());
+                    } else {
+                        properties.add(new Property(element.getAttribute("Name"), type, attribute(element, "LinkType")));
+                    } // if
+                } // if
+            } // for
+            String name = docType.getAttribute("Name");
+            types.put(name, new DocType(name, attribute(docType, "Parent"), properties));
+        } // for
+        LOG.info("read() {} document types", types.size());
+        return new DocTypeSchema(types);
+    } // read()
+
+
+    /**
+     * Read a document type model from a file.
+     *
+     * @param file path of the XML document type model
+     * @return registry of the document types in the model
+     * @throws IOException in case the model cannot be read or parsed
+     */
+    public static DocTypeSchema read(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return read(input);
+        } // try
+    } // read()
+
+
+    /**
+     * Get all document types in the order of the model.
+     *
+     * @return collection of document types
+     */
+    public Collection<DocType> getTypes() {
+        return Collections.unmodifiableCollection(types.values());
+    }
+
+
+    public DocType getType(String name) {
+        return types.get(name);
+    }
+
+
+    /**
+     * Get the type hierarchy in the form expected by CoconatContentRepository.setParents().
+     *
+     * @return map mapping document types names to the name of the corresponding parent document type
+     */
+    public Map<String, String> getParents() {
+        Map<String, String> result = new HashMap<>();
+        for (DocType type : types.values()) {
+            if (type.getParent()!=null) {
+                result.put(type.getName(), type.getParent());
+            } // if
+        } // for
+        return result;
+    } // getParents()
+
+
+    /**
+     * Get all properties of a type including inherited ones.
+     * The position of a property in this list is its slot index, which is the same for all subtypes.
+     *
+     * @param typeName name of the document type
+     * @return list of properties starting with the ones of the top most parent type - empty for unknown types
+     */
+    public List<Property> getLayout(String typeName) {
+        List<Property> layout = layouts.get(typeName);
+        return layout==null ? Collections.emptyList() : layout;
+    } // getLayout()
+
+} // DocTypeSchema
@@ -0,0 +1,697 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * In-process inverted index over the string properties of content objects.
+ *
+ * Values are split into lower case tokens of letters and digits, where richtext contributes only its text nodes
+ * with numeric character references decoded.
+ * Each term holds a posting list of content IDs and term frequencies, encoded as variable length deltas. Queries
+ * are lists of terms, each optionally prefixed with + (required) or - (excluded) and suffixed with * for a prefix
+ * match. Results are ranked with BM25.
+ *
+ * The index is filled with a full scan, updated object by object - e.g. by the repository on each change - and can
+ * be written to and read from a file for a fast restart.
+ */
+public class FullTextIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FullTextIndex.class);
+
+    private static final int MAGIC = 0x434f4649;
+
+    private static final int VERSION = 1;
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private static final int MAX_CLAUSES = 64;
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /**
+     * Posting list of one term with ascending content IDs.
+     */
+    private static final class Postings {
+
+        private byte[] data;
+
+        private int length;
+
+        private int count;
+
+        private int lastDoc;
+
+
+        Postings(int capacity) {
+            data = new byte[capacity];
+        }
+
+
+        private void writeVarInt(int value) {
+            if (length+5>data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length*2, length+5));
+            } // if
+            int v = value;
+            while ((v&~0x7F)!=0) {
+                data[length++] = (byte) ((v&0x7F)|0x80);
+                v >>>= 7;
+            } // while
+            data[length++] = (byte) v;
+        } // writeVarInt()
+
+
+        /**
+         * Append a document with an ID larger than all contained ones.
+         */
+        void append(int doc, int frequency) {
+            writeVarInt(count==0 ? doc : doc-lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            count++;
+        } // append()
+
+
+        /**
+         * Decode into an array of alternating IDs and frequencies.
+         */
+        int[] decode() {
+            int[] result = new int[count*2];
+            int position = 0;
+            int doc = 0;
+            for (int i = 0; i<result.length; i++) {
+                int value = 0;
+                for (int shift = 0;; shift += 7) {
+                    byte b = data[position++];
+                    value |= (b&0x7F)<<shift;
+                    if ((b&0x80)==0) {
+                        break;
+                    } // if
+                } // for
+                if ((i&1)==0) {
+                    doc = (i==0) ? value : doc+value;
+                    result[i] = doc;
+                } else {
+                    result[i] = value;
+                } // if
+            } // for
+            return result;
+        } // decode()
+
+
+        static Postings encode(int[] entries, int entryCount) {
+            Postings result = new Postings(entryCount*2+4);
+            for (int i = 0; i<entryCount; i++) {
+                result.append(entries[i*2], entries[i*2+1]);
+            } // for
+            return result;
+        } // encode()
+
+
+        /**
+         * Put a document into the list - replacing an existing entry for it.
+         */
+        Postings put(int doc, int frequency) {
+            if ((count==0)||(doc>lastDoc)) {
+                append(doc, frequency);
+                return this;
+            } // if
+            int[] entries = decode();
+            int[] merged = new int[entries.length+2];
+            int n = 0;
+            boolean done = false;
+            for (int i = 0; i<count; i++) {
+                if (!done&&(doc<=entries[i*2])) {
+                    merged[n*2] = doc;
+                    merged[n*2+1] = frequency;
+                    n++;
+                    done = true;
+                    if (doc==entries[i*2]) {
+                        continue;
+                    } // if
+                } // if
+                merged[n*2] = entries[i*2];
+                merged[n*2+1] = entries[i*2+1];
+                n++;
+            } // for
+            return encode(merged, n);
+        } // put()
+
+
+        Postings remove(int doc) {
+            int[] entries = decode();
+            int n = 0;
+            for (int i = 0; i<count; i++) {
+                if (entries[i*2]!=doc) {
+                    entries[n*2] = entries[i*2];
+                    entries[n*2+1] = entries[i*2+1];
+                    n++;
+                } // if
+            } // for
+            return encode(entries, n);
+        } // remove()
+
+    } // Postings
+
+
+    /**
+     * Terms and token count of an indexed object - needed for removal and ranking.
+     */
+    private static final class Document {
+
+        private final String[] terms;
+
+        private final int length;
+
+
+        Document(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+
+    } // Document
+
+
+    /**
+     * Ranked search result.
+     */
+    public static final class Hit {
+
+        private final String id;
+
+        private final double score;
+
+
+        Hit(String id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+
+        public String getId() {
+            return id;
+        }
+
+
+        public double getScore() {
+            return score;
+        }
+
+
+        @Override
+        public String toString() {
+            return id+":"+score;
+        }
+
+    } // Hit
+
+
+    /**
+     * Single term of a query.
+     */
+    private static final class Clause {
+
+        private final String term;
+
+        private final char operator;
+
+        private final boolean prefix;
+
+
+        Clause(String term, char operator, boolean prefix) {
+            this.term = term;
+            this.operator = operator;
+            this.prefix = prefix;
+        }
+
+    } // Clause
+
+
+    /**
+     * Score and matched clauses of a document during a search.
+     */
+    private static final class Match {
+
+        private double score;
+
+        private long clauses;
+
+    } // Match
+
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    private long totalLength;
+
+    private Collection<String> propertyNames;
+
+
+    /**
+     * Limit the indexed properties.
+     *
+     * @param propertyNames names of the properties to index - null for all string properties except internal ones
+     */
+    public void setPropertyNames(Collection<String> propertyNames) {
+        this.propertyNames = propertyNames==null ? null : new HashSet<>(propertyNames);
+    }
+
+
+    /**
+     * Find the end of an entity reference.
+     *
+     * @param value string to look into
+     * @param start position of the ampersand
+     * @return position of the terminating semicolon or -1 if there is no well formed reference at start
+     */
+    private static int entityEnd(String value, int start) {
+        for (int i = start+1; i<value.length(); i++) {
+            char c = value.charAt(i);
+            if (c==';') {
+                return i>start+1 ? i : -1;
+            } // if
+            if (!Character.isLetterOrDigit(c)&&(c!='#')) {
+                return -1;
+            } // if
+        } // for
+        return -1;
+    } // entityEnd()
+
+
+    /**
+     * Decode the name of an entity reference.
+     * Only numeric references are decoded since named ones in richtext are markup characters and spaces.
+     *
+     * @param name reference without ampersand and semicolon
+     * @return code point of the character or a space for names not decoded
+     */
+    private static int decodeEntity(String name) {
+        if (name.startsWith("#")) {
+            boolean hex = name.startsWith("#x")||name.startsWith("#X");
+            try {
+                int codePoint = Integer.parseInt(name.substring(hex ? 2 : 1), hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) ? codePoint : ' ';
+            } catch (NumberFormatException nfe) {
+                return ' ';
+            } // try/catch
+        } // if
+        return ' ';
+    } // decodeEntity()
+
+
+    /**
+     * Split a value into index terms.
+     * Markup is skipped and entity references are decoded, so that richtext contributes the text nodes only.
+     *
+     * @param value string or richtext value
+     * @param tokens list to add the lower case tokens to
+     */
+    static void tokenize(String value, List<String> tokens) {
+        StringBuilder token = new StringBuilder(16);
+        boolean inTag = false;
+        int i = 0;
+        while (i<=value.length()) {
+            int c = i<value.length() ? value.codePointAt(i) : ' ';
+            int next = i+Character.charCount(c);
+            if (inTag) {
+                inTag = c!='>';
+            } else {
+                int end = (c=='&') ? entityEnd(value, i) : -1;
+                if (end>0) {
+                    c = decodeEntity(value.substring(i+1, end));
+                    next = end+1;
+                } // if
+                if (Character.isLetterOrDigit(c)) {
+                    token.appendCodePoint(Character.toLowerCase(c));
+                } else {
+                    if (token.length()>=MIN_TOKEN_LENGTH) {
+                        tokens.add(token.toString());
+                    } // if
+                    token.setLength(0);
+                    inTag = c=='<';
+                } // if
+            } // if
+            i = next;
+        } // while
+    } // tokenize()
+
+
+    private static int toDoc(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException nfe) {
+            return -1;
+        } // try/catch
+    } // toDoc()
+
+
+    private void removeDocument(int doc) {
+        Document document = documents.remove(doc);
+        if (document!=null) {
+            for (String term : document.terms) {
+                Postings postings = terms.get(term).remove(doc);
+                if (postings.count==0) {
+                    terms.remove(term);
+                } else {
+                    terms.put(term, postings);
+                } // if
+            } // for
+            totalLength -= document.length;
+        } // if
+    } // removeDocument()
+
+
+    /**
+     * Add a content object to the index or replace its previous entries.
+     *
+     * @param content content object with a numeric ID
+     */
+    public void update(Content content) {
+        int doc = toDoc(content.getId());
+        if (doc<0) {
+            return;
+        } // if
+        List<String> tokens = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : content.entrySet()) {
+            String name = entry.getKey();
+            boolean indexed = propertyNames==null ? !name.endsWith("_") : propertyNames.contains(name);
+            if (indexed&&(entry.getValue() instanceof String)) {
+                tokenize((String) entry.getValue(), tokens);
+            } // if
+        } // for
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        } // for
+        lock.writeLock().lock();
+        try {
+            removeDocument(doc);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = terms.get(entry.getKey());
+                if (postings==null) {
+                    postings = new Postings(8);
+                } // if
+                terms.put(entry.getKey(), postings.put(doc, entry.getValue()));
+            } // for
+            documents.put(doc, new Document(frequencies.keySet().toArray(new String[0]), tokens.size()));
+            totalLength += tokens.size();
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // update()
+
+
+    /**
+     * Remove a content object from the index.
+     *
+     * @param id ID of the object
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(toDoc(id));
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // remove()
+
+
+    private static List<Clause> parse(String query) {
+        List<Clause> result = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            char operator = (part.startsWith("+")||part.startsWith("-")) ? part.charAt(0) : ' ';
+            String text = (operator==' ') ? part : part.substring(1);
+            boolean prefix = text.endsWith("*");
+            List<String> tokens = new ArrayList<>();
+            tokenize(text, tokens);
+            for (int i = 0; (i<tokens.size())&&(result.size()<MAX_CLAUSES); i++) {
+                result.add(new Clause(tokens.get(i), operator, prefix&&(i==tokens.size()-1)));
+            } // for
+        } // for
+        return result;
+    } // parse()
+
+
+    /**
+     * Get the terms a clause matches.
+     */
+    private List<String> expand(Clause clause) {
+        if (clause.prefix) {
+            return new ArrayList<>(terms.subMap(clause.term, clause.term+Character.MAX_VALUE).keySet());
+        } // if
+        return terms.containsKey(clause.term) ? List.of(clause.term) : List.of();
+    } // expand()
+
+
+    /**
+     * Search the index.
+     *
+     * @param query terms separated by white space - +term for required terms, -term for excluded ones, and term*
+     * for prefix matches
+     * @param limit maximum number of hits
+     * @return hits ordered by descending score
+     */
+    public List<Hit> search(String query, int limit) {
+        List<Clause> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            double averageLength = n==0 ? 1 : Math.max(1d, (double) totalLength/n);
+            Map<Integer, Match> matches = new HashMap<>();
+            Set<Integer> excluded = new HashSet<>();
+            long required = 0;
+            for (int c = 0; c<clauses.size(); c++) {
+                Clause clause = clauses.get(c);
+                boolean exclude = clause.operator=='-';
+                if (clause.operator=='+') {
+                    required |= 1L<<c;
+                } // if
+                for (String term : expand(clause)) {
+                    Postings postings = terms.get(term);
+                    int[] entries = postings.decode();
+                    double idf = Math.log(1+(n-postings.count+0.5)/(postings.count+0.5));
+                    for (int i = 0; i<postings.count; i++) {
+                        int doc = entries[i*2];
+                        if (exclude) {
+                            excluded.add(doc);
+                            continue;
+                        } // if
+                        double tf = entries[i*2+1];
+                        double norm = K1*(1-B+B*documents.get(doc).length/averageLength);
+                        Match match = matches.computeIfAbsent(doc, d -> new Match());
+                        match.score += idf*tf*(K1+1)/(tf+norm);
+                        match.clauses |= 1L<<c;
+                    } // for
+                } // for
+            } // for
+            List<Hit> hits = new ArrayList<>();
+            for (Map.Entry<Integer, Match> entry : matches.entrySet()) {
+                Match match = entry.getValue();
+                if (((match.clauses&required)==required)&&!excluded.contains(entry.getKey())) {
+                    hits.add(new Hit(Integer.toString(entry.getKey()), match.score));
+                } // if
+            } // for
+            hits.sort((a, b) -> a.score==b.score ? Integer.compare(toDoc(a.id), toDoc(b.id)) : Double.compare(b.score, a.score));
+            return hits.size()>limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // search()
+
+
+    /**
+     * Index all documents of a repository with a full scan over a separate connection.
+     *
+     * @param repository repository to read the documents from
+     * @return number of indexed documents
+     * @throws SQLException in case the documents cannot be listed
+     */
+    public int indexAll(CoconatContentRepository repository) throws SQLException {
+        long start = System.currentTimeMillis();
+        int result = 0;
+        try (Connection connection = repository.openConnection()) {
+            int[] range = repository.getIdRange(connection);
+            try (IdCursor cursor = repository.openDocumentCursor(range[0], range[1]+1)) {
+                if (cursor==null) {
+                    throw new SQLException("cannot list documents");
+                } // if
+                List<String> batch = new ArrayList<>();
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if ((batch.size()>=repository.getBatchSize())||!cursor.hasNext()) {
+                        for (Content content : repository.getContents(connection, batch).values()) {
+                            update(content);
+                            result++;
+                        } // for
+                        batch.clear();
+                    } // if
+                } // while
+                if (cursor.getFailure()!=null) {
+                    throw cursor.getFailure();
+                } // if
+            } // try
+        } // try
+        LOG.info("indexAll() {} documents in {}ms", result, System.currentTimeMillis()-start);
+        return result;
+    } // indexAll()
+
+
+    /**
+     * Get the number of indexed objects.
+     *
+     * @return number of content objects in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // size()
+
+
+    /**
+     * Get the number of distinct terms.
+     *
+     * @return number of terms in the index
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // getTermCount()
+
+
+    /**
+     * Write the index to a file.
+     * The file is written under a temporary name and then moved in place, so a crash leaves the old file intact.
+     *
+     * @param file path of the snapshot file
+     * @throws IOException in case of write errors
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName()+".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(documents.size());
+            for (Map.Entry<Integer, Document> entry : documents.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().length);
+            } // for
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(postings.count);
+                out.writeInt(postings.lastDoc);
+                out.writeInt(postings.length);
+                out.write(postings.data, 0, postings.length);
+            } // for
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("save() {} documents to {}", documents.size(), file);
+    } // save()
+
+
+    /**
+     * Read an index from a file written by save().
+     *
+     * @param file path of the snapshot file
+     * @return index with the contents of the file
+     * @throws IOException in case of read errors or an unknown file format
+     */
+    public static FullTextIndex load(Path file) throws IOException {
+        FullTextIndex result = new FullTextIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if ((in.readInt()!=MAGIC)||(in.readInt()!=VERSION)) {
+                throw new IOException("unknown index format in "+file);
+            } // if
+            int documentCount = in.readInt();
+            Map<Integer, Integer> lengths = new HashMap<>(documentCount*2);
+            for (int i = 0; i<documentCount; i++) {
+                lengths.put(in.readInt(), in.readInt());
+            } // for
+            Map<Integer, List<String>> documentTerms = new HashMap<>(documentCount*2);
+            int termCount = in.readInt();
+            for (int i = 0; i<termCount; i++) {
+                String term = in.readUTF();
+                Postings postings = new Postings(0);
+                postings.count = in.readInt();
+                postings.lastDoc = in.readInt();
+                postings.length = in.readInt();
+                postings.data = new byte[postings.length];
+                in.readFully(postings.data);
+                result.terms.put(term, postings);
+                int[] entries = postings.decode();
+                for (int j = 0; j<postings.count; j++) {
+                    documentTerms.computeIfAbsent(entries[j*2], d -> new ArrayList<>()).add(term);
+                } // for
+            } // for
+            for (Map.Entry<Integer, Integer> entry : lengths.entrySet()) {
+                List<String> docTerms = documentTerms.getOrDefault(entry.getKey(), Collections.emptyList());
+                result.documents.put(entry.getKey(), new Document(docTerms.toArray(new String[0]), entry.getValue()));
+                result.totalLength += entry.getValue();
+            } // for
+        } // try
+        LOG.info("load() {} documents from {}", result.documents.size(), file);
+        return result;
+    } // load()
+
+} // FullTextIndex
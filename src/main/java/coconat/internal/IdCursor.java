@@ -0,0 +1,159 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Iterator over content IDs taken from the first column of an open result set.
+ *
+ * The underlying statement is kept open until the cursor is exhausted or closed, so that the database driver
+ * can fetch the rows in chunks of the statement's fetch size. The cursor may own a connection of its own, since
+ * some drivers only stream results outside of auto commit mode or do not allow other statements on a connection
+ * with an open streaming result set.
+ */
+public class IdCursor implements Iterator<String>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdCursor.class);
+
+    private final PreparedStatement statement;
+
+    private final Connection connection;
+
+    private ResultSet resultSet;
+
+    private String next;
+
+    private SQLException failure;
+
+
+    /**
+     * Create a cursor from a prepared statement ready for execution.
+     *
+     * @param statement statement returning content ids in its first column
+     * @throws SQLException in case the statement cannot be executed
+     */
+    public IdCursor(PreparedStatement statement) throws SQLException {
+        this(statement, null);
+    } // IdCursor()
+
+
+    /**
+     * Create a cursor from a prepared statement ready for execution on a connection used only by this cursor.
+     *
+     * @param statement statement returning content ids in its first column
+     * @param connection connection of the statement to be closed with the cursor - may be null
+     * @throws SQLException in case the statement cannot be executed
+     */
+    public IdCursor(PreparedStatement statement, Connection connection) throws SQLException {
+        this.statement = statement;
+        this.connection = connection;
+        this.resultSet = statement.executeQuery();
+    } // IdCursor()
+
+
+    @Override
+    public boolean hasNext() {
+        if ((next==null)&&(resultSet!=null)) {
+            try {
+                if (resultSet.next()) {
+                    next = ""+resultSet.getInt(1);
+                } else {
+                    close();
+                } // if
+            } catch (SQLException se) {
+                LOG.error("hasNext()", se);
+                failure = se;
+                close();
+            } // try/catch
+        } // if
+        return next!=null;
+    } // hasNext()
+
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        } // if
+        String result = next;
+        next = null;
+        return result;
+    } // next()
+
+
+    /**
+     * Get the error which ended the iteration early.
+     * A failed cursor reports no further elements, so callers needing all rows have to check this afterwards.
+     *
+     * @return exception of the failed fetch or null if the cursor did not fail
+     */
+    public SQLException getFailure() {
+        return failure;
+    }
+
+
+    /**
+     * Skip leading rows - e.g. the rows before a page.
+     *
+     * @param count number of rows to skip
+     */
+    public void skip(int count) {
+        for (int i = 0; (i<count)&&hasNext(); i++) {
+            next = null;
+        } // for
+    } // skip()
+
+
+    /**
+     * Release result set, statement, and the connection owned by the cursor.
+     * Closing is idempotent and happens automatically when the cursor is exhausted.
+     */
+    @Override
+    public void close() {
+        if (resultSet!=null) {
+            ResultSet r = resultSet;
+            resultSet = null;
+            try {
+                try {
+                    r.close();
+                } finally {
+                    try {
+                        statement.close();
+                    } finally {
+                        if (connection!=null) {
+                            connection.close();
+                        } // if
+                    } // try/finally
+                } // try/finally
+            } catch (SQLException se) {
+                LOG.error("close()", se);
+            } // try/catch
+        } // if
+    } // close()
+
+} // IdCursor
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2015-2019 Martin Goellnitz
+ * Copyright 2015-2026 Martin Goellnitz
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Lesser General Public License as published by
@@ -21,7 +21,9 @@ package coconat.internal;
 import coconat.Content;
 import coconat.Repository;
 import java.util.AbstractList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -58,4 +60,36 @@ public class LazyContentList extends AbstractList<Content> implements List<Conte
         return idList.size();
     } // size()
 
+
+    /**
+     * Get the IDs of the elements without fetching them.
+     *
+     * @return list of IDs for the elements of the content list
+     */
+    public List<String> getIds() {
+        return idList;
+    } // getIds()
+
+
+    /**
+     * Copy a content object with its link lists resolving through another repository.
+     *
+     * @param content content object to copy
+     * @param target repository the link lists of the copy fetch their elements from
+     * @param origin repository creating the copy - plain CoconatContent objects are created for other repositories
+     * @return copy of the content object
+     */
+    static Content rebind(Content content, Repository target, Repository origin) {
+        Map<String, Object> properties = new HashMap<>(content);
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            if (entry.getValue() instanceof LazyContentList) {
+                entry.setValue(new LazyContentList(target, ((LazyContentList) entry.getValue()).getIds()));
+            } // if
+        } // for
+        String type = (content instanceof CoconatContent) ? ((CoconatContent) content).getDocumentType() : null;
+        return (origin instanceof CoconatContentRepository)
+                ? ((CoconatContentRepository) origin).createContent(content.getId(), type, properties)
+                : new CoconatContent(content.getId(), type, properties);
+    } // rebind()
+
 } // LazyContentList
@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Bounded set of keys known to be missing in the repository with a short time to live.
+ *
+ * Used to remember IDs without a resource and names not found in a folder, so repeated lookups for them need no
+ * database round trip. The least recently used entries are dropped when the size limit is reached.
+ */
+public class NegativeCache {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final LongSupplier clock;
+
+    private final Map<String, Long> expiries;
+
+    private long hits;
+
+
+    /**
+     * Create a negative cache with a custom clock.
+     *
+     * @param maxSize maximum number of keys kept
+     * @param ttlMillis time in milliseconds a key is considered missing
+     * @param clock source of the current time in milliseconds
+     */
+    public NegativeCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.expiries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size()>NegativeCache.this.maxSize;
+            }
+        };
+    } // NegativeCache()
+
+
+    /**
+     * Create a negative cache.
+     *
+     * @param maxSize maximum number of keys kept
+     * @param ttlMillis time in milliseconds a key is considered missing
+     */
+    public NegativeCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+
+    /**
+     * Tell if a key has recently been found missing.
+     *
+     * @param key key to check
+     * @return true if the key is known to be missing
+     */
+    public synchronized boolean isMissing(String key) {
+        Long expiry = expiries.get(key);
+        if (expiry==null) {
+            return false;
+        } // if
+        if (expiry<=clock.getAsLong()) {
+            expiries.remove(key);
+            return false;
+        } // if
+        hits++;
+        return true;
+    } // isMissing()
+
+
+    /**
+     * Remember a key as missing.
+     *
+     * @param key key not found in the repository
+     */
+    public synchronized void addMissing(String key) {
+        expiries.put(key, clock.getAsLong()+ttlMillis);
+    }
+
+
+    /**
+     * Forget a key after the corresponding object has been created.
+     *
+     * @param key key of the created object
+     */
+    public synchronized void remove(String key) {
+        expiries.remove(key);
+    }
+
+
+    public synchronized void clear() {
+        expiries.clear();
+    }
+
+
+    public synchronized int size() {
+        return expiries.size();
+    }
+
+
+    /**
+     * Get the number of lookups answered from this cache.
+     *
+     * @return number of database round trips saved
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+} // NegativeCache
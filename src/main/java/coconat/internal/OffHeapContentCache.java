@@ -0,0 +1,356 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Content cache keeping the objects serialised outside of the Java heap.
+ *
+ * The contents are encoded with a compact binary format and written to a ring of fixed size direct buffers - the
+ * slabs. New records are appended to the current slab, and when the ring is full, the oldest slab is dropped as a
+ * whole together with all entries in it. Only the index from ID to record position stays on the heap, so even a
+ * large cache adds little to the old generation. Objects read from the cache decode their properties on first
+ * access, and blobs are kept as references loading their data from the repository when needed.
+ *
+ * Contents with values the format cannot express are not cached. The additional properties of the repository are
+ * not stored but added again when decoding. Use an instance as the content cache of the repository passed to the
+ * constructor.
+ */
+public class OffHeapContentCache extends AbstractMap<String, Content> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapContentCache.class);
+
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    private static final int DEFAULT_MAX_LAYOUTS = 1024;
+
+    private final CoconatContentRepository repository;
+
+    private final ContentCodec codec;
+
+    private final ByteBuffer[] slabs;
+
+    private final List<List<String>> slabKeys;
+
+    private final Map<String, Long> index = new HashMap<>();
+
+    private int currentSlab;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+
+    /**
+     * Properties of a cached content object decoded on first access.
+     */
+    private final class LazyProperties extends AbstractMap<String, Object> {
+
+        private final byte[] record;
+
+        // kept with the record since the codec forgets its layouts when the cache is cleared
+        private final String[] layout;
+
+        private Map<String, Object> properties;
+
+
+        LazyProperties(byte[] record, String[] layout) {
+            this.record = record;
+            this.layout = layout;
+        }
+
+
+        private Map<String, Object> properties() {
+            if (properties==null) {
+                properties = codec.decodeProperties(record, layout, repository);
+                properties.putAll(repository.getAdditionalProperties());
+            } // if
+            return properties;
+        } // properties()
+
+
+        @Override
+        public Object get(Object key) {
+            return properties().get(key);
+        }
+
+
+        @Override
+        public boolean containsKey(Object key) {
+            return properties().containsKey(key);
+        }
+
+
+        @Override
+        public Object put(String key, Object value) {
+            return properties().put(key, value);
+        }
+
+
+        @Override
+        public Object remove(Object key) {
+            return properties().remove(key);
+        }
+
+
+        @Override
+        public int size() {
+            return properties().size();
+        }
+
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return properties().entrySet();
+        }
+
+    } // LazyProperties
+
+
+    /**
+     * Create an off-heap cache.
+     *
+     * @param repository repository the cached objects are resolving their links and blobs through
+     * @param slabSize size of one slab in bytes - which also limits the size of a single record
+     * @param slabCount number of slabs - the capacity of the cache is slabSize * slabCount bytes
+     */
+    public OffHeapContentCache(CoconatContentRepository repository, int slabSize, int slabCount) {
+        this(repository, slabSize, slabCount, DEFAULT_MAX_LAYOUTS);
+    } // OffHeapContentCache()
+
+
+    /**
+     * Create an off-heap cache with a limited number of property layouts.
+     * Objects needing a layout beyond the limit are not cached until the cache is cleared.
+     *
+     * @param repository repository the cached objects are resolving their links and blobs through
+     * @param slabSize size of one slab in bytes - which also limits the size of a single record
+     * @param slabCount number of slabs - the capacity of the cache is slabSize * slabCount bytes
+     * @param maxLayouts maximum number of distinct combinations of document type and property names
+     */
+    public OffHeapContentCache(CoconatContentRepository repository, int slabSize, int slabCount, int maxLayouts) {
+        if ((slabSize<=HEADER_SIZE)||(slabCount<2)) {
+            throw new IllegalArgumentException("at least two slabs larger than "+HEADER_SIZE+" bytes needed");
+        } // if
+        this.repository = repository;
+        this.codec = new ContentCodec(maxLayouts);
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabKeys = new ArrayList<>(slabCount);
+        for (int i = 0; i<slabCount; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(slabSize);
+            slabKeys.add(new ArrayList<>());
+        } // for
+        LOG.info("() {} slabs of {} bytes", slabCount, slabSize);
+    } // OffHeapContentCache()
+
+
+    private static long location(int slab, int offset) {
+        return ((long) slab<<32)|offset;
+    }
+
+
+    private static int slab(long location) {
+        return (int) (location>>>32);
+    }
+
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+
+    /**
+     * Move on to the next slab dropping all entries still stored there.
+     */
+    private void nextSlab() {
+        currentSlab = (currentSlab+1)%slabs.length;
+        List<String> keys = slabKeys.get(currentSlab);
+        for (String key : keys) {
+            Long location = index.get(key);
+            if ((location!=null)&&(slab(location)==currentSlab)) {
+                index.remove(key);
+                evictions++;
+            } // if
+        } // for
+        keys.clear();
+        slabs[currentSlab].clear();
+    } // nextSlab()
+
+
+    @Override
+    public synchronized Content get(Object key) {
+        Long location = index.get(key);
+        if (location==null) {
+            misses++;
+            return null;
+        } // if
+        hits++;
+        ByteBuffer buffer = slabs[slab(location)].duplicate();
+        buffer.position(offset(location));
+        byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        String[] header = codec.decodeHeader(record);
+        return repository.createContent(header[1], header[0], new LazyProperties(record, codec.getLayout(record)));
+    } // get()
+
+
+    /**
+     * Store a content object in the cache.
+     * Objects which cannot be encoded are silently not cached.
+     *
+     * @param key ID of the content object
+     * @param value content object
+     * @return always null - previous values are not decoded
+     */
+    @Override
+    public synchronized Content put(String key, Content value) {
+        index.remove(key);
+        byte[] record = (value instanceof CoconatContent) ? codec.encode((CoconatContent) value, repository.getAdditionalProperties()) : null;
+        if ((record==null)||(record.length+HEADER_SIZE>slabs[0].capacity())) {
+            LOG.debug("put() not caching {}", key);
+            return null;
+        } // if
+        ByteBuffer slab = slabs[currentSlab];
+        if (slab.remaining()<record.length+HEADER_SIZE) {
+            nextSlab();
+            slab = slabs[currentSlab];
+        } // if
+        index.put(key, location(currentSlab, slab.position()));
+        slabKeys.get(currentSlab).add(key);
+        slab.putInt(record.length);
+        slab.put(record);
+        return null;
+    } // put()
+
+
+    @Override
+    public synchronized Content remove(Object key) {
+        index.remove(key);
+        return null;
+    }
+
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return index.containsKey(key);
+    }
+
+
+    @Override
+    public synchronized int size() {
+        return index.size();
+    }
+
+
+    @Override
+    public synchronized void clear() {
+        index.clear();
+        for (int i = 0; i<slabs.length; i++) {
+            slabs[i].clear();
+            slabKeys.get(i).clear();
+        } // for
+        currentSlab = 0;
+        codec.clear();
+    } // clear()
+
+
+    /**
+     * Get a snapshot of the cached entries.
+     * Each entry is decoded on access, so iterating over the whole cache is expensive.
+     *
+     * @return set of entries for the IDs in the cache at the time of the call
+     */
+    @Override
+    public synchronized Set<Entry<String, Content>> entrySet() {
+        Set<Entry<String, Content>> result = new HashSet<>();
+        for (String key : index.keySet()) {
+            result.add(new SimpleImmutableEntry<>(key, get(key)));
+        } // for
+        return result;
+    } // entrySet()
+
+
+    /**
+     * Get the number of off-heap bytes allocated for the slabs.
+     *
+     * @return capacity of the cache in bytes
+     */
+    public long getCapacity() {
+        return (long) slabs.length*slabs[0].capacity();
+    }
+
+
+    /**
+     * Get the number of bytes used by records - including records already removed but not yet evicted.
+     *
+     * @return bytes written to the slabs
+     */
+    public synchronized long getUsedBytes() {
+        long result = 0;
+        for (ByteBuffer slab : slabs) {
+            result += slab.position();
+        } // for
+        return result;
+    } // getUsedBytes()
+
+
+    /**
+     * Get the number of distinct property layouts of the cached objects.
+     *
+     * @return number of layouts shared by the records
+     */
+    public int getLayoutCount() {
+        return codec.getLayoutCount();
+    }
+
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Get the number of entries dropped because their slab was reused.
+     *
+     * @return number of evicted entries
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+} // OffHeapContentCache
@@ -0,0 +1,374 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Secondary index mapping the values of one property of a document type - including its subtypes - to the IDs of
+ * the documents holding them in their latest version.
+ *
+ * Values are kept in sorted order, so besides equality lookups also range lookups are supported. The IDs for each
+ * value are held as a sorted int array. Instances are created and maintained by the repository. While the initial
+ * scan is running, the IDs of changed documents are collected so that the repository can read them again after
+ * the scan.
+ */
+public final class PropertyIndex {
+
+    private final String type;
+
+    private final String propertyName;
+
+    private final List<String> types;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<Object, int[]> ids = new TreeMap<>();
+
+    private final Map<Integer, Object> values = new HashMap<>();
+
+    private Set<Integer> changed = new HashSet<>();
+
+
+    PropertyIndex(String type, String propertyName, List<String> types) {
+        this.type = type;
+        this.propertyName = propertyName;
+        this.types = Collections.unmodifiableList(new ArrayList<>(types));
+    } // PropertyIndex()
+
+
+    public String getType() {
+        return type;
+    }
+
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+
+    /**
+     * Get the document types covered by this index.
+     *
+     * @return the indexed type and all of its subtypes with the property
+     */
+    public List<String> getTypes() {
+        return types;
+    }
+
+
+    /**
+     * Convert a lookup value to the class of the indexed values, so that e.g. strings can be used for numeric
+     * properties.
+     *
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    private Object normalise(Object value) {
+        if ((value==null)||ids.isEmpty()) {
+            return value;
+        } // if
+        Class<?> valueClass = ids.firstKey().getClass();
+        if (valueClass.isInstance(value)) {
+            return value;
+        } // if
+        String text = value.toString();
+        try {
+            if (valueClass==String.class) {
+                return text;
+            } // if
+            if (valueClass==Integer.class) {
+                return (value instanceof Number) ? ((Number) value).intValue() : Integer.valueOf(text);
+            } // if
+            if (valueClass==Long.class) {
+                return (value instanceof Number) ? ((Number) value).longValue() : Long.valueOf(text);
+            } // if
+            if (valueClass==Short.class) {
+                return (value instanceof Number) ? ((Number) value).shortValue() : Short.valueOf(text);
+            } // if
+            if (valueClass==Byte.class) {
+                return (value instanceof Number) ? ((Number) value).byteValue() : Byte.valueOf(text);
+            } // if
+            if (valueClass==Double.class) {
+                return (value instanceof Number) ? ((Number) value).doubleValue() : Double.valueOf(text);
+            } // if
+            if (valueClass==Float.class) {
+                return (value instanceof Number) ? ((Number) value).floatValue() : Float.valueOf(text);
+            } // if
+            if (valueClass==BigDecimal.class) {
+                return new BigDecimal(text);
+            } // if
+            if ((valueClass==Boolean.class)&&("true".equalsIgnoreCase(text)||"false".equalsIgnoreCase(text))) {
+                return Boolean.valueOf(text);
+            } // if
+            if ((valueClass==Timestamp.class)&&(value instanceof Date)) {
+                return new Timestamp(((Date) value).getTime());
+            } // if
+            if ((valueClass==java.sql.Date.class)&&(value instanceof Date)) {
+                return new java.sql.Date(((Date) value).getTime());
+            } // if
+            if ((valueClass==Date.class)&&(value instanceof Date)) {
+                return new Date(((Date) value).getTime());
+            } // if
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("cannot convert '"+text+"' to "+valueClass.getSimpleName()+" for index "+this, nfe);
+        } // try/catch
+        throw new IllegalArgumentException("cannot compare "+value.getClass().getSimpleName()+" with "+valueClass.getSimpleName()
+                +" values of index "+this);
+    } // normalise()
+
+
+    private static void addIds(int[] array, List<String> result) {
+        for (int id : array) {
+            result.add(Integer.toString(id));
+        } // for
+    } // addIds()
+
+
+    /**
+     * Get the IDs of the documents with a given value.
+     *
+     * @param value value to look for
+     * @return IDs in ascending order
+     * @throws IllegalArgumentException if the value cannot be converted to the type of the indexed values
+     */
+    public List<String> get(Object value) {
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[] array = (value==null) ? null : ids.get(normalise(value));
+            if (array!=null) {
+                addIds(array, result);
+            } // if
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+        return result;
+    } // get()
+
+
+    /**
+     * Get the IDs of the documents with a value in a given range.
+     *
+     * @param from lower bound - null for no lower bound
+     * @param fromInclusive true if the lower bound itself is part of the range
+     * @param to upper bound - null for no upper bound
+     * @param toInclusive true if the upper bound itself is part of the range
+     * @return IDs in the order of their values
+     * @throws IllegalArgumentException if a bound cannot be converted to the type of the indexed values
+     */
+    public List<String> getRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            NavigableMap<Object, int[]> range = ids;
+            if (from!=null) {
+                range = range.tailMap(normalise(from), fromInclusive);
+            } // if
+            if (to!=null) {
+                range = range.headMap(normalise(to), toInclusive);
+            } // if
+            for (int[] array : range.values()) {
+                addIds(array, result);
+            } // for
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+        return result;
+    } // getRange()
+
+
+    /**
+     * Get the indexed value of a document.
+     *
+     * @param id ID of the document
+     * @return value of the property in the latest version or null
+     */
+    public Object getValue(String id) {
+        lock.readLock().lock();
+        try {
+            return values.get(Integer.valueOf(id));
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // getValue()
+
+
+    /**
+     * Get the number of indexed documents.
+     *
+     * @return number of documents with a non null value
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // size()
+
+
+    /**
+     * Get the number of distinct values.
+     *
+     * @return number of distinct non null values
+     */
+    public int getValueCount() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        } // try/catch
+    } // getValueCount()
+
+
+    private void removeUnlocked(int id) {
+        Object old = values.remove(id);
+        if (old!=null) {
+            int[] array = ids.get(old);
+            int position = Arrays.binarySearch(array, id);
+            if (array.length==1) {
+                ids.remove(old);
+            } else {
+                int[] shrunk = new int[array.length-1];
+                System.arraycopy(array, 0, shrunk, 0, position);
+                System.arraycopy(array, position+1, shrunk, position, shrunk.length-position);
+                ids.put(old, shrunk);
+            } // if
+        } // if
+    } // removeUnlocked()
+
+
+    /**
+     * Replace the contents of the index.
+     *
+     * @param latest map of document IDs to their values - null values are not indexed
+     */
+    void load(Map<Integer, Object> latest) {
+        Map<Object, List<Integer>> grouped = new HashMap<>();
+        for (Map.Entry<Integer, Object> entry : latest.entrySet()) {
+            if (entry.getValue()!=null) {
+                grouped.computeIfAbsent(entry.getValue(), v -> new ArrayList<>()).add(entry.getKey());
+            } // if
+        } // for
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            values.clear();
+            for (Map.Entry<Object, List<Integer>> entry : grouped.entrySet()) {
+                int[] array = new int[entry.getValue().size()];
+                for (int i = 0; i<array.length; i++) {
+                    array[i] = entry.getValue().get(i);
+                    values.put(array[i], entry.getKey());
+                } // for
+                Arrays.sort(array);
+                ids.put(entry.getKey(), array);
+            } // for
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // load()
+
+
+    /**
+     * Get the documents changed since the last call while the initial scan is running.
+     * When no changes are left, the index is marked as complete and no further changes are collected.
+     *
+     * @return IDs of the changed documents - empty when the index is complete
+     */
+    Set<Integer> drainChanges() {
+        lock.writeLock().lock();
+        try {
+            Set<Integer> result = (changed==null) ? Collections.emptySet() : changed;
+            changed = result.isEmpty() ? null : new HashSet<>();
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // drainChanges()
+
+
+    /**
+     * Set the value of a document.
+     *
+     * @param id ID of the document
+     * @param value value of the property in the latest version - null to remove the document
+     */
+    void put(int id, Object value) {
+        lock.writeLock().lock();
+        try {
+            if (changed!=null) {
+                changed.add(id);
+            } // if
+            removeUnlocked(id);
+            if (value!=null) {
+                values.put(id, value);
+                int[] array = ids.get(value);
+                if (array==null) {
+                    ids.put(value, new int[]{id});
+                } else {
+                    int position = -Arrays.binarySearch(array, id)-1;
+                    int[] grown = new int[array.length+1];
+                    System.arraycopy(array, 0, grown, 0, position);
+                    grown[position] = id;
+                    System.arraycopy(array, position, grown, position+1, array.length-position);
+                    ids.put(value, grown);
+                } // if
+            } // if
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // put()
+
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (changed!=null) {
+                changed.add(id);
+            } // if
+            removeUnlocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        } // try/catch
+    } // remove()
+
+
+    @Override
+    public String toString() {
+        return type+"#"+propertyName;
+    }
+
+} // PropertyIndex
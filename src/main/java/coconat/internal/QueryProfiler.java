@@ -0,0 +1,334 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+
+/**
+ * Statistics of the SQL statements executed by a repository grouped by query shape.
+ *
+ * The shape of a statement is its SQL with literals replaced by bind markers, lists of bind markers in IN clauses
+ * collapsed, and whitespace normalised, so all lookups of the same kind share one shape regardless of their IDs.
+ * For each shape the number of executions, the rows read, and the execution time are collected. Tests can
+ * record the statements issued by a piece of code on the current thread and assert a budget for them, while the
+ * top shapes by time point to the expensive queries of a running system.
+ */
+public class QueryProfiler {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.\"])-?\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // bounded like the baselines of the limiter - statements with inlined values not caught by normalize() would
+    // otherwise add shapes without end
+    private static final int MAX_SHAPES = 256;
+
+    private final Map<String, Shape> shapes = new LinkedHashMap<>(64, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Shape> eldest) {
+            return size()>MAX_SHAPES;
+        }
+
+    };
+
+    private final ThreadLocal<Recording> recordings = new ThreadLocal<>();
+
+
+    /**
+     * Collected values of one query shape.
+     */
+    public static final class Shape {
+
+        private final String sql;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+
+        /**
+         * Get the normalised SQL.
+         *
+         * @return SQL of the shape with bind markers for all values
+         */
+        public String getSql() {
+            return sql;
+        }
+
+
+        public long getCount() {
+            return count.sum();
+        }
+
+
+        /**
+         * Get the number of rows read from the result sets of all executions.
+         *
+         * @return number of rows
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+
+        /**
+         * Get the time spent executing statements of this shape - without reading the results.
+         *
+         * @return sum of the execution times in nanoseconds
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%8d x %8.2f ms %8d rows  %s", getCount(), getNanos()/1e6, getRows(), sql);
+        }
+
+    } // Shape
+
+
+    /**
+     * Statements executed by the current thread between the start of a recording and its end.
+     * Recordings can be nested and each of them sees the statements of the inner ones.
+     */
+    public final class Recording implements AutoCloseable {
+
+        private final Recording outer;
+
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+        private int queries;
+
+        private boolean closed;
+
+
+        Recording(Recording outer) {
+            this.outer = outer;
+        }
+
+
+        void add(Shape shape) {
+            for (Recording r = this; r!=null; r = r.outer) {
+                r.queries++;
+                r.counts.merge(shape.getSql(), 1, Integer::sum);
+            } // for
+        } // add()
+
+
+        /**
+         * Get the number of statements executed so far.
+         *
+         * @return number of database round trips
+         */
+        public int getQueryCount() {
+            return queries;
+        }
+
+
+        /**
+         * Get the executed statements grouped by shape.
+         *
+         * @return map of the normalised SQL to the number of executions in order of the first execution
+         */
+        public Map<String, Integer> getShapes() {
+            return new LinkedHashMap<>(counts);
+        }
+
+
+        /**
+         * Check the number of statements executed so far against a budget.
+         *
+         * @param maxQueries maximum number of statements allowed
+         * @return this recording for further checks
+         * @throws AssertionError listing the executed shapes if the budget is exceeded
+         */
+        public Recording assertAtMost(int maxQueries) {
+            if (queries>maxQueries) {
+                StringBuilder message = new StringBuilder(256);
+                message.append("expected at most ").append(maxQueries).append(" queries but got ").append(queries);
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    message.append("\n  ").append(entry.getValue()).append(" x ").append(entry.getKey());
+                } // for
+                throw new AssertionError(message.toString());
+            } // if
+            return this;
+        } // assertAtMost()
+
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                recordings.set(outer);
+            } // if
+        } // close()
+
+    } // Recording
+
+
+    /**
+     * Normalise a statement to its query shape.
+     *
+     * @param sql SQL as passed to the database
+     * @return SQL with literals and bind marker lists replaced
+     */
+    public static String normalize(String sql) {
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("IN (?...)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    } // normalize()
+
+
+    Shape getShape(String sql) {
+        String key = normalize(sql);
+        synchronized (shapes) {
+            return shapes.computeIfAbsent(key, Shape::new);
+        } // synchronized
+    } // getShape()
+
+
+    void executed(Shape shape, long nanos) {
+        shape.count.increment();
+        shape.nanos.add(nanos);
+        shape.maxNanos.accumulateAndGet(nanos, Math::max);
+        Recording recording = recordings.get();
+        if (recording!=null) {
+            recording.add(shape);
+        } // if
+    } // executed()
+
+
+    /**
+     * Wrap a result set to count the rows read for a shape.
+     */
+    ResultSet wrap(ResultSet resultSet, Shape shape) {
+        if (resultSet==null) {
+            return null;
+        } // if
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            try {
+                Object result = method.invoke(resultSet, args);
+                if ("next".equals(method.getName())&&Boolean.TRUE.equals(result)) {
+                    shape.rows.increment();
+                } // if
+                return result;
+            } catch (InvocationTargetException ite) {
+                throw ite.getCause();
+            } // try/catch
+        });
+    } // wrap()
+
+
+    /**
+     * Start recording the statements of the current thread.
+     * Use with try-with-resources to end the recording.
+     *
+     * @return new recording
+     */
+    public Recording record() {
+        Recording recording = new Recording(recordings.get());
+        recordings.set(recording);
+        return recording;
+    } // record()
+
+
+    /**
+     * Get all shapes seen so far - except the least recently executed ones beyond the limit of shapes kept.
+     *
+     * @return list of the shapes in no particular order
+     */
+    public List<Shape> getShapes() {
+        synchronized (shapes) {
+            return new ArrayList<>(shapes.values());
+        } // synchronized
+    } // getShapes()
+
+
+    /**
+     * Get the most expensive shapes.
+     *
+     * @param limit maximum number of shapes to return
+     * @return shapes sorted by the total execution time - longest first
+     */
+    public List<Shape> getTop(int limit) {
+        List<Shape> result = getShapes();
+        result.sort(Comparator.comparingLong(Shape::getNanos).reversed());
+        return result.subList(0, Math.min(limit, result.size()));
+    } // getTop()
+
+
+    /**
+     * Format the most expensive shapes for a log file or a diagnostics page.
+     *
+     * @param limit maximum number of shapes to list
+     * @return one line per shape with count, total time, rows, and SQL
+     */
+    public String report(int limit) {
+        StringBuilder result = new StringBuilder(1024);
+        for (Shape shape : getTop(limit)) {
+            result.append(shape).append('\n');
+        } // for
+        return result.toString();
+    } // report()
+
+
+    /**
+     * Discard all collected values.
+     */
+    public void reset() {
+        synchronized (shapes) {
+            shapes.clear();
+        } // synchronized
+    } // reset()
+
+} // QueryProfiler
@@ -0,0 +1,254 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Cache for ID listings keyed by the normalised query parameters.
+ *
+ * IDs are stored as int arrays. Each entry remembers the document type and the parent folder it depends on, so it
+ * can be dropped when a resource of that type or in that folder changes. Listings which were loaded while an
+ * invalidation happened are not stored, since they may already be outdated. The total number of cached IDs is
+ * bounded and the least recently used entries are evicted first.
+ */
+public class QueryResultCache {
+
+    private final long maxWeight;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    /**
+     * number of invalidations so far
+     */
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+
+    /**
+     * Cached listing with the attributes it depends on.
+     */
+    private static final class Entry {
+
+        private final int[] ids;
+
+        private final String type;
+
+        private final String parentId;
+
+
+        Entry(int[] ids, String type, String parentId) {
+            this.ids = ids;
+            this.type = type;
+            this.parentId = parentId;
+        }
+
+
+        long weight() {
+            return ids.length+1;
+        }
+
+    } // Entry
+
+
+    /**
+     * Create a query result cache.
+     *
+     * @param maxWeight maximum number of IDs kept over all entries
+     */
+    public QueryResultCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+
+    /**
+     * Build a cache key from the parameters of a query.
+     * The values are taken as they are - white space may be significant in literals and patterns - with the
+     * separator escaped, so different parameters never share a key.
+     *
+     * @param parameters query parameters - may contain null values
+     * @return cache key
+     */
+    public static String key(Object... parameters) {
+        StringBuilder key = new StringBuilder(64);
+        for (Object parameter : parameters) {
+            if (parameter==null) {
+                key.append("\\N");
+            } else {
+                String value = parameter.toString();
+                for (int i = 0; i<value.length(); i++) {
+                    char c = value.charAt(i);
+                    if ((c=='\\')||(c=='|')) {
+                        key.append('\\');
+                    } // if
+                    key.append(c);
+                } // for
+            } // if
+            key.append('|');
+        } // for
+        return key.toString();
+    } // key()
+
+
+    /**
+     * Get the current invalidation generation.
+     * Take it before loading a listing and pass it to put(), so the listing is dropped if an invalidation
+     * happened while it was loaded.
+     *
+     * @return number of invalidations so far
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+
+    /**
+     * Get a cached listing.
+     *
+     * @param key cache key from key()
+     * @return list of IDs or null if the listing is not cached
+     */
+    public synchronized List<String> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry==null) {
+            misses++;
+            return null;
+        } // if
+        hits++;
+        List<String> result = new ArrayList<>(entry.ids.length);
+        for (int id : entry.ids) {
+            result.add(Integer.toString(id));
+        } // for
+        return result;
+    } // get()
+
+
+    /**
+     * Store a listing.
+     *
+     * @param key cache key from key()
+     * @param ids IDs of the listing
+     * @param type document type the listing depends on - null if it depends on all types
+     * @param parentId folder the listing depends on - null if it does not depend on a folder
+     */
+    public synchronized void put(String key, Collection<String> ids, String type, String parentId) {
+        put(key, ids, type, parentId, generation);
+    } // put()
+
+
+    /**
+     * Store a listing unless the cache has been invalidated since the listing was loaded.
+     *
+     * @param key cache key from key()
+     * @param ids IDs of the listing
+     * @param type document type the listing depends on - null if it depends on all types
+     * @param parentId folder the listing depends on - null if it does not depend on a folder
+     * @param loadGeneration value of getGeneration() taken before the listing was loaded
+     */
+    public synchronized void put(String key, Collection<String> ids, String type, String parentId, long loadGeneration) {
+        if (loadGeneration!=generation) {
+            return;
+        } // if
+        int[] values = new int[ids.size()];
+        int i = 0;
+        for (String id : ids) {
+            values[i++] = Integer.parseInt(id);
+        } // for
+        Entry entry = new Entry(values, type, parentId);
+        if (entry.weight()>maxWeight) {
+            return;
+        } // if
+        Entry previous = entries.put(key, entry);
+        if (previous!=null) {
+            weight -= previous.weight();
+        } // if
+        weight += entry.weight();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((weight>maxWeight)&&iterator.hasNext()) {
+            weight -= iterator.next().weight();
+            iterator.remove();
+        } // while
+    } // put()
+
+
+    /**
+     * Drop all listings affected by a change of a resource.
+     *
+     * @param type document type of the changed resource - null for folders
+     * @param parentId folder of the changed resource
+     */
+    public synchronized void invalidate(String type, String parentId) {
+        generation++;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            boolean typeMatch = (entry.type==null)||Objects.equals(entry.type, type);
+            boolean folderMatch = (entry.parentId==null)||Objects.equals(entry.parentId, parentId);
+            if (typeMatch&&folderMatch) {
+                weight -= entry.weight();
+                iterator.remove();
+            } // if
+        } // while
+    } // invalidate()
+
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Get the number of IDs currently cached.
+     *
+     * @return total weight of all entries
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+} // QueryResultCache
@@ -0,0 +1,861 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Routing of read queries over several equivalent databases - e.g. the replicas of a live server.
+ *
+ * Connections handed out by the router look like plain JDBC connections, but each statement is executed on the
+ * endpoint with the lowest smoothed latency weighted by its outstanding calls. Calls failing with connection
+ * errors are transparently repeated on the next endpoint. After a number of consecutive failures - or calls
+ * slower than the slow call limit - an endpoint is taken out of rotation for some time and then probed again
+ * with a single call. Optionally a lookup not answered within the hedge delay is sent to a second endpoint as
+ * well and the first answer wins. The slower call is cancelled and its endpoint connection is replaced, so later
+ * statements neither wait for it nor share the connection with it.
+ */
+public class ReplicaRouter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Health and latency statistics of one database endpoint.
+     */
+    public static final class Endpoint {
+
+        private final String url;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicLong requests = new AtomicLong();
+
+        private final AtomicLong failures = new AtomicLong();
+
+        private double latencyNanos = -1;
+
+        private int consecutiveFailures;
+
+        private boolean healthy = true;
+
+        private long openUntil;
+
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+
+        public String getUrl() {
+            return url;
+        }
+
+
+        /**
+         * Get the smoothed latency of the calls to this endpoint.
+         *
+         * @return latency in milliseconds - negative if no call has been measured yet
+         */
+        public synchronized double getLatencyMillis() {
+            return latencyNanos<0 ? latencyNanos : latencyNanos/1_000_000d;
+        }
+
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+
+        synchronized boolean isAvailable(long now) {
+            return openUntil<=now;
+        }
+
+
+        /**
+         * Take the endpoint for a probe call if it is out of rotation and its open time has passed.
+         * Only one caller gets the probe - the others wait for another open time.
+         */
+        synchronized boolean takeProbe(long now, long openMillis) {
+            if (healthy||(openUntil>now)) {
+                return false;
+            } // if
+            openUntil = now+openMillis;
+            return true;
+        } // takeProbe()
+
+
+        /**
+         * Tell if the endpoint is in rotation.
+         *
+         * @return false from opening the circuit of the endpoint until a call succeeds again
+         */
+        public synchronized boolean isHealthy() {
+            return healthy;
+        }
+
+
+        synchronized double getScore() {
+            return Math.max(latencyNanos, 0)*(outstanding.get()+1);
+        }
+
+
+        synchronized void record(long nanos, boolean failed, ReplicaRouter router) {
+            if (!failed) {
+                latencyNanos = latencyNanos<0 ? nanos : (1-SMOOTHING)*latencyNanos+SMOOTHING*nanos;
+            } // if
+            boolean slow = (router.slowMillis>0)&&(nanos>router.slowMillis*1_000_000L);
+            if (failed||slow) {
+                failures.incrementAndGet();
+                consecutiveFailures++;
+                if (consecutiveFailures>=router.failureThreshold) {
+                    healthy = false;
+                    openUntil = router.clock.getAsLong()+router.openMillis;
+                    LOG.warn("record() taking {} out of rotation after {} failures", url, consecutiveFailures);
+                } // if
+            } else {
+                consecutiveFailures = 0;
+                healthy = true;
+                openUntil = 0;
+            } // if
+        } // record()
+
+
+        @Override
+        public String toString() {
+            return url;
+        }
+
+    } // Endpoint
+
+
+    /**
+     * Statements of a hedged call still executing, so that the slower one can be cancelled once the other one
+     * has answered.
+     */
+    private static final class HedgedCall {
+
+        private final Map<Statement, Endpoint> running = new ConcurrentHashMap<>();
+
+        private volatile boolean decided;
+
+    } // HedgedCall
+
+
+    /**
+     * Call to be executed against one endpoint.
+     */
+    private interface EndpointCall<T> {
+
+        T call(Endpoint endpoint) throws SQLException;
+
+    } // EndpointCall
+
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    private final String dbUser;
+
+    private final String dbPassword;
+
+    private final LongSupplier clock;
+
+    private int failureThreshold = 3;
+
+    private long openMillis = 5000;
+
+    private long slowMillis;
+
+    private long hedgeDelayMillis;
+
+    private ExecutorService hedgeExecutor;
+
+    private final AtomicLong failovers = new AtomicLong();
+
+    private final AtomicLong hedges = new AtomicLong();
+
+
+    /**
+     * Create a router with a custom clock for the circuit breaking.
+     *
+     * @param dbUrls JDBC URLs of the equivalent databases
+     * @param dbUser user name to be used for the connections
+     * @param dbPassword password to be used for the connections
+     * @param clock source of the current time in milliseconds
+     */
+    public ReplicaRouter(List<String> dbUrls, String dbUser, String dbPassword, LongSupplier clock) {
+        if (dbUrls.isEmpty()) {
+            throw new IllegalArgumentException("at least one database URL needed");
+        } // if
+        for (String url : dbUrls) {
+            endpoints.add(new Endpoint(url));
+        } // for
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
+        this.clock = clock;
+    } // ReplicaRouter()
+
+
+    /**
+     * Create a router.
+     *
+     * @param dbUrls JDBC URLs of the equivalent databases
+     * @param dbUser user name to be used for the connections
+     * @param dbPassword password to be used for the connections
+     */
+    public ReplicaRouter(List<String> dbUrls, String dbUser, String dbPassword) {
+        this(dbUrls, dbUser, dbPassword, System::currentTimeMillis);
+    }
+
+
+    /**
+     * Set the number of consecutive failed or slow calls after which an endpoint is taken out of rotation.
+     *
+     * @param failureThreshold number of failures - default 3
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+
+    /**
+     * Set the time an endpoint stays out of rotation before it is probed again.
+     *
+     * @param openMillis time in milliseconds - default 5000
+     */
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+
+    /**
+     * Set the latency above which a call counts as failure for the circuit breaking.
+     *
+     * @param slowMillis limit in milliseconds - 0 to disable
+     */
+    public void setSlowMillis(long slowMillis) {
+        this.slowMillis = slowMillis;
+    }
+
+
+    /**
+     * Set the time after which a query is sent to a second endpoint as well.
+     *
+     * @param hedgeDelayMillis delay in milliseconds - 0 disables hedging
+     */
+    public synchronized void setHedgeDelayMillis(long hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        if ((hedgeDelayMillis>0)&&(hedgeExecutor==null)) {
+            hedgeExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "replica-hedge");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } // if
+    } // setHedgeDelayMillis()
+
+
+    /**
+     * Get the endpoints in the order they would be tried for the next call.
+     *
+     * @return list of endpoints starting with the preferred one
+     */
+    public List<Endpoint> getEndpoints() {
+        return rank(false);
+    }
+
+
+    /**
+     * Order the endpoints for a call.
+     *
+     * @param probe true to put an endpoint due for a probe call in front
+     */
+    private List<Endpoint> rank(boolean probe) {
+        long now = clock.getAsLong();
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        List<Endpoint> open = new ArrayList<>();
+        Endpoint probed = null;
+        for (Endpoint endpoint : endpoints) {
+            if (probe&&(probed==null)&&endpoint.takeProbe(now, openMillis)) {
+                probed = endpoint;
+            } else {
+                (endpoint.isAvailable(now) ? available : open).add(endpoint);
+            } // if
+        } // for
+        available.sort(Comparator.comparingDouble(Endpoint::getScore));
+        if (probed!=null) {
+            available.add(0, probed);
+        } // if
+        // endpoints out of rotation are only tried as last resort
+        open.sort(Comparator.comparingLong(e -> e.openUntil));
+        available.addAll(open);
+        return available;
+    } // rank()
+
+
+    /**
+     * Get the number of calls repeated on another endpoint after a failure.
+     *
+     * @return number of fail overs
+     */
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+
+    /**
+     * Get the number of calls sent to a second endpoint because the first one was too slow.
+     *
+     * @return number of hedged calls
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+
+    /**
+     * Get a connection routing its statements over the endpoints.
+     * Connections to the endpoints are opened on first use. Each routing connection holds its own endpoint
+     * connections, so it can be used in the same way as a plain connection.
+     *
+     * @return routing connection
+     */
+    public Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new RoutedConnection());
+    }
+
+
+    /**
+     * Tell if an exception indicates a problem of the endpoint rather than of the statement.
+     */
+    private static boolean isEndpointFailure(SQLException se) {
+        String state = se.getSQLState();
+        return (se instanceof SQLRecoverableException)||(se instanceof SQLTransientConnectionException)
+                ||(se instanceof SQLNonTransientConnectionException)||(se instanceof SQLTimeoutException)
+                ||((state!=null)&&state.startsWith("08"));
+    } // isEndpointFailure()
+
+
+    private static Object invoke(Object target, Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ite) {
+            Throwable cause = ite.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } // if
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } // if
+            throw new SQLException(cause);
+        } catch (IllegalAccessException iae) {
+            throw new SQLException(iae);
+        } // try/catch
+    } // invoke()
+
+
+    /**
+     * Execute a call on one endpoint and record its outcome.
+     */
+    private <T> T attempt(Endpoint endpoint, EndpointCall<T> call) throws SQLException {
+        endpoint.requests.incrementAndGet();
+        endpoint.outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.call(endpoint);
+            endpoint.record(System.nanoTime()-start, false, this);
+            return result;
+        } catch (SQLException se) {
+            boolean failed = isEndpointFailure(se);
+            endpoint.record(System.nanoTime()-start, failed, this);
+            throw se;
+        } finally {
+            endpoint.outstanding.decrementAndGet();
+        } // try/catch
+    } // attempt()
+
+
+    /**
+     * Execute a call on the preferred endpoint and fail over to the others on connection errors.
+     */
+    private <T> T route(List<Endpoint> candidates, EndpointCall<T> call) throws SQLException {
+        SQLException last = null;
+        for (Endpoint endpoint : candidates) {
+            if (last!=null) {
+                failovers.incrementAndGet();
+                LOG.info("route() failing over to {}", endpoint);
+            } // if
+            try {
+                return attempt(endpoint, call);
+            } catch (SQLException se) {
+                if (!isEndpointFailure(se)) {
+                    throw se;
+                } // if
+                LOG.warn("route() {} failed: {}", endpoint, se.getMessage());
+                last = se;
+            } // try/catch
+        } // for
+        throw last;
+    } // route()
+
+
+    private static SQLException unwrap(ExecutionException ee) {
+        Throwable cause = ee.getCause();
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        } // if
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } // if
+        return new SQLException(cause);
+    } // unwrap()
+
+
+    /**
+     * Execute a call sending it to a second endpoint if the first one does not answer in time.
+     * The result of the slower call is passed to the discard callback.
+     */
+    private <T> T hedge(EndpointCall<T> call, Consumer<T> discard) throws SQLException {
+        List<Endpoint> candidates = rank(true);
+        long delay;
+        ExecutorService executor;
+        synchronized (this) {
+            delay = hedgeDelayMillis;
+            executor = hedgeExecutor;
+        } // synchronized
+        if ((delay<=0)||(candidates.size()<2)) {
+            return route(candidates, call);
+        } // if
+        CompletableFuture<T> primary = submit(executor, candidates, call);
+        try {
+            return primary.get(delay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            hedges.incrementAndGet();
+            LOG.debug("hedge() sending call to {} as well", candidates.get(1));
+            CompletableFuture<T> secondary = submit(executor, candidates.subList(1, candidates.size()), call);
+            return firstResult(primary, secondary, discard);
+        } catch (ExecutionException ee) {
+            throw unwrap(ee);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ie);
+        } // try/catch
+    } // hedge()
+
+
+    private <T> CompletableFuture<T> submit(ExecutorService executor, List<Endpoint> candidates, EndpointCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(route(candidates, call));
+            } catch (SQLException|RuntimeException e) {
+                future.completeExceptionally(e);
+            } // try/catch
+        });
+        return future;
+    } // submit()
+
+
+    private static <T> T firstResult(CompletableFuture<T> a, CompletableFuture<T> b, Consumer<T> discard) throws SQLException {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<T> future : List.of(a, b)) {
+            future.whenComplete((result, error) -> {
+                if (error==null) {
+                    if (!winner.complete(result)) {
+                        discard.accept(result);
+                    } // if
+                } else if (failed.incrementAndGet()==2) {
+                    winner.completeExceptionally(error);
+                } // if
+            });
+        } // for
+        try {
+            return winner.get();
+        } catch (ExecutionException ee) {
+            throw unwrap(ee);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ie);
+        } // try/catch
+    } // firstResult()
+
+
+    /**
+     * Connection holding one physical connection per endpoint.
+     * Settings of the connection - like auto commit or the isolation level - are recorded, applied to all open
+     * endpoint connections, and replayed on connections opened later. Commits and rollbacks go to all of them.
+     */
+    private final class RoutedConnection implements InvocationHandler {
+
+        private final Map<Endpoint, Connection> connections = new HashMap<>();
+
+        private final List<Object[]> settings = new ArrayList<>();
+
+        private boolean closed;
+
+
+        synchronized Connection connect(Endpoint endpoint) throws SQLException {
+            Connection connection = connections.get(endpoint);
+            if ((connection==null)||connection.isClosed()) {
+                try {
+                    connection = DriverManager.getConnection(endpoint.getUrl(), dbUser, dbPassword);
+                } catch (SQLException se) {
+                    // whatever the driver reports, a connection which cannot be opened is an endpoint problem
+                    throw new SQLNonTransientConnectionException(se.getMessage(), "08001", se);
+                } // try/catch
+                for (Object[] setting : settings) {
+                    ReplicaRouter.invoke(connection, (Method) setting[0], (Object[]) setting[1]);
+                } // for
+                connections.put(endpoint, connection);
+            } // if
+            return connection;
+        } // connect()
+
+
+        /**
+         * Stop using an endpoint connection still busy with an abandoned call - the next call opens a new one.
+         */
+        synchronized void detach(Endpoint endpoint, Connection connection) {
+            connections.remove(endpoint, connection);
+        } // detach()
+
+
+        synchronized boolean isAttached(Connection connection) {
+            return connections.containsValue(connection);
+        } // isAttached()
+
+
+        private synchronized Object apply(Method method, Object[] args) throws SQLException {
+            if (method.getName().startsWith("set")) {
+                settings.removeIf(setting -> setting[0].equals(method)
+                        &&((args==null)||(args.length<2)||args[0].equals(((Object[]) setting[1])[0])));
+                settings.add(new Object[]{method, args});
+            } // if
+            for (Connection connection : connections.values()) {
+                ReplicaRouter.invoke(connection, method, args);
+            } // for
+            return null;
+        } // apply()
+
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall":
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                            new RoutedStatement(this, (Connection) proxy, method, args));
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy==args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "RoutedConnection"+endpoints;
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                case "setSchema":
+                case "setHoldability":
+                case "setTypeMap":
+                case "setClientInfo":
+                case "commit":
+                case "rollback":
+                case "clearWarnings":
+                    if ((args!=null)&&(args.length==1)&&(args[0] instanceof Savepoint)) {
+                        // savepoints belong to one endpoint connection
+                        break;
+                    } // if
+                    return apply(method, args);
+                default:
+                    break;
+            } // switch
+            // other calls are answered by any endpoint without taking the probe call of an endpoint out of rotation
+            return route(rank(false), endpoint -> ReplicaRouter.invoke(connect(endpoint), method, args));
+        } // invoke()
+
+
+        private synchronized void close() {
+            for (Connection connection : connections.values()) {
+                try {
+                    connection.close();
+                } catch (SQLException se) {
+                    LOG.warn("close() {}", se.getMessage());
+                } // try/catch
+            } // for
+            connections.clear();
+            closed = true;
+        } // close()
+
+    } // RoutedConnection
+
+
+    /**
+     * Statement recording its settings and parameters so that it can be created on any endpoint on execution.
+     */
+    private final class RoutedStatement implements InvocationHandler {
+
+        private final RoutedConnection connection;
+
+        private final Connection proxyConnection;
+
+        private final Method creation;
+
+        private final Object[] creationArgs;
+
+        private final List<Object[]> calls = new ArrayList<>();
+
+        private Statement current;
+
+        private boolean closed;
+
+
+        RoutedStatement(RoutedConnection connection, Connection proxyConnection, Method creation, Object[] creationArgs) {
+            this.connection = connection;
+            this.proxyConnection = proxyConnection;
+            this.creation = creation;
+            this.creationArgs = creationArgs;
+        } // RoutedStatement()
+
+
+        private Statement create(Endpoint endpoint) throws SQLException {
+            return create(connection.connect(endpoint));
+        } // create()
+
+
+        private Statement create(Connection physical) throws SQLException {
+            Statement statement = (Statement) ReplicaRouter.invoke(physical, creation, creationArgs);
+            synchronized (calls) {
+                for (Object[] call : calls) {
+                    ReplicaRouter.invoke(statement, (Method) call[0], (Object[]) call[1]);
+                } // for
+            } // synchronized
+            return statement;
+        } // create()
+
+
+        private Object[] execute(Endpoint endpoint, Method method, Object[] args, HedgedCall hedged) throws SQLException {
+            Connection physical = connection.connect(endpoint);
+            Statement statement = create(physical);
+            if (hedged!=null) {
+                hedged.running.put(statement, endpoint);
+                if (hedged.decided) {
+                    hedged.running.remove(statement);
+                    statement.close();
+                    throw new SQLException("hedged call already answered");
+                } // if
+            } // if
+            try {
+                return new Object[]{statement, ReplicaRouter.invoke(statement, method, args)};
+            } catch (SQLException|RuntimeException e) {
+                statement.close();
+                throw e;
+            } finally {
+                if ((hedged!=null)&&(hedged.running.remove(statement)==null)&&!connection.isAttached(physical)) {
+                    // abandoned after the other call answered - nobody else uses this connection anymore
+                    physical.close();
+                } // if
+            } // try/catch
+        } // execute()
+
+
+        /**
+         * Run a query hedged over two endpoints and cancel the slower execution once the faster one answered.
+         * The connection of the slower execution is detached first, so it is closed by whoever sees the
+         * execution last - the execution itself when it returns or this method if it already returned.
+         */
+        private Object[] executeHedged(Method method, Object[] args) throws SQLException {
+            HedgedCall hedged = new HedgedCall();
+            Object[] execution = hedge(endpoint -> execute(endpoint, method, args, hedged), e -> close((Statement) e[0]));
+            hedged.decided = true;
+            Connection winner = ((Statement) execution[0]).getConnection();
+            for (Map.Entry<Statement, Endpoint> loser : new ArrayList<>(hedged.running.entrySet())) {
+                Statement statement = loser.getKey();
+                Connection physical = statement.getConnection();
+                boolean detached = physical!=winner;
+                if (detached) {
+                    connection.detach(loser.getValue(), physical);
+                } // if
+                if (hedged.running.remove(statement)!=null) {
+                    LOG.debug("executeHedged() cancelling call on {}", loser.getValue());
+                    try {
+                        statement.cancel();
+                    } catch (SQLException se) {
+                        LOG.debug("executeHedged() cannot cancel: {}", se.getMessage());
+                    } // try/catch
+                } else if (detached) {
+                    physical.close();
+                } // if
+            } // for
+            return execution;
+        } // executeHedged()
+
+
+        /**
+         * Tell if a recorded call is superseded by a new setter call - the same setting or the same parameter.
+         */
+        private boolean isReplaced(Object[] call, Method method, Object[] args) {
+            Method recorded = (Method) call[0];
+            Object[] recordedArgs = (Object[]) call[1];
+            if (!recorded.getName().startsWith("set")) {
+                return false;
+            } // if
+            if ((recordedArgs!=null)&&(recordedArgs.length>1)&&(args!=null)&&(args.length>1)) {
+                // parameters are replaced by index whatever type they were set with
+                return recordedArgs[0].equals(args[0]);
+            } // if
+            return recorded.equals(method)&&((args==null)||(args.length<2)||args[0].equals(recordedArgs[0]));
+        } // isReplaced()
+
+
+        private void replace(Statement statement) throws SQLException {
+            if (current!=null) {
+                current.close();
+            } // if
+            current = statement;
+        } // replace()
+
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                Object[] execution = "executeQuery".equals(name)
+                        ? executeHedged(method, args)
+                        : route(rank(true), endpoint -> execute(endpoint, method, args, null));
+                if ("executeBatch".equals(name)||"executeLargeBatch".equals(name)) {
+                    synchronized (calls) {
+                        calls.removeIf(call -> "addBatch".equals(((Method) call[0]).getName()));
+                    } // synchronized
+                } // if
+                replace((Statement) execution[0]);
+                return execution[1];
+            } // if
+            if (name.startsWith("set")||name.startsWith("clear")||"addBatch".equals(name)) {
+                // only the calls needed to recreate the current state are kept for the replay
+                synchronized (calls) {
+                    if ("clearParameters".equals(name)) {
+                        calls.removeIf(call -> ((Method) call[0]).getName().startsWith("set")&&(((Object[]) call[1]).length>1));
+                    } else if ("clearBatch".equals(name)) {
+                        calls.removeIf(call -> "addBatch".equals(((Method) call[0]).getName()));
+                    } else if (name.startsWith("set")) {
+                        // parameters of rows already added to the batch have to be replayed as they were
+                        int batched = 0;
+                        for (int i = 0; i<calls.size(); i++) {
+                            if ("addBatch".equals(((Method) calls.get(i)[0]).getName())) {
+                                batched = i+1;
+                            } // if
+                        } // for
+                        calls.subList(batched, calls.size()).removeIf(call -> isReplaced(call, method, args));
+                        calls.add(new Object[]{method, args});
+                    } else if ("addBatch".equals(name)) {
+                        calls.add(new Object[]{method, args});
+                    } // if
+                } // synchronized
+                if (current==null) {
+                    return null;
+                } // if
+            } // if
+            switch (name) {
+                case "close":
+                    replace(null);
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return proxyConnection;
+                case "equals":
+                    return proxy==args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "RoutedStatement"+(current==null ? "" : "("+current+")");
+                default:
+                    break;
+            } // switch
+            if (current==null) {
+                // e.g. getters before the first execution
+                current = route(rank(true), this::create);
+            } // if
+            return ReplicaRouter.invoke(current, method, args);
+        } // invoke()
+
+
+        private void close(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException se) {
+                LOG.debug("close() {}", se.getMessage());
+            } // try/catch
+        } // close()
+
+    } // RoutedStatement
+
+} // ReplicaRouter
@@ -0,0 +1,153 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+
+/**
+ * Coalesce concurrent loads of the same key.
+ *
+ * The first caller for a key runs the loader while all callers arriving in the meantime wait for its result
+ * instead of issuing the same queries again. Nothing is kept after the load has finished, so this is no cache.
+ * The registry is a concurrent hash map, so loads for unrelated keys do not contend. A leader can withhold its result
+ * from the waiting callers - e.g. when it only failed because of its own deadline - and they load again then.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the loaded values
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Marker telling the waiting callers to load on their own.
+     */
+    private static final class NotShared extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+
+        NotShared() {
+            super("result not shared", null, false, false);
+        }
+
+    } // NotShared
+
+
+    private static final RuntimeException NOT_SHARED = new NotShared();
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+
+    /**
+     * Load the value for a key or wait for a load of the same key already running in another thread.
+     * Exceptions of the loader are passed to all waiting callers.
+     *
+     * @param key key to load the value for
+     * @param loader loader to run if no load for the key is in progress
+     * @return value for the key - may be null
+     */
+    public V load(K key, Supplier<V> loader) {
+        return load(key, loader, () -> true);
+    } // load()
+
+
+    /**
+     * Load the value for a key or wait for a load of the same key already running in another thread.
+     * Exceptions of the loader are passed to all waiting callers.
+     *
+     * @param key key to load the value for
+     * @param loader loader to run if no load for the key is in progress
+     * @param shared asked in the loading thread after the load whether the value may be passed to the waiting
+     * callers - they run the loader again otherwise
+     * @return value for the key - may be null
+     */
+    public V load(K key, Supplier<V> loader, BooleanSupplier shared) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+        while (running!=null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException ce) {
+                if (ce.getCause()!=NOT_SHARED) {
+                    throw (ce.getCause() instanceof RuntimeException) ? (RuntimeException) ce.getCause() : ce;
+                } // if
+            } // try/catch
+            running = inFlight.putIfAbsent(key, future);
+        } // while
+        loads.increment();
+        try {
+            V value = loader.get();
+            if (shared.getAsBoolean()) {
+                future.complete(value);
+            } else {
+                // unregister first so the waiting callers do not find this load again
+                inFlight.remove(key, future);
+                future.completeExceptionally(NOT_SHARED);
+            } // if
+            return value;
+        } catch (RuntimeException|Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        } // try/finally
+    } // load()
+
+
+    /**
+     * Get the number of loads actually executed.
+     *
+     * @return number of loader calls
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+
+    /**
+     * Get the number of duplicate loads saved by waiting for a running load.
+     *
+     * @return number of callers which did not need to run the loader
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+
+    /**
+     * Get the number of loads currently in progress.
+     *
+     * @return number of keys being loaded
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+} // SingleFlight
@@ -0,0 +1,110 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+
+/**
+ * Content object keeping the properties of its document type layout in an array in addition to the map.
+ * Values are placed into their slots on first access, so that lazily decoded property maps are not read when the
+ * object is created.
+ */
+public class SlotContent extends CoconatContent implements TypedContent {
+
+    private static final Object UNSET = new Object();
+
+    private final String[] layout;
+
+    private final Object[] slots;
+
+
+    /**
+     * Create a content object with a fixed slot layout.
+     *
+     * @param id ID to be assumed by the content object
+     * @param type document type name of the content object
+     * @param properties named values for the properties of the content object
+     * @param layout property names for the slots
+     */
+    public SlotContent(String id, String type, Map<String, Object> properties, String[] layout) {
+        super(id, type, properties);
+        this.layout = layout;
+        this.slots = new Object[layout.length];
+        Arrays.fill(slots, UNSET);
+    } // SlotContent()
+
+
+    @Override
+    public Object slot(int index) {
+        Object result = slots[index];
+        if (result==UNSET) {
+            result = super.get(layout[index]);
+            slots[index] = result;
+        } // if
+        return result;
+    } // slot()
+
+
+    private int indexOf(Object key) {
+        for (int i = 0; i<layout.length; i++) {
+            if (layout[i].equals(key)) {
+                return i;
+            } // if
+        } // for
+        return -1;
+    } // indexOf()
+
+
+    @Override
+    public Object put(String key, Object value) {
+        int index = indexOf(key);
+        if (index>=0) {
+            slots[index] = value;
+        } // if
+        return super.put(key, value);
+    } // put()
+
+
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index>=0) {
+            slots[index] = null;
+        } // if
+        return super.remove(key);
+    } // remove()
+
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        for (Map.Entry<? extends String, ? extends Object> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        } // for
+    } // putAll()
+
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, null);
+        super.clear();
+    } // clear()
+
+} // SlotContent
@@ -0,0 +1,198 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import coconat.Repository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Read only repository implementation backed by a memory mapped snapshot file written by CoconatSnapshot.
+ *
+ * Opening the repository only maps the file and reads the trailer. Objects are decoded on each access, so no
+ * database connection and no content cache is needed.
+ */
+public class SnapshotRepository implements Repository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotRepository.class);
+
+    private static final String ROOT_ID = "1";
+
+    private final MappedByteBuffer buffer;
+
+    private final int idIndexPosition;
+
+    private final int idCount;
+
+    private final int nameIndexPosition;
+
+    private final int nameCount;
+
+
+    /**
+     * Open a snapshot file.
+     *
+     * @param file path of the snapshot file
+     * @throws IOException in case the file cannot be read or is no snapshot file
+     */
+    public SnapshotRepository(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } // try
+        int limit = buffer.limit();
+        if ((limit<8+CoconatSnapshot.TRAILER_SIZE)||(buffer.getInt(0)!=CoconatSnapshot.MAGIC)
+                ||(buffer.getInt(limit-4)!=CoconatSnapshot.MAGIC)) {
+            throw new IOException("not a snapshot file "+file);
+        } // if
+        if (buffer.getInt(4)!=CoconatSnapshot.FORMAT_VERSION) {
+            throw new IOException("unsupported snapshot format "+buffer.getInt(4)+" in "+file);
+        } // if
+        idIndexPosition = buffer.getInt(limit-CoconatSnapshot.TRAILER_SIZE)+4;
+        idCount = buffer.getInt(idIndexPosition-4);
+        nameIndexPosition = buffer.getInt(limit-CoconatSnapshot.TRAILER_SIZE+4)+4;
+        nameCount = buffer.getInt(nameIndexPosition-4);
+        LOG.info("() {} objects in {}", idCount, file);
+    } // SnapshotRepository()
+
+
+    public int size() {
+        return idCount;
+    }
+
+
+    private int findOffset(int id) {
+        int low = 0;
+        int high = idCount-1;
+        while (low<=high) {
+            int middle = (low+high)>>>1;
+            int value = buffer.getInt(idIndexPosition+middle*8);
+            if (value<id) {
+                low = middle+1;
+            } else if (value>id) {
+                high = middle-1;
+            } else {
+                return buffer.getInt(idIndexPosition+middle*8+4);
+            } // if
+        } // while
+        return -1;
+    } // findOffset()
+
+
+    private String readName(int offset) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset+8);
+        return CoconatSnapshot.readString(record);
+    } // readName()
+
+
+    private int findChild(int parentId, String name) {
+        int low = 0;
+        int high = nameCount-1;
+        while (low<=high) {
+            int middle = (low+high)>>>1;
+            int position = nameIndexPosition+middle*8;
+            int offset = buffer.getInt(position+4);
+            int result = Integer.compare(buffer.getInt(position), parentId);
+            if (result==0) {
+                result = readName(offset).compareTo(name);
+            } // if
+            if (result<0) {
+                low = middle+1;
+            } else if (result>0) {
+                high = middle-1;
+            } else {
+                return buffer.getInt(offset);
+            } // if
+        } // while
+        return -1;
+    } // findChild()
+
+
+    /**
+     * Get ID for a content object described by its path in the snapshot.
+     *
+     * @param path path of the object to look for
+     * @return ID of the object described by the path or null
+     */
+    public String getChildId(String path) {
+        int current = Integer.parseInt(ROOT_ID);
+        for (String name : path.split("/")) {
+            if (name.length()>0) {
+                current = findChild(current, name);
+                if (current<0) {
+                    return null;
+                } // if
+            } // if
+        } // for
+        return ""+current;
+    } // getChildId()
+
+
+    /**
+     * Get the ID of the parent folder for a given content object.
+     *
+     * @param childId ID of the child to find the parent for
+     * @return ID of the parent - or null
+     */
+    public String getParentId(String childId) {
+        int offset = findOffset(Integer.parseInt(childId));
+        int parentId = offset<0 ? -1 : buffer.getInt(offset+4);
+        return parentId<0 ? null : ""+parentId;
+    } // getParentId()
+
+
+    @Override
+    public Content getContent(String id) {
+        if (id==null) {
+            return null;
+        } // if
+        int offset = findOffset(Integer.parseInt(id));
+        if (offset<0) {
+            return null;
+        } // if
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset+8);
+        CoconatSnapshot.readString(record);
+        String type = CoconatSnapshot.readString(record);
+        int count = record.getInt();
+        Map<String, Object> properties = new HashMap<>();
+        for (int i = 0; i<count; i++) {
+            String name = CoconatSnapshot.readString(record);
+            properties.put(name, CoconatSnapshot.readValue(record, this, id, name));
+        } // for
+        return new CoconatContent(id, type, properties);
+    } // getContent()
+
+
+    @Override
+    public Content getChild(String path) {
+        return getContent(getChildId(path));
+    } // getChild()
+
+} // SnapshotRepository
@@ -0,0 +1,197 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Statement wrapper applying the query timeout, the deadline of the calling thread, and the concurrency limit to
+ * each execution, and reporting the executions to the query profiler.
+ *
+ * Since JDBC query timeouts only come in whole seconds, executions still running at the deadline are cancelled
+ * from a shared scheduler thread.
+ *
+ * The slot of the limiter is only held while the statement executes and not while its results are read, since
+ * the repository runs nested queries while iterating over result sets.
+ */
+final class StatementGuard implements InvocationHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StatementGuard.class);
+
+    private static final ScheduledThreadPoolExecutor CANCELLER = createCanceller();
+
+    private final Statement statement;
+
+    private final ConcurrencyLimiter limiter;
+
+    private final long deadlineNanos;
+
+    private final int queryTimeout;
+
+    private final QueryProfiler profiler;
+
+    private final String sql;
+
+    private QueryProfiler.Shape shape;
+
+
+    private StatementGuard(Statement statement, ConcurrencyLimiter limiter, long deadlineNanos, int queryTimeout, QueryProfiler profiler, String sql) {
+        this.statement = statement;
+        this.limiter = limiter;
+        this.deadlineNanos = deadlineNanos;
+        this.queryTimeout = queryTimeout;
+        this.profiler = profiler;
+        this.sql = sql;
+    } // StatementGuard()
+
+
+    /**
+     * Wrap a statement if any of the guards applies.
+     *
+     * @param statement statement to wrap
+     * @param type interface of the statement
+     * @param limiter concurrency limiter - may be null
+     * @param deadlineNanos System.nanoTime() value by which executions must be done - 0 for no deadline
+     * @param queryTimeout query timeout in seconds - 0 for no timeout
+     * @param profiler query profiler - may be null
+     * @param sql SQL of a prepared statement - null for plain statements which get their SQL with each execution
+     * @return guarded statement or the statement itself if there is nothing to guard
+     */
+    static <T extends Statement> T wrap(T statement, Class<T> type, ConcurrencyLimiter limiter, long deadlineNanos, int queryTimeout,
+            QueryProfiler profiler, String sql) {
+        if ((limiter==null)&&(deadlineNanos==0)&&(queryTimeout<=0)&&(profiler==null)) {
+            return statement;
+        } // if
+        StatementGuard guard = new StatementGuard(statement, limiter, deadlineNanos, queryTimeout, profiler, sql);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, guard));
+    } // wrap()
+
+
+    private static ScheduledThreadPoolExecutor createCanceller() {
+        ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "statement-canceller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        result.setRemoveOnCancelPolicy(true);
+        return result;
+    } // createCanceller()
+
+
+    private void cancel() {
+        try {
+            statement.cancel();
+        } catch (SQLException se) {
+            LOG.warn("cancel() {}", se.getMessage());
+        } // try/catch
+    } // cancel()
+
+
+    /**
+     * Get the timeout for the next execution in whole seconds as needed by JDBC.
+     */
+    private int getTimeout() throws SQLTimeoutException {
+        int timeout = queryTimeout;
+        if (deadlineNanos!=0) {
+            long remaining = deadlineNanos-System.nanoTime();
+            if (remaining<=0) {
+                throw new SQLTimeoutException("deadline passed before execution");
+            } // if
+            int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining+TimeUnit.SECONDS.toNanos(1)-1)/TimeUnit.SECONDS.toNanos(1));
+            timeout = (timeout<=0) ? seconds : Math.min(timeout, seconds);
+        } // if
+        return timeout;
+    } // getTimeout()
+
+
+    private Object delegate(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException ite) {
+            throw ite.getCause();
+        } // try/catch
+    } // delegate()
+
+
+    private Object profile(Object result) {
+        return ((shape!=null)&&(result instanceof ResultSet)) ? profiler.wrap((ResultSet) result, shape) : result;
+    } // profile()
+
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (!method.getName().startsWith("execute")) {
+            return profile(delegate(method, args));
+        } // if
+        int timeout = getTimeout();
+        if (timeout>0) {
+            statement.setQueryTimeout(timeout);
+        } // if
+        String text = ((args!=null)&&(args.length>0)&&(args[0] instanceof String)) ? (String) args[0] : sql;
+        if (profiler!=null) {
+            shape = (text==null) ? null : profiler.getShape(text);
+        } // if
+        if (limiter!=null) {
+            limiter.acquire(deadlineNanos);
+        } // if
+        long start = System.nanoTime();
+        ScheduledFuture<?> cancellation = (deadlineNanos==0) ? null
+                : CANCELLER.schedule(this::cancel, deadlineNanos-start, TimeUnit.NANOSECONDS);
+        boolean overload = false;
+        try {
+            return profile(delegate(method, args));
+        } catch (SQLTimeoutException ste) {
+            overload = true;
+            throw ste;
+        } catch (SQLException se) {
+            if ((cancellation!=null)&&!cancellation.cancel(false)) {
+                // the cancellation at the deadline made the execution fail
+                overload = true;
+                throw new SQLTimeoutException("deadline passed during execution", se);
+            } // if
+            throw se;
+        } finally {
+            if (cancellation!=null) {
+                cancellation.cancel(false);
+            } // if
+            long nanos = System.nanoTime()-start;
+            if (limiter!=null) {
+                String key = (shape!=null) ? shape.getSql() : (text==null) ? "" : QueryProfiler.normalize(text);
+                limiter.release(key, nanos, overload);
+            } // if
+            if (shape!=null) {
+                profiler.executed(shape, nanos);
+            } // if
+        } // try/catch
+    } // invoke()
+
+} // StatementGuard
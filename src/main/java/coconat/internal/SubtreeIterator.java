@@ -0,0 +1,93 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+
+/**
+ * Breadth first walk over all objects below a folder.
+ *
+ * Only the children stream of the folder currently visited is open at any time, so the walk holds one database cursor
+ * and one batch of contents regardless of the size of the subtree.
+ */
+public class SubtreeIterator implements Iterator<Content>, AutoCloseable {
+
+    private final CoconatContentRepository repository;
+
+    private final Deque<String> folders = new ArrayDeque<>();
+
+    private Stream<Content> children;
+
+    private Iterator<Content> current;
+
+
+    /**
+     * Create a subtree walk starting at a given folder - the folder itself is not part of the result.
+     *
+     * @param repository repository to fetch the children from
+     * @param folderId id of the folder to start at
+     */
+    public SubtreeIterator(CoconatContentRepository repository, String folderId) {
+        this.repository = repository;
+        folders.add(folderId);
+    } // SubtreeIterator()
+
+
+    @Override
+    public boolean hasNext() {
+        while (((current==null)||!current.hasNext())&&!folders.isEmpty()) {
+            close();
+            children = repository.streamChildren(folders.poll(), null);
+            current = children.iterator();
+        } // while
+        return (current!=null)&&current.hasNext();
+    } // hasNext()
+
+
+    @Override
+    public Content next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        } // if
+        Content result = current.next();
+        if ((result instanceof CoconatContent)&&((CoconatContent) result).getDocumentType().isEmpty()) {
+            folders.add(result.getId());
+        } // if
+        return result;
+    } // next()
+
+
+    /**
+     * Release the children stream of the folder currently visited.
+     */
+    @Override
+    public void close() {
+        if (children!=null) {
+            children.close();
+            children = null;
+        } // if
+    } // close()
+
+} // SubtreeIterator
@@ -0,0 +1,217 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Column layout of the table for one document type.
+ *
+ * Read once from the result set metadata of an empty query and then used to select only the needed columns and
+ * to read their values by index with typed getters.
+ */
+public final class TypeMetadata {
+
+    private final String type;
+
+    private final String[] columnNames;
+
+    private final int[] columnTypes;
+
+    private final List<Integer> allColumns;
+
+
+    private TypeMetadata(String type, String[] columnNames, int[] columnTypes) {
+        this.type = type;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        List<Integer> columns = new ArrayList<>(columnNames.length);
+        for (int i = 0; i<columnNames.length; i++) {
+            columns.add(i);
+        } // for
+        this.allColumns = Collections.unmodifiableList(columns);
+    } // TypeMetadata()
+
+
+    /**
+     * Read the column layout of a document type table.
+     *
+     * @param statement statement of the repository to run the query with - left open
+     * @param type name of the document type
+     * @return column layout of the type
+     * @throws SQLException in case the table cannot be queried
+     */
+    static TypeMetadata read(Statement statement, String type) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT * FROM "+type+" WHERE 1 = 0")) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int count = metaData.getColumnCount();
+            String[] names = new String[count];
+            int[] types = new int[count];
+            for (int i = 0; i<count; i++) {
+                names[i] = metaData.getColumnName(i+1);
+                types[i] = metaData.getColumnType(i+1);
+            } // for
+            return new TypeMetadata(type, names, types);
+        } // try
+    } // read()
+
+
+    public String getType() {
+        return type;
+    }
+
+
+    /**
+     * Get the names of all columns in table order.
+     *
+     * @return column names as reported by the database
+     */
+    public List<String> getColumnNames() {
+        return List.of(columnNames);
+    }
+
+
+    /**
+     * Get the JDBC type of a column.
+     *
+     * @param name name of the column
+     * @return JDBC type from java.sql.Types or Types.OTHER for unknown columns
+     */
+    public int getColumnType(String name) {
+        for (int i = 0; i<columnNames.length; i++) {
+            if (columnNames[i].equals(name)) {
+                return columnTypes[i];
+            } // if
+        } // for
+        return Types.OTHER;
+    } // getColumnType()
+
+
+    /**
+     * Tell if a column holds a user defined property - otherwise it is one of the internal columns like ID_.
+     *
+     * @param name name of the column
+     * @return true for user visible property columns
+     */
+    public boolean isProperty(String name) {
+        return !name.endsWith("_");
+    }
+
+
+    /**
+     * Get the indexes of the columns to select for a set of properties.
+     * Internal columns are always part of the result since they are needed for the version handling.
+     *
+     * @param propertyNames names of the properties needed - null for all columns
+     * @return list of column indexes in table order
+     */
+    List<Integer> getColumns(Collection<String> propertyNames) {
+        if (propertyNames==null) {
+            return allColumns;
+        } // if
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i<columnNames.length; i++) {
+            if (!isProperty(columnNames[i])||propertyNames.contains(columnNames[i])) {
+                result.add(i);
+            } // if
+        } // for
+        return result;
+    } // getColumns()
+
+
+    /**
+     * Get the select list for some columns.
+     *
+     * @param columns indexes of the columns
+     * @param quote identifier quote of the database
+     * @return comma separated list of quoted column names
+     */
+    String getSelectList(List<Integer> columns, String quote) {
+        StringBuilder result = new StringBuilder(columns.size()*16);
+        for (int column : columns) {
+            if (result.length()>0) {
+                result.append(", ");
+            } // if
+            result.append(quote).append(columnNames[column]).append(quote);
+        } // for
+        return result.toString();
+    } // getSelectList()
+
+
+    /**
+     * Read the values of the selected columns of the current row into a property map.
+     *
+     * @param resultSet result set positioned at a row selected with getSelectList()
+     * @param columns indexes of the columns in the order of the select list
+     * @param properties map to put the values into
+     * @throws SQLException in case of database errors
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    void read(ResultSet resultSet, List<Integer> columns, Map<String, Object> properties) throws SQLException {
+        for (int i = 0; i<columns.size(); i++) {
+            int column = columns.get(i);
+            int index = i+1;
+            Object value;
+            switch (columnTypes[column]) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    value = resultSet.getInt(index);
+                    break;
+                case Types.BIGINT:
+                    value = resultSet.getLong(index);
+                    break;
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                    value = resultSet.getString(index);
+                    break;
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    value = resultSet.getBoolean(index);
+                    break;
+                case Types.TIMESTAMP:
+                    value = resultSet.getTimestamp(index);
+                    break;
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                    value = resultSet.getDouble(index);
+                    break;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    value = resultSet.getBigDecimal(index);
+                    break;
+                default:
+                    value = resultSet.getObject(index);
+            } // switch
+            properties.put(columnNames[column], resultSet.wasNull() ? null : value);
+        } // for
+    } // read()
+
+} // TypeMetadata
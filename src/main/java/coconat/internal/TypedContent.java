@@ -0,0 +1,48 @@
+/**
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal;
+
+import coconat.Content;
+
+
+/**
+ * Content object with properties held in slots of a fixed layout per document type.
+ *
+ * Generated typed content interfaces read their properties through the slot index, so hot rendering code needs
+ * neither a map lookup nor a string comparison per property access.
+ */
+public interface TypedContent extends Content {
+
+    /**
+     * Get the name of the document type of this object.
+     *
+     * @return document type name
+     */
+    String getDocumentType();
+
+
+    /**
+     * Get a property value by its slot index in the layout of the document type.
+     *
+     * @param index slot index as given by DocTypeSchema.getLayout()
+     * @return value of the property in the slot
+     */
+    Object slot(int index);
+
+} // TypedContent
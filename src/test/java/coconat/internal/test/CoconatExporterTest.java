@@ -0,0 +1,99 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.CoconatExporter;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Export the test database to JSON Lines files.
+ */
+@Test
+public class CoconatExporterTest {
+
+    private static List<String> readLines(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        } // try
+    } // readLines()
+
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            } // for
+        } // try
+    } // delete()
+
+
+    @Test
+    public void testExport() throws IOException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        repository.setBatchSize(1);
+        CoconatExporter exporter = new CoconatExporter(repository);
+        exporter.setPartitionSize(4);
+        exporter.setParallelism(2);
+        exporter.setQueueCapacity(2);
+        exporter.setCompress(true);
+        Path directory = Files.createTempDirectory("coconat");
+        try {
+            Assert.assertEquals(exporter.export(directory), 5, "Unexpected number of exported documents.");
+            Assert.assertEquals(exporter.getFileName(4), "part-0000000004.jsonl.gz", "Unexpected file name.");
+            List<String> lines = readLines(directory.resolve(exporter.getFileName(4)));
+            Assert.assertEquals(lines.size(), 2, "Unexpected number of documents in partition.");
+            Assert.assertTrue(lines.get(0).startsWith("{\"id\":\"4\",\"type\":\"RootTopic\","), "Unexpected start of line "+lines.get(0));
+            Assert.assertTrue(lines.get(0).contains("\"title\":\"CoConAT\""), "Title not found in "+lines.get(0));
+            Assert.assertTrue(lines.get(0).contains("\"subTopics\":[\"6\",\"8\"]"), "Links not found in "+lines.get(0));
+            Assert.assertTrue(readLines(directory.resolve(exporter.getFileName(8))).get(1).contains("\"mimeType\":\"image/png\""),
+                    "Blob description not found.");
+
+            Assert.assertEquals(exporter.export(directory), 0, "Completed partitions should not be exported again.");
+            Files.delete(directory.resolve(exporter.getFileName(0)));
+            Assert.assertEquals(exporter.export(directory), 1, "Only the missing partition should have been exported.");
+            List<String> files = new ArrayList<>();
+            try (Stream<Path> list = Files.list(directory)) {
+                list.forEach(file -> files.add(file.getFileName().toString()));
+            } // try
+            Assert.assertEquals(files.size(), 3, "Unexpected files in export directory "+files);
+        } finally {
+            delete(directory);
+        } // try/finally
+    } // testExport()
+
+} // CoconatExporterTest
@@ -0,0 +1,75 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Blob;
+import coconat.Content;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.CoconatReplicator;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Replicate the test database into an in memory database and read from the replica.
+ */
+@Test
+public class CoconatReplicatorTest {
+
+    @Test
+    public void testReplication() throws ClassNotFoundException, SQLException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String replicaUrl = "jdbc:hsqldb:mem:replica";
+        String dbUser = "sa";
+        String dbPassword = "";
+        Class.forName(dbDriver);
+        try (Connection source = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+                Connection target = DriverManager.getConnection(replicaUrl, dbUser, dbPassword)) {
+            CoconatReplicator replicator = new CoconatReplicator(source, target);
+            Assert.assertEquals(replicator.getLastSequenceNo(), -1, "Unexpected state of empty replica.");
+            Assert.assertEquals(replicator.sync(), 11, "Unexpected number of objects in full sync.");
+            Assert.assertEquals(replicator.getLastSequenceNo(), 49, "Unexpected state after full sync.");
+            Assert.assertEquals(replicator.sync(), 0, "Nothing should be copied without changes.");
+
+            CoconatContentRepository replica = new CoconatContentRepository(replicaUrl, dbDriver, dbUser, dbPassword);
+            CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+            Content home = replica.getChild("CoConAT/Home");
+            Assert.assertNotNull(home, "root topic 'Home' not found in replica");
+            Assert.assertEquals(home.entrySet().size(), 16, "Unexpected number of properties for root topic");
+            Assert.assertEquals(home.get("teaser"), repository.getContent("4").get("teaser"), "Unexpected teaser found");
+            List<Content> logos = (List<Content>) home.get("logo");
+            Assert.assertEquals(((Blob) logos.get(0).get("data")).getLen(), 10657, "Unexpected number of bytes in blob.");
+
+            try (Statement s = target.createStatement()) {
+                s.executeUpdate("UPDATE CoconatReplicaState SET sequenceno = 45");
+                s.executeUpdate("DELETE FROM Topic WHERE id_ = 8");
+            } // try
+            Assert.assertEquals(replicator.sync(), 5, "Unexpected number of objects in incremental sync.");
+            Assert.assertEquals(replica.getContent("8").get("title"), "CoConAT PHP", "Changed topic should have been copied again.");
+            Assert.assertEquals(replica.getChildrenIds("9").size(), 4, "Unexpected number of objects in folder.");
+        } // try
+    } // testReplication()
+
+} // CoconatReplicatorTest
@@ -21,13 +21,36 @@ package coconat.internal.test;
 import coconat.Blob;
 import coconat.Content;
 import coconat.Repository;
+import coconat.internal.CoconatContent;
 import coconat.internal.CoconatContentRepository;
+import coconat.internal.CoconatQuery;
+import coconat.internal.CoconatSession;
+import coconat.internal.ConcurrencyLimiter;
+import coconat.internal.ContentPublisher;
+import coconat.internal.ContentGraph;
+import coconat.internal.LazyContentList;
+import coconat.internal.NegativeCache;
+import coconat.internal.PropertyIndex;
+import coconat.internal.QueryProfiler;
+import coconat.internal.QueryResultCache;
+import coconat.internal.TypeMetadata;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -146,4 +169,551 @@ public class CoconatRepositoryTest {
         Assert.assertEquals(repository.getParents(), parents, "Unexpected parents collection found.");
     } // testImplementation()
 
+
+    @Test
+    public void testQuery() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Map<String, String> parents = new HashMap<>();
+        parents.put("Topic", "Linkable");
+        parents.put("RootTopic", "Topic");
+        repository.setParents(parents);
+        Assert.assertEquals(repository.getSubtypes("Linkable"), Arrays.asList("Linkable", "Topic", "RootTopic"), "Unexpected subtypes.");
+        List<String> ids = repository.listIds(new CoconatQuery("Topic").where("title", CoconatQuery.Operator.LIKE, "CoConAT%").orderBy("title", true));
+        Assert.assertEquals(ids, Arrays.asList("4", "6", "8"), "Unexpected topics including subtypes.");
+        ids = repository.listIds(new CoconatQuery("Topic").exactType().orderBy("id_", false));
+        Assert.assertEquals(ids, Arrays.asList("8", "6"), "Unexpected topics of exact type.");
+        ids = repository.listIds(new CoconatQuery("Topic").orderBy("name_", true).page(1, 1));
+        Assert.assertEquals(ids, Arrays.asList("6"), "Unexpected page of topics.");
+        try (Stream<String> page = repository.streamIds(new CoconatQuery("Topic").orderBy("name_", true).page(1, 1))) {
+            Assert.assertEquals(page.collect(Collectors.toList()), Arrays.asList("6"), "Unexpected streamed page of topics.");
+        } // try
+        Assert.assertThrows(IllegalArgumentException.class, () -> new CoconatQuery("Topic").below("/CoConAT"));
+        ids = repository.listIds(new CoconatQuery("Topic").inFolder("9").withName("coconat.%").where("shortTitle", "PHP"));
+        Assert.assertEquals(ids, Arrays.asList("8"), "Unexpected topic for short title.");
+        ids = repository.listIds(new CoconatQuery("Linkable").below("9").where("keywords", CoconatQuery.Operator.NOT_EQUAL, null));
+        Assert.assertEquals(ids.size(), 3, "Unexpected number of linkables below folder.");
+        List<Content> contents = repository.listContents(new CoconatQuery("ImageData").where("width", "200"));
+        Assert.assertEquals(contents.size(), 1, "Unexpected number of images.");
+        Assert.assertEquals(contents.get(0).getId(), "10", "Unexpected image found.");
+    } // testQuery()
+
+
+    @Test
+    public void testStreaming() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        repository.setFetchSize(1);
+        repository.setBatchSize(2);
+        Map<String, Content> contents = repository.getContents(Arrays.asList("10", "4", "99", "9"));
+        Assert.assertEquals(contents.keySet(), new LinkedHashSet<>(Arrays.asList("10", "4", "9")), "Unexpected bulk loaded contents.");
+        Content home = contents.get("4");
+        Content reference = repository.getContent("4");
+        Assert.assertEquals(home.keySet(), reference.keySet(), "Bulk load must result in the same properties as single load.");
+        Assert.assertEquals(home.get("teaser"), reference.get("teaser"), "Unexpected teaser in bulk load.");
+        Assert.assertEquals(((List<Content>) home.get("subTopics")).size(), 2, "Unexpected number of subtopics in bulk load.");
+        Assert.assertEquals(((Blob) contents.get("10").get("data")).getLen(), 10657, "Unexpected blob size in bulk load.");
+        Assert.assertTrue(contents.get("9").isEmpty(), "Folders should not have properties.");
+        try (Stream<String> ids = repository.streamIds(new CoconatQuery("Topic").orderBy("id_", true))) {
+            Assert.assertEquals(ids.collect(Collectors.toList()), Arrays.asList("6", "8"), "Unexpected streamed ids.");
+        } // try
+        try (Stream<Content> children = repository.streamChildren("9", null)) {
+            List<String> ids = children.map(Content::getId).collect(Collectors.toList());
+            Assert.assertEquals(ids, Arrays.asList("4", "6", "8", "10"), "Unexpected streamed children.");
+        } // try
+        try (Stream<Content> topics = repository.streamContents(new CoconatQuery("Topic"))) {
+            Assert.assertEquals(topics.findFirst().get().get("title"), "CoConAT Java", "Unexpected first streamed topic.");
+        } // try
+        try (Stream<String> ids = repository.streamChildrenIds("9", "ImageData")) {
+            Assert.assertEquals(ids.count(), 1, "Unexpected number of images in folder.");
+        } // try
+    } // testStreaming()
+
+    /**
+     * Subscriber taking a limited number of elements one by one.
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<Content> {
+
+        private final List<String> ids = new ArrayList<>();
+
+        private final int max;
+
+        private Flow.Subscription subscription;
+
+        private boolean complete;
+
+
+        CollectingSubscriber(int max) {
+            this.max = max;
+        }
+
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            subscription.request(1);
+        }
+
+
+        @Override
+        public void onNext(Content item) {
+            ids.add(item.getId());
+            if (ids.size()<max) {
+                subscription.request(1);
+            } else {
+                subscription.cancel();
+            } // if
+        } // onNext()
+
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOG.error("onError()", throwable);
+        }
+
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+
+    } // CollectingSubscriber
+
+
+    @Test
+    public void testPublisher() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        repository.setBatchSize(2);
+        CollectingSubscriber subscriber = new CollectingSubscriber(100);
+        repository.publishSubtree("1").subscribe(subscriber);
+        Assert.assertTrue(subscriber.complete, "Subtree walk should have completed.");
+        Assert.assertEquals(subscriber.ids, Arrays.asList("3", "5", "9", "7", "4", "6", "8", "10", "2"), "Unexpected subtree order.");
+        subscriber = new CollectingSubscriber(1);
+        repository.publishChildren("9", null).subscribe(subscriber);
+        Assert.assertFalse(subscriber.complete, "Cancelled subscription must not complete.");
+        Assert.assertEquals(subscriber.ids, Arrays.asList("4"), "Unexpected elements before cancellation.");
+        subscriber = new CollectingSubscriber(100);
+        repository.publishContents(new CoconatQuery("Topic").orderBy("id_", false)).subscribe(subscriber);
+        Assert.assertEquals(subscriber.ids, Arrays.asList("8", "6"), "Unexpected published topics.");
+
+        boolean[] released = new boolean[1];
+        List<String> received = new ArrayList<>();
+        CollectingSubscriber exact = new CollectingSubscriber(100) {
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(2);
+            }
+
+
+            @Override
+            public void onNext(Content item) {
+                received.add(item.getId());
+            }
+
+        };
+        new ContentPublisher(() -> repository.streamContents(new CoconatQuery("Topic")).onClose(() -> released[0] = true)).subscribe(exact);
+        Assert.assertEquals(received.size(), 2, "Unexpected number of published topics.");
+        Assert.assertTrue(exact.complete, "Exhausted source should complete without further demand.");
+        Assert.assertTrue(released[0], "Stream should have been closed on completion.");
+
+        boolean[] closed = new boolean[1];
+        CollectingSubscriber failing = new CollectingSubscriber(100) {
+
+            @Override
+            public void onNext(Content item) {
+                super.onNext(item);
+                throw new IllegalStateException("subscriber failed");
+            }
+
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail("Subscriber must not be signalled after its own failure.", throwable);
+            }
+
+        };
+        new ContentPublisher(() -> repository.streamContents(new CoconatQuery("Topic")).onClose(() -> closed[0] = true)).subscribe(failing);
+        Assert.assertEquals(failing.ids.size(), 1, "No elements should follow a failure of the subscriber.");
+        Assert.assertFalse(failing.complete, "Failed subscription must not complete.");
+        Assert.assertTrue(closed[0], "Stream should have been closed on the failure of the subscriber.");
+    } // testPublisher()
+
+    @Test
+    public void testDescendants() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Assert.assertEquals(repository.getDescendantIds("1", null, -1), Arrays.asList("3", "5", "9", "7", "4", "6", "8", "10", "2"), "Unexpected descendants.");
+        Assert.assertEquals(repository.getDescendantIds("1", null, 1), Arrays.asList("3", "5", "9"), "Unexpected direct children.");
+        Assert.assertEquals(repository.getDescendantIds("1", "Topic", -1), Arrays.asList("6", "8"), "Unexpected topics.");
+        Map<String, String> parents = new HashMap<>();
+        parents.put("RootTopic", "Topic");
+        repository.setParents(parents);
+        List<Content> topics = repository.getDescendants("1", "Topic", 3);
+        Assert.assertEquals(topics.size(), 3, "Unexpected number of topics including subtypes.");
+        Assert.assertEquals(topics.get(0).get("title"), "CoConAT", "Unexpected title of first topic.");
+        Assert.assertTrue(repository.getDescendants("1", "Topic", 1).isEmpty(), "No topics expected directly in root folder.");
+    } // testDescendants()
+
+    @Test
+    public void testAncestors() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Assert.assertEquals(repository.getAncestorIds("2"), Arrays.asList("1", "5", "7"), "Unexpected ancestors for preferences.");
+        Assert.assertTrue(repository.getAncestorIds("1").isEmpty(), "Root folder should not have ancestors.");
+        Assert.assertTrue(repository.getAncestorIds("99").isEmpty(), "Missing objects should not have ancestors.");
+        Map<String, List<String>> ancestors = repository.getAncestorIds(Arrays.asList("4", "9", "99"));
+        Assert.assertEquals(ancestors.keySet(), new LinkedHashSet<>(Arrays.asList("4", "9")), "Unexpected objects with ancestors.");
+        Assert.assertEquals(ancestors.get("4"), Arrays.asList("1", "9"), "Unexpected ancestors for home topic.");
+        repository.clearFolderCache();
+        List<Content> folders = repository.getAncestors("10");
+        Assert.assertEquals(folders.size(), 2, "Unexpected number of ancestor folders.");
+        Assert.assertEquals(folders.get(1).getId(), "9", "Unexpected parent folder.");
+    } // testAncestors()
+
+    @Test
+    public void testContentGraph() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        ContentGraph graph = repository.getContentGraph("4", null, 1);
+        Assert.assertEquals(graph.getIds(), new LinkedHashSet<>(Arrays.asList("4", "10", "6", "8")), "Unexpected graph.");
+        Content home = graph.getRoot();
+        Assert.assertEquals(home.getId(), "4", "Unexpected root.");
+        List<Content> logos = (List<Content>) home.get("logo");
+        Assert.assertSame(logos.get(0), graph.getContent("10"), "Links should be resolved through the graph.");
+        graph = repository.getContentGraph("4", Arrays.asList("subTopics"), 3);
+        Assert.assertEquals(graph.size(), 3, "Unexpected graph size for sub topics.");
+        Assert.assertFalse(graph.contains("10"), "Logo should not have been prefetched.");
+        Assert.assertEquals(graph.getContent("10").getId(), "10", "Objects outside of the graph should be fetched from the repository.");
+        Assert.assertEquals(repository.getContentGraph("4", null, 0).size(), 1, "Depth zero should only contain the root.");
+
+        repository.setContentCache(new ConcurrentHashMap<>());
+        Content cached = repository.getContent("4");
+        Object cachedLogos = cached.get("logo");
+        graph = repository.getContentGraph("4", null, 1);
+        Assert.assertNotSame(graph.getRoot(), cached, "Graph should hold a copy of the cached object.");
+        Assert.assertSame(repository.getContent("4"), cached, "Cached object should still be used.");
+        Assert.assertSame(cached.get("logo"), cachedLogos, "Links of the cached object should not be bound to the graph.");
+        Assert.assertSame(((List<Content>) graph.getRoot().get("logo")).get(0), graph.getContent("10"), "Links of the copy should use the graph.");
+    } // testContentGraph()
+
+
+    @Test
+    public void testPreload() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Assert.assertEquals(repository.preload(Arrays.asList("4"), 2, null), 0, "Nothing should be loaded without a cache.");
+        Map<String, Content> cache = new ConcurrentHashMap<>();
+        repository.setContentCache(cache);
+        List<Integer> progress = new ArrayList<>();
+        int count = repository.preload(Arrays.asList("/CoConAT", "Preferences", "4"), 2, (loaded, total) -> progress.add(loaded));
+        Assert.assertEquals(count, 5, "Unexpected number of preloaded objects.");
+        Assert.assertEquals(cache.keySet(), new HashSet<>(Arrays.asList("2", "4", "6", "8", "10")), "Unexpected objects in cache.");
+        Assert.assertEquals(progress, Arrays.asList(5), "Unexpected progress reported.");
+        Content home = repository.getContent("4");
+        Assert.assertSame(home, cache.get("4"), "Home topic should be taken from the cache.");
+        Assert.assertEquals(home.get("title"), "CoConAT", "Unexpected title found");
+        Assert.assertEquals(repository.preload(new ArrayList<>(cache.keySet()), 1, null), 0, "Cached objects should not be loaded again.");
+        Assert.assertTrue(repository.resolvePreloadIds(Arrays.asList("")).isEmpty(), "Empty roots should denote nothing.");
+        repository.invalidate("4");
+        Assert.assertNotSame(repository.getContent("4"), home, "Invalidated objects should be loaded again.");
+    } // testPreload()
+
+
+    @Test
+    public void testNegativeCache() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        AtomicLong clock = new AtomicLong();
+        NegativeCache cache = new NegativeCache(3, 1000, clock::get);
+        repository.setNegativeCache(cache);
+        Assert.assertNull(repository.getContent("99"), "Missing objects should not be found.");
+        Assert.assertNull(repository.getContent("99"), "Missing objects should not be found.");
+        Assert.assertEquals(cache.getHits(), 1, "Second lookup should have been answered from the cache.");
+        Assert.assertNull(repository.getChild("CoConAT/Missing/Deeper"), "Missing objects should not be found.");
+        Assert.assertNull(repository.getChildId("/CoConAT/Missing"), "Missing objects should not be found.");
+        Assert.assertEquals(cache.getHits(), 2, "Unresolved path should have been answered from the cache.");
+        Assert.assertEquals(cache.size(), 2, "Unexpected number of missing entries.");
+        Assert.assertEquals(repository.getChildId("/CoConAT/Home"), "4", "Existing objects should still be found.");
+        repository.resourceCreated("99", "9", "Missing");
+        Assert.assertEquals(cache.size(), 0, "Created objects should not be considered missing anymore.");
+        repository.getContent("97");
+        repository.getContent("98");
+        repository.getContent("99");
+        repository.getContent("96");
+        Assert.assertEquals(cache.size(), 3, "Negative cache should be bounded.");
+        Assert.assertTrue(cache.isMissing("id:99"), "Unexpected negative cache content.");
+        clock.addAndGet(1000);
+        Assert.assertFalse(cache.isMissing("id:99"), "Entries should expire.");
+    } // testNegativeCache()
+
+
+    @Test
+    public void testSession() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        CoconatSession session = new CoconatSession(repository);
+        Content home = session.getChild("CoConAT/Home");
+        Assert.assertSame(session.getContent("4"), home, "Each ID should resolve to the same object.");
+        Assert.assertEquals(session.getLoads(), 1, "Unexpected number of loads for home topic.");
+        List<Content> topics = (List<Content>) home.get("subTopics");
+        Assert.assertSame(topics.get(0), session.getContent("6"), "Link targets should be shared within the session.");
+        List<Content> logos = (List<Content>) home.get("logo");
+        Assert.assertEquals(logos.get(0).getId(), "10", "Unexpected logo.");
+        Assert.assertSame(topics.get(1), session.getContent("8"), "Link targets should be shared within the session.");
+        Assert.assertEquals(session.getLoads(), 2, "All link targets should have been loaded in one bulk load.");
+        Assert.assertNull(session.getContent("99"), "Missing objects should not be found.");
+        Assert.assertNull(session.getContent("99"), "Missing objects should not be found.");
+        Assert.assertEquals(session.getLoads(), 3, "Missing objects should only be looked up once.");
+        session.defer("2");
+        Assert.assertEquals(session.flush(), 1, "Unexpected number of deferred loads.");
+        Assert.assertEquals(session.size(), 5, "Unexpected number of objects in session.");
+        session.close();
+        boolean closed = false;
+        try {
+            session.getContent("4");
+        } catch (IllegalStateException e) {
+            closed = true;
+        } // try/catch
+        Assert.assertTrue(closed, "Closed sessions should not be usable.");
+    } // testSession()
+
+
+    @Test
+    public void testQueryCache() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        QueryResultCache cache = new QueryResultCache(8);
+        repository.setQueryCache(cache);
+        List<String> topics = repository.listIds("Topic", null, "id_", true);
+        Assert.assertEquals(topics, Arrays.asList("6", "8"), "Unexpected topics.");
+        Assert.assertEquals(repository.listIds("Topic", null, "id_", null), topics, "Unexpected topics from cache.");
+        Assert.assertEquals(cache.getHits(), 1, "Same query should have been taken from the cache.");
+        Assert.assertNotEquals(QueryResultCache.key("list", "name_ = 'a  b'"), QueryResultCache.key("list", "name_ = 'a b'"),
+                "White space in literals is significant.");
+        Assert.assertNotEquals(QueryResultCache.key("a|b", "c"), QueryResultCache.key("a", "b|c"), "Separator should be escaped.");
+        Assert.assertNotEquals(QueryResultCache.key((Object) null), QueryResultCache.key("\\N"), "Null should have its own key.");
+        Assert.assertEquals(repository.getChildrenIds("9").size(), 4, "Unexpected number of children.");
+        Assert.assertEquals(repository.getChildrenIds("9").size(), 4, "Unexpected number of children from cache.");
+        Assert.assertEquals(cache.getHits(), 2, "Child listing should have been taken from the cache.");
+        Assert.assertEquals(cache.getWeight(), 8, "Unexpected cache weight.");
+        repository.resourceChanged("2", "7", "Preferences");
+        Assert.assertEquals(cache.size(), 2, "Unrelated changes should not invalidate listings.");
+        repository.resourceChanged("6", "9", "Topic");
+        Assert.assertEquals(cache.size(), 0, "Listings of the type and the folder should have been invalidated.");
+        repository.getChildrenIds("9");
+        repository.listIds("Topic", null, "id_", true);
+        repository.listIds("Preferences", null, null, null);
+        Assert.assertEquals(cache.size(), 2, "Least recently used listing should have been evicted.");
+        Assert.assertTrue(cache.getWeight()<=8, "Cache weight exceeds limit.");
+        long generation = cache.getGeneration();
+        cache.invalidate("Topic", "9");
+        cache.put("stale", Arrays.asList("6"), "Topic", null, generation);
+        Assert.assertNull(cache.get("stale"), "Listings loaded before an invalidation should not be stored.");
+    } // testQueryCache()
+
+
+    @Test
+    public void testProjection() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        TypeMetadata metadata = repository.getTypeMetadata("RootTopic");
+        Assert.assertSame(repository.getTypeMetadata("RootTopic"), metadata, "Metadata should be read only once.");
+        Assert.assertTrue(metadata.getColumnNames().contains("title"), "Title column not found.");
+        Assert.assertEquals(metadata.getColumnType("title"), Types.VARCHAR, "Unexpected column type.");
+        Assert.assertTrue(metadata.isProperty("title"), "Title should be a user property.");
+        Assert.assertFalse(metadata.isProperty("ID_"), "ID_ should be an internal column.");
+        Content full = repository.getContent("4");
+        Content teaser = repository.getContent("4", Arrays.asList("title", "logo"));
+        Assert.assertEquals(teaser.get("title"), full.get("title"), "Unexpected title found");
+        Assert.assertEquals(teaser.get("EDITIONDATE_"), full.get("EDITIONDATE_"), "Unexpected edition date found");
+        Assert.assertEquals(((List<Content>) teaser.get("logo")).size(), 1, "Expected to find exactly one logo.");
+        Assert.assertFalse(teaser.containsKey("subTopics"), "Sub topics should not have been loaded.");
+        Assert.assertFalse(teaser.containsKey("teaser"), "Teaser text should not have been loaded.");
+        Assert.assertFalse(teaser.containsKey("keywords"), "Keywords should not have been loaded.");
+        Assert.assertTrue(full.containsKey("keywords"), "Keywords should be part of the full object.");
+        Assert.assertNull(repository.getContent("99", Arrays.asList("title")), "Missing objects should not be found.");
+    } // testProjection()
+
+
+    @Test
+    public void testDeadline() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 16, 8);
+        repository.setConcurrencyLimiter(limiter);
+        repository.setQueryTimeout(10);
+        Content home = repository.withDeadline(5000, () -> repository.getContent("4"));
+        Assert.assertNotNull(home, "Home should have been found within the deadline.");
+        Assert.assertEquals(home.get("title"), "CoConAT", "Unexpected title found.");
+        Assert.assertTrue(limiter.getCompleted()>0, "Queries should have passed the limiter.");
+        Assert.assertEquals(limiter.getInFlight(), 0, "No queries should be in flight.");
+        Assert.assertEquals(limiter.getQueueDepth(), 0, "No queries should be waiting.");
+        long completed = limiter.getCompleted();
+        Assert.assertNull(repository.withDeadline(0, () -> repository.getContent("6")), "Queries after the deadline should fail.");
+        Assert.assertEquals(limiter.getCompleted(), completed, "Queries after the deadline should not reach the database.");
+        Assert.assertNotNull(repository.getContent("6"), "Queries without deadline should succeed again.");
+    } // testDeadline()
+
+
+    @Test
+    public void testRichtextLinks() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Content home = repository.getContent("4");
+        Assert.assertFalse(home.containsKey(CoconatContentRepository.getLinksPropertyName("teaser")), "Texts without internal links need no link list.");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("teaser", "<div/>");
+        properties.put(CoconatContentRepository.getLinksPropertyName("teaser"), new LazyContentList(repository, Arrays.asList("6", "10")));
+        Content article = new CoconatContent("100", "Article", properties);
+        Assert.assertEquals(repository.getRichtextLinkIds(Arrays.asList(home, article)), new LinkedHashSet<>(Arrays.asList("6", "10")), "Unexpected link targets.");
+        Map<String, Content> targets = repository.loadRichtextLinks(Arrays.asList(home, article));
+        Assert.assertEquals(targets.size(), 2, "All link targets should have been loaded.");
+        Assert.assertTrue(targets.get("10").get("data") instanceof Blob, "Image link target should have been loaded.");
+    } // testRichtextLinks()
+
+
+    @Test
+    public void testPropertyIndex() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Map<String, String> parents = new HashMap<>();
+        parents.put("RootTopic", "Topic");
+        repository.setParents(parents);
+        PropertyIndex index = repository.createPropertyIndex("Topic", "shortTitle");
+        Assert.assertSame(repository.createPropertyIndex("Topic", "shortTitle"), index, "Index should be created only once.");
+        Assert.assertSame(repository.getPropertyIndex("Topic", "shortTitle"), index, "Declared index not found.");
+        Assert.assertEquals(index.getTypes(), Arrays.asList("Topic", "RootTopic"), "Subtypes should have been indexed.");
+        Assert.assertEquals(index.size(), 3, "Unexpected number of indexed documents.");
+        Assert.assertEquals(index.get("Java"), Arrays.asList("6"), "Unexpected ID for value.");
+        Assert.assertEquals(index.get("coconat"), Arrays.asList("4"), "Subtype value not found.");
+        Assert.assertTrue(index.get("Perl").isEmpty(), "Missing value should not be found.");
+        Assert.assertEquals(index.getRange("J", true, "Q", false), Arrays.asList("6", "8"), "Unexpected IDs for range.");
+
+        PropertyIndex dates = repository.createPropertyIndex("Topic", "EDITIONDATE_");
+        Assert.assertEquals(dates.getRange(Timestamp.valueOf("2015-04-06 20:15:00"), true, null, false), Arrays.asList("8", "4"),
+                "Unexpected IDs for date range.");
+        Assert.assertEquals(dates.getRange(new java.util.Date(Timestamp.valueOf("2015-04-06 20:15:20").getTime()), false, null, false),
+                Arrays.asList("4"), "Dates should have been converted for lookup.");
+        Assert.assertEquals(dates.getRange(java.sql.Date.valueOf("2015-04-06"), true, null, false),
+                dates.getRange(Timestamp.valueOf("2015-04-06 00:00:00"), true, null, false), "SQL dates should have been converted for lookup.");
+        Assert.assertThrows(IllegalArgumentException.class, () -> dates.get(Boolean.TRUE));
+        Assert.assertTrue(index.get(Short.valueOf((short) 1)).isEmpty(), "Other values should be compared as strings.");
+
+        repository.resourceChanged("6", "9", "Topic");
+        Assert.assertEquals(index.get("Java"), Arrays.asList("6"), "Unchanged value should still be indexed.");
+        repository.resourceChanged("99", "9", "Topic");
+        Assert.assertEquals(index.size(), 3, "Missing documents should not be indexed.");
+    } // testPropertyIndex()
+
+
+    @Test
+    public void testQueryProfiler() {
+        Assert.assertEquals(QueryProfiler.normalize("SELECT id_ FROM Resources  WHERE name_ = 'Home' AND folderid_ IN (9, 10)"),
+                "SELECT id_ FROM Resources WHERE name_ = ? AND folderid_ IN (?...)", "Unexpected shape for literals.");
+        Assert.assertEquals(QueryProfiler.normalize("SELECT \"title2\" FROM Topic WHERE id_ IN (?, ?,?)"),
+                "SELECT \"title2\" FROM Topic WHERE id_ IN (?...)", "Identifiers should not be changed.");
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        QueryProfiler profiler = new QueryProfiler();
+        repository.setQueryProfiler(profiler);
+        try (QueryProfiler.Recording outer = profiler.record()) {
+            try (QueryProfiler.Recording recording = profiler.record()) {
+                Assert.assertNotNull(repository.getContent("6"), "Topic not found.");
+                recording.assertAtMost(8);
+                Assert.assertTrue(recording.getShapes().containsKey("SELECT * FROM Topic WHERE ? = ?"), "Column layout query should have been recorded.");
+            } // try
+            Assert.assertNotNull(repository.getContent("8"), "Topic not found.");
+            Assert.assertEquals(outer.getQueryCount(), profiler.getShapes().stream().mapToLong(QueryProfiler.Shape::getCount).sum(),
+                    "Outer recording should include the inner one.");
+            Assert.assertThrows(AssertionError.class, () -> outer.assertAtMost(1));
+        } // try
+        List<QueryProfiler.Shape> top = profiler.getTop(3);
+        Assert.assertFalse(top.isEmpty(), "Shapes should have been collected.");
+        Assert.assertTrue(top.get(0).getNanos()>=top.get(top.size()-1).getNanos(), "Shapes should be sorted by time.");
+        Assert.assertTrue(profiler.getShapes().stream().anyMatch(shape -> shape.getCount()==2), "Both lookups should share shapes.");
+        Assert.assertTrue(profiler.getShapes().stream().mapToLong(QueryProfiler.Shape::getRows).sum()>0, "Rows should have been counted.");
+        Assert.assertFalse(profiler.report(3).isEmpty(), "Report should list the top shapes.");
+    } // testQueryProfiler()
+
+
+    @Test
+    public void testBulkPaths() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        repository.setNegativeCache(new NegativeCache(100, 60000));
+        QueryProfiler profiler = new QueryProfiler();
+        repository.setQueryProfiler(profiler);
+        List<String> paths = Arrays.asList("/CoConAT/Home", "/CoConAT/logo", "/CoConAT", "/", "/CoConAT/missing", "/Nowhere/Home",
+                "/CoConAT/Home/deeper");
+        Map<String, String> ids;
+        try (QueryProfiler.Recording recording = profiler.record()) {
+            ids = repository.getChildIds(paths);
+            // one query per level of the deepest path
+            recording.assertAtMost(3);
+        } // try
+        Assert.assertEquals(ids.size(), 4, "Unexpected number of paths resolved.");
+        Assert.assertEquals(new ArrayList<>(ids.keySet()), paths.subList(0, 4), "Paths should be kept in order.");
+        Assert.assertEquals(ids.get("/CoConAT/Home"), "4", "Unexpected ID for home.");
+        Assert.assertEquals(ids.get("/CoConAT/logo"), "10", "Unexpected ID for logo.");
+        Assert.assertEquals(ids.get("/CoConAT"), "9", "Unexpected ID for folder.");
+        Assert.assertEquals(ids.get("/"), "1", "Root folder expected.");
+        for (Map.Entry<String, String> entry : ids.entrySet()) {
+            Assert.assertEquals(repository.getChildId(entry.getKey()), entry.getValue(), "Single lookup should match bulk lookup.");
+        } // for
+        try (QueryProfiler.Recording recording = profiler.record()) {
+            Assert.assertTrue(repository.getChildIds(Arrays.asList("/Nowhere/Home", "/CoConAT/missing")).isEmpty(), "Missing paths found.");
+            recording.assertAtMost(1);
+        } // try
+    } // testBulkPaths()
+
 } // CoconatRepositoryTest
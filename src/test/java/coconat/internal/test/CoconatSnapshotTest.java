@@ -0,0 +1,79 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Blob;
+import coconat.Content;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.CoconatSnapshot;
+import coconat.internal.SnapshotRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Export the test database to a snapshot file and read it back.
+ */
+@Test
+public class CoconatSnapshotTest {
+
+    @Test
+    public void testSnapshot() throws IOException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        Path file = Files.createTempFile("coconat", ".snapshot");
+        try {
+            Assert.assertEquals(CoconatSnapshot.export(repository, file, true), 11, "Unexpected number of exported objects.");
+            SnapshotRepository snapshot = new SnapshotRepository(file);
+            Assert.assertEquals(snapshot.size(), 11, "Unexpected number of objects in snapshot.");
+            Content home = snapshot.getChild("CoConAT/Home");
+            Content reference = repository.getChild("CoConAT/Home");
+            Assert.assertNotNull(home, "root topic 'Home' not found");
+            Assert.assertEquals(home.keySet(), reference.keySet(), "Unexpected properties in snapshot.");
+            Assert.assertEquals(home.get("title"), "CoConAT", "Unexpected title found");
+            Assert.assertEquals(home.get("teaser"), reference.get("teaser"), "Unexpected teaser found");
+            Assert.assertEquals(home.get("EDITIONDATE_"), reference.get("EDITIONDATE_"), "Unexpected edition date found");
+            List<Content> logos = (List<Content>) home.get("logo");
+            Assert.assertEquals(logos.size(), 1, "Expected to find exactly one logo.");
+            Blob blob = (Blob) logos.get(0).get("data");
+            Assert.assertEquals(blob.getLen(), 10657, "Unexpected number of bytes in blob.");
+            Assert.assertEquals(blob.getBytes(), ((Blob) repository.getContent("10").get("data")).getBytes(), "Unexpected blob data.");
+            Assert.assertEquals(snapshot.getChildId("CoConAT"), "9", "Unexpected id for home folder.");
+            Assert.assertEquals(snapshot.getParentId("4"), "9", "Unexpected parent.");
+            Assert.assertNull(snapshot.getChild("CoConAT/Missing"), "Missing objects should not be found.");
+            Assert.assertNull(snapshot.getContent("99"), "Missing objects should not be found.");
+
+            CoconatSnapshot.export(repository, file, false);
+            snapshot = new SnapshotRepository(file);
+            blob = (Blob) snapshot.getContent("10").get("data");
+            Assert.assertEquals(blob.getMimeType(), "image/png", "Unexpected mime type in blob.");
+            Assert.assertNull(blob.getBytes(), "Blob data should not have been exported.");
+        } finally {
+            Files.delete(file);
+        } // try/finally
+    } // testSnapshot()
+
+} // CoconatSnapshotTest
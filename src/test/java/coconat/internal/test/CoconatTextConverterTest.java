@@ -19,6 +19,9 @@
 package coconat.internal.test;
 
 import coconat.internal.CoconatTextConverter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -49,4 +52,30 @@ public class CoconatTextConverterTest {
         Assert.assertEquals(result, reference, "Wrong conversion result");
     } // testConverter()
 
+
+    private static String encode(String value) {
+        return String.format("%04X", value.length())+value;
+    } // encode()
+
+
+    @Test
+    public void testLinkExtraction() {
+        StringBuilder text = new StringBuilder("Topic and a site.");
+        StringBuilder data = new StringBuilder(256);
+        data.append('(').append(encode("div")).append("a").append(encode("xmlns:xlink")).append(encode("http://www.w3.org/1999/xlink]"));
+        data.append('(').append(encode("p")).append('(').append(encode("a"));
+        data.append('a').append(encode("xlink:href")).append(encode("coremedia:///cap/content/6]"));
+        data.append("-0005)").append(encode("a")).append("-0007(").append(encode("a"));
+        data.append('a').append(encode("xlink:href")).append(encode("http://example.com/]"));
+        data.append("-0004)").append(encode("a")).append("-0001(").append(encode("img"));
+        data.append('a').append(encode("xlink:href")).append(encode("coremedia:///cap/blob/content/10#data]"));
+        data.append(')').append(encode("img")).append(')').append(encode("p")).append(')').append(encode("div"));
+        List<String> linkIds = new ArrayList<>();
+        String result = CoconatTextConverter.convert(text, data, linkIds);
+        LOG.debug("testLinkExtraction() result={}", result);
+        Assert.assertTrue(result.contains("<a xlink:href=\"coremedia:///cap/content/6\">Topic</a>"), "Link not found in result.");
+        Assert.assertEquals(linkIds, Arrays.asList("6", "10"), "Unexpected link targets.");
+        Assert.assertNull(CoconatTextConverter.getLinkId("http://example.com/cap/content/6"), "External links have no target ID.");
+    } // testLinkExtraction()
+
 } // CoconatTextConverterTest
@@ -0,0 +1,126 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.internal.ConcurrencyLimiter;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Check the adaption of the concurrency limit and the load shedding.
+ */
+@Test
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testAdaption() throws SQLException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 2, 6, 0);
+        for (int i = 0; i<40; i++) {
+            for (int j = 0; j<limiter.getLimit(); j++) {
+                limiter.acquire(0);
+            } // for
+            for (int j = limiter.getInFlight(); j>0; j--) {
+                limiter.release(1_000_000, false);
+            } // for
+        } // for
+        Assert.assertEquals(limiter.getLimit(), 6, "Fast saturated calls should raise the limit to its maximum.");
+        for (int i = 0; i<20; i++) {
+            limiter.acquire(0);
+            limiter.release(50_000_000, false);
+        } // for
+        Assert.assertEquals(limiter.getLimit(), 2, "Slow calls should lower the limit to its minimum.");
+        limiter.acquire(0);
+        limiter.release(1_000_000, true);
+        Assert.assertEquals(limiter.getLimit(), 2, "Limit should not drop below its minimum.");
+    } // testAdaption()
+
+
+    @Test
+    public void testShedding() throws SQLException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1);
+        limiter.setMaxWaitMillis(20);
+        limiter.acquire(0);
+        try {
+            limiter.acquire(0);
+            Assert.fail("Waiting call should have timed out.");
+        } catch (SQLTimeoutException ste) {
+            Assert.assertEquals(limiter.getTimeouts(), 1, "Unexpected number of timeouts.");
+        } // try/catch
+        try {
+            limiter.acquire(System.nanoTime()-TimeUnit.MILLISECONDS.toNanos(1));
+            Assert.fail("Call with passed deadline should have timed out.");
+        } catch (SQLTimeoutException ste) {
+            Assert.assertEquals(limiter.getTimeouts(), 2, "Unexpected number of timeouts.");
+        } // try/catch
+        Thread waiting = new Thread(() -> {
+            try {
+                limiter.acquire(0);
+            } catch (SQLException se) {
+                Assert.fail("Waiting call should have got the free slot.", se);
+            } // try/catch
+        });
+        limiter.setMaxWaitMillis(5000);
+        waiting.start();
+        while (limiter.getQueueDepth()==0) {
+            Thread.yield();
+        } // while
+        try {
+            limiter.acquire(0);
+            Assert.fail("Call at a full queue should have been rejected.");
+        } catch (SQLTransientException ste) {
+            Assert.assertEquals(limiter.getRejected(), 1, "Unexpected number of rejections.");
+        } // try/catch
+        limiter.release(1_000_000, false);
+        try {
+            waiting.join(5000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } // try/catch
+        Assert.assertEquals(limiter.getInFlight(), 1, "Waiting call should hold the slot.");
+        Assert.assertEquals(limiter.getQueueDepth(), 0, "Queue should be empty.");
+    } // testShedding()
+
+
+    @Test
+    public void testBaseline() throws SQLException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 2, 6, 0);
+        for (int i = 0; i<50; i++) {
+            limiter.acquire(0);
+            limiter.release("SELECT lookup", 1_000_000, false);
+        } // for
+        limiter.acquire(0);
+        limiter.release("SELECT lookup", 10_000, false);
+        for (int i = 0; i<20; i++) {
+            limiter.acquire(0);
+            limiter.release("SELECT lookup", 1_500_000, false);
+        } // for
+        Assert.assertEquals(limiter.getLimit(), 4, "A single fast call should not lower the baseline.");
+        for (int i = 0; i<20; i++) {
+            limiter.acquire(0);
+            limiter.release("SELECT scan", 40_000_000, false);
+        } // for
+        Assert.assertEquals(limiter.getLimit(), 4, "Expensive queries should be compared to their own baseline.");
+    } // testBaseline()
+
+} // ConcurrencyLimiterTest
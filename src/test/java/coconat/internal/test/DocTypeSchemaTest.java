@@ -0,0 +1,117 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Content;
+import coconat.internal.CoconatContent;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.ContentFactory;
+import coconat.internal.DocTypeGenerator;
+import coconat.internal.DocTypeSchema;
+import coconat.internal.TypedContent;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Read the example document type models and generate typed content access from them.
+ */
+@Test
+public class DocTypeSchemaTest {
+
+    @Test
+    public void testSchema() throws IOException {
+        DocTypeSchema old = DocTypeSchema.read(Paths.get("doctypes/5.0/example-doctypes.xml"));
+        DocTypeSchema schema = DocTypeSchema.read(Paths.get("doctypes/7.0/example-doctypes.xml"));
+        Assert.assertEquals(old.getTypes().size(), 10, "Unexpected number of types in 5.0 model.");
+        Assert.assertEquals(schema.getTypes().size(), 7, "Unexpected number of types in 7.0 model.");
+        Assert.assertEquals(schema.getParents().get("RootTopic"), "Topic", "Unexpected parent type.");
+        Assert.assertEquals(old.getParents(), schema.getParents(), "Both models should have the same hierarchy.");
+        List<DocTypeSchema.Property> layout = schema.getLayout("RootTopic");
+        Assert.assertEquals(layout.size(), 12, "Unexpected number of properties for root topic.");
+        Assert.assertEquals(layout.get(0).getName(), "title", "Inherited properties should come first.");
+        Assert.assertEquals(layout.get(3).getName(), schema.getLayout("Topic").get(3).getName(), "Slots should match for subtypes.");
+        Assert.assertEquals(layout.get(11).getLinkType(), "ImageData", "Unexpected link type.");
+        Assert.assertEquals(layout.get(11).getType(), DocTypeSchema.PropertyType.LINK_LIST, "Unexpected property type.");
+        Assert.assertEquals(DocTypeGenerator.getAccessorName("subTopics"), "getSubTopics", "Unexpected accessor name.");
+        Assert.assertEquals(DocTypeGenerator.getAccessorName("id"), "getIdProperty", "Reserved names should be avoided.");
+    } // testSchema()
+
+
+    @Test
+    public void testGenerator() throws Exception {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        DocTypeSchema schema = DocTypeSchema.read(Paths.get("doctypes/7.0/example-doctypes.xml"));
+        repository.setSchema(schema);
+        Assert.assertEquals(repository.getSubtypes("Linkable").size(), 6, "Unexpected number of linkable types.");
+        Assert.assertEquals(repository.getTypeMetadata("Topic").getType(), "Topic", "Metadata should have been read.");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Path directory = Files.createTempDirectory("coconat");
+        try {
+            List<Path> files = DocTypeGenerator.generate(schema, "coconat.example", directory);
+            Assert.assertEquals(files.size(), 15, "Unexpected number of generated files.");
+            if (compiler==null) {
+                return;
+            } // if
+            String classpath = new File(CoconatContent.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            List<String> arguments = new ArrayList<>(List.of("-classpath", classpath, "-d", directory.toString()));
+            for (Path file : files) {
+                arguments.add(file.toString());
+            } // for
+            Assert.assertEquals(compiler.run(null, null, null, arguments.toArray(new String[0])), 0, "Generated code should compile.");
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader())) {
+                Class<?> rootTopic = loader.loadClass("coconat.example.RootTopic");
+                Class<?> factory = loader.loadClass("coconat.example."+DocTypeGenerator.FACTORY_NAME);
+                repository.setContentFactory((ContentFactory) factory.getDeclaredConstructor().newInstance());
+                Content home = repository.getContent("4");
+                Assert.assertTrue(rootTopic.isInstance(home), "Home should implement its typed interface.");
+                Assert.assertEquals(rootTopic.getMethod("getTitle").invoke(home), "CoConAT", "Unexpected title found");
+                Assert.assertEquals(((List<?>) rootTopic.getMethod("getLogo").invoke(home)).size(), 1, "Expected to find exactly one logo.");
+                Assert.assertEquals(((TypedContent) home).getDocumentType(), "RootTopic", "Unexpected document type.");
+                Assert.assertFalse(repository.getContent("9") instanceof TypedContent, "Folders should not be typed.");
+            } // try
+        } finally {
+            try (Stream<Path> walk = Files.walk(directory)) {
+                for (Path file : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                } // for
+            } // try
+        } // try/finally
+    } // testGenerator()
+
+} // DocTypeSchemaTest
@@ -0,0 +1,118 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.internal.CoconatContent;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.FullTextIndex;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Check indexing, ranking, and persistence of the full text index.
+ */
+@Test
+public class FullTextIndexTest {
+
+    private static List<String> ids(List<FullTextIndex.Hit> hits) {
+        List<String> result = new ArrayList<>();
+        for (FullTextIndex.Hit hit : hits) {
+            result.add(hit.getId());
+        } // for
+        return result;
+    } // ids()
+
+
+    private static CoconatContent article(String id, String title, String text) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("title", title);
+        properties.put("text", text);
+        properties.put("ID_", Integer.valueOf(id));
+        return new CoconatContent(id, "Article", properties);
+    } // article()
+
+
+    @Test
+    public void testSearch() throws IOException {
+        FullTextIndex index = new FullTextIndex();
+        index.update(article("100", "Duck cutlet", "<div><p>Enjoy the taste of a duck cutlet with caramelized onions.</p></div>"));
+        index.update(article("102", "Onion soup", "<div><p>Onions &amp; more onions - a French classic.</p></div>"));
+        index.update(article("104", "Coffee", "<div><p>Java for breakfast.</p></div>"));
+        Assert.assertEquals(index.size(), 3, "Unexpected number of indexed objects.");
+        Assert.assertEquals(ids(index.search("onions", 10)), List.of("102", "100"), "More frequent terms should rank higher.");
+        Assert.assertEquals(ids(index.search("+onions +duck", 10)), List.of("100"), "All required terms must match.");
+        Assert.assertEquals(ids(index.search("onions -french", 10)), List.of("100"), "Excluded terms must not match.");
+        Assert.assertEquals(ids(index.search("caramel*", 10)), List.of("100"), "Prefix should have matched.");
+        Assert.assertEquals(ids(index.search("onions", 1)), List.of("102"), "Limit should have been applied.");
+        Assert.assertTrue(index.search("div amp", 10).isEmpty(), "Markup should not be indexed.");
+        Assert.assertTrue(index.search("ID_ 100", 10).isEmpty(), "Internal properties should not be indexed.");
+        index.update(article("106", "M&#228;rz", "<div><p>Gr&#xFC;&#223;e aus dem Fr&#252;hling.</p></div>"));
+        Assert.assertEquals(ids(index.search("m\u00e4rz gr\u00fc\u00dfe", 10)), List.of("106"), "Numeric entities should have been decoded.");
+        Assert.assertTrue(index.search("rz", 10).isEmpty(), "Entities should not split words.");
+        index.remove("106");
+
+        index.update(article("100", "Duck cutlet", "<div><p>Served with potatoes.</p></div>"));
+        Assert.assertEquals(ids(index.search("onions potatoes", 10)), List.of("102", "100"), "Update should have replaced old terms.");
+        index.remove("102");
+        Assert.assertTrue(index.search("soup", 10).isEmpty(), "Removed object should not be found.");
+
+        Path file = Files.createTempFile("fulltext", ".idx");
+        try {
+            index.save(file);
+            FullTextIndex loaded = FullTextIndex.load(file);
+            Assert.assertEquals(loaded.size(), index.size(), "Unexpected number of objects after reload.");
+            Assert.assertEquals(loaded.getTermCount(), index.getTermCount(), "Unexpected number of terms after reload.");
+            Assert.assertEquals(ids(loaded.search("java potatoes", 10)), ids(index.search("java potatoes", 10)), "Unexpected hits after reload.");
+            loaded.remove("104");
+            Assert.assertTrue(loaded.search("java", 10).isEmpty(), "Reloaded index should support removal.");
+        } finally {
+            Files.deleteIfExists(file);
+        } // try/catch
+    } // testSearch()
+
+
+    @Test
+    public void testRepositoryIndex() throws SQLException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+        FullTextIndex index = new FullTextIndex();
+        repository.setFullTextIndex(index);
+        repository.getContent("4");
+        Assert.assertEquals(index.size(), 0, "Loading should not touch the index.");
+        Assert.assertEquals(index.indexAll(repository), 5, "Unexpected number of documents in full scan.");
+        Assert.assertTrue(ids(index.search("coconat", 10)).contains("4"), "Home should be found by its title.");
+        Assert.assertEquals(index.size(), 5, "All documents should have been indexed.");
+        Assert.assertTrue(ids(index.search("cocon*", 10)).contains("4"), "Home should be found by prefix.");
+        repository.resourceChanged("4", "9", "RootTopic");
+        Assert.assertEquals(index.size(), 5, "Changed object should have been reindexed.");
+    } // testRepositoryIndex()
+
+} // FullTextIndexTest
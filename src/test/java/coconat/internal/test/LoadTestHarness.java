@@ -0,0 +1,407 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.CoconatQuery;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+
+/**
+ * Replay a weighted mix of repository operations against the test fixture at increasing concurrency.
+ *
+ * For each number of threads the mix is run for a warmup and a measurement period. Throughput, latency percentiles,
+ * and database round trips - statement executions - per operation are printed as a table and appended as JSON
+ * lines to a result file, so runs before and after a change can be compared. Round trips are counted on the
+ * calling thread, so statements of parallel bulk loads on other threads are not included.
+ *
+ * Not part of the test suite - run through the loadTest task of the build or manually, e.g.
+ * java -cp ... coconat.internal.test.LoadTestHarness --threads 1,4,16 --duration 10 --mix getContent=3,blob=1
+ */
+public final class LoadTestHarness {
+
+    private static final String DB_URL = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+
+    private static final String[] IDS = {"2", "4", "6", "8", "10"};
+
+    private static final String[] PATHS = {"/CoConAT/Home", "/CoConAT/coconat.java", "/CoConAT/coconat.php", "/CoConAT/logo"};
+
+    private static final ThreadLocal<long[]> ROUND_TRIPS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Operations of the mix with their default weights.
+     */
+    enum Operation {
+        GET_CONTENT("getContent", 40, (r, random) -> r.getContent(IDS[random.nextInt(IDS.length)])),
+        GET_CHILD("getChild", 20, (r, random) -> r.getChild(PATHS[random.nextInt(PATHS.length)])),
+        LISTING("listing", 15, (r, random) -> random.nextBoolean() ? r.getChildrenIds("9") : r.listIds(new CoconatQuery("Topic").orderBy("title", true))),
+        REFERRERS("referrers", 10, (r, random) -> r.getReferrerIds("10", null, "logo")),
+        BLOB("blob", 5, (r, random) -> r.getBlobData("10", "data")),
+        RICHTEXT("richtext", 10, (r, random) -> r.getContent(IDS[1+random.nextInt(3)], List.of("teaser")).get("teaser"));
+
+        private final String name;
+
+        private final int weight;
+
+        private final Call call;
+
+
+        Operation(String name, int weight, Call call) {
+            this.name = name;
+            this.weight = weight;
+            this.call = call;
+        }
+
+
+        static Operation forName(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) {
+                    return operation;
+                } // if
+            } // for
+            throw new IllegalArgumentException("unknown operation "+name);
+        } // forName()
+
+    } // Operation
+
+
+    /**
+     * Single call of an operation - a null result counts as an error.
+     */
+    private interface Call {
+
+        Object run(CoconatContentRepository repository, Random random);
+
+    } // Call
+
+
+    /**
+     * Repository counting the statement executions of the calling thread.
+     */
+    private static final class CountingRepository extends CoconatContentRepository {
+
+        CountingRepository(String dbUrl) {
+            super(dbUrl, "org.hsqldb.jdbcDriver", "sa", "");
+        }
+
+
+        private static <T> T proxy(Class<T> type, Object target, Function<Object, Object> wrapper) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    ROUND_TRIPS.get()[0]++;
+                } // if
+                try {
+                    return wrapper.apply(method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                } // try/catch
+            };
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        } // proxy()
+
+
+        @Override
+        protected Connection openConnection() throws SQLException {
+            return proxy(Connection.class, super.openConnection(), result -> {
+                if (result instanceof PreparedStatement) {
+                    return proxy(PreparedStatement.class, result, Function.identity());
+                } // if
+                if (result instanceof Statement) {
+                    return proxy(Statement.class, result, Function.identity());
+                } // if
+                return result;
+            });
+        } // openConnection()
+
+    } // CountingRepository
+
+
+    /**
+     * Measurements of one thread.
+     */
+    private static final class Recorder {
+
+        private final long[][] latencies = new long[Operation.values().length][1024];
+
+        private final int[] counts = new int[Operation.values().length];
+
+        private final long[] roundTrips = new long[Operation.values().length];
+
+        private final int[] errors = new int[Operation.values().length];
+
+
+        void record(Operation operation, long nanos, long calls, boolean error) {
+            int i = operation.ordinal();
+            if (counts[i]==latencies[i].length) {
+                latencies[i] = Arrays.copyOf(latencies[i], counts[i]*2);
+            } // if
+            latencies[i][counts[i]++] = nanos;
+            roundTrips[i] += calls;
+            if (error) {
+                errors[i]++;
+            } // if
+        } // record()
+
+    } // Recorder
+
+
+    /**
+     * Merged measurements of one operation at one concurrency level.
+     */
+    private static final class Result {
+
+        private long[] latencies = new long[0];
+
+        private long roundTrips;
+
+        private int errors;
+
+
+        void add(long[] values, int count, long calls, int failures) {
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset+count);
+            System.arraycopy(values, 0, latencies, offset, count);
+            roundTrips += calls;
+            errors += failures;
+        } // add()
+
+
+        long percentile(double quantile) {
+            if (latencies.length==0) {
+                return 0;
+            } // if
+            int index = (int) Math.ceil(quantile*latencies.length)-1;
+            return latencies[Math.max(0, Math.min(latencies.length-1, index))];
+        } // percentile()
+
+    } // Result
+
+
+    private final CoconatContentRepository repository;
+
+    private final Operation[] mix;
+
+    private volatile boolean measuring;
+
+    private volatile boolean running;
+
+
+    private LoadTestHarness(CoconatContentRepository repository, Map<Operation, Integer> weights) {
+        this.repository = repository;
+        List<Operation> slots = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            for (int i = 0; i<entry.getValue(); i++) {
+                slots.add(entry.getKey());
+            } // for
+        } // for
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("empty operation mix");
+        } // if
+        mix = slots.toArray(new Operation[0]);
+    } // LoadTestHarness()
+
+
+    private void work(Recorder recorder, long seed) {
+        Random random = new Random(seed);
+        long[] counter = ROUND_TRIPS.get();
+        while (running) {
+            Operation operation = mix[random.nextInt(mix.length)];
+            long calls = counter[0];
+            long start = System.nanoTime();
+            boolean error;
+            try {
+                error = operation.call.run(repository, random)==null;
+            } catch (RuntimeException e) {
+                error = true;
+            } // try/catch
+            long nanos = System.nanoTime()-start;
+            if (measuring) {
+                recorder.record(operation, nanos, counter[0]-calls, error);
+            } // if
+        } // while
+    } // work()
+
+
+    private Map<Operation, Result> runLevel(int threads, long warmupMillis, long durationMillis) throws InterruptedException {
+        Recorder[] recorders = new Recorder[threads];
+        Thread[] workers = new Thread[threads];
+        running = true;
+        measuring = false;
+        for (int i = 0; i<threads; i++) {
+            Recorder recorder = new Recorder();
+            long seed = 31L*threads+i;
+            recorders[i] = recorder;
+            workers[i] = new Thread(() -> work(recorder, seed), "load-"+i);
+            workers[i].start();
+        } // for
+        Thread.sleep(warmupMillis);
+        measuring = true;
+        Thread.sleep(durationMillis);
+        measuring = false;
+        running = false;
+        for (Thread worker : workers) {
+            worker.join();
+        } // for
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            Result result = new Result();
+            int i = operation.ordinal();
+            for (Recorder recorder : recorders) {
+                result.add(recorder.latencies[i], recorder.counts[i], recorder.roundTrips[i], recorder.errors[i]);
+            } // for
+            if (result.latencies.length>0) {
+                Arrays.sort(result.latencies);
+                results.put(operation, result);
+            } // if
+        } // for
+        return results;
+    } // runLevel()
+
+
+    private static String json(String run, boolean cache, int threads, double seconds, String operation, Result result) {
+        int count = result.latencies.length;
+        return String.format(Locale.ROOT,
+                "{\"run\":\"%s\",\"cache\":%b,\"threads\":%d,\"operation\":\"%s\",\"operations\":%d,\"errors\":%d,"
+                +"\"throughput\":%.1f,\"p50Micros\":%.1f,\"p99Micros\":%.1f,\"p999Micros\":%.1f,\"roundTripsPerOperation\":%.3f}",
+                run, cache, threads, operation, count, result.errors, count/seconds, result.percentile(0.5)/1000.0,
+                result.percentile(0.99)/1000.0, result.percentile(0.999)/1000.0, count==0 ? 0.0 : (double) result.roundTrips/count);
+    } // json()
+
+
+    private static void print(int threads, double seconds, String operation, Result result) {
+        int count = result.latencies.length;
+        System.out.printf(Locale.ROOT, "%7d  %-10s %9d %6d %10.1f %9.1f %9.1f %10.1f %7.2f%n", threads, operation, count,
+                result.errors, count/seconds, result.percentile(0.5)/1000.0, result.percentile(0.99)/1000.0,
+                result.percentile(0.999)/1000.0, count==0 ? 0.0 : (double) result.roundTrips/count);
+    } // print()
+
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights.put(Operation.forName(pair[0]), pair.length>1 ? Integer.parseInt(pair[1]) : 1);
+        } // for
+        return weights;
+    } // parseMix()
+
+
+    /**
+     * Run the load test.
+     *
+     * Options: --threads comma separated concurrency levels, --warmup and --duration seconds per level, --mix
+     * comma separated operation=weight pairs out of getContent, getChild, listing, referrers, blob, and richtext,
+     * --cache to run with a content cache, --run label of the run, and --out file to append the JSON lines to.
+     *
+     * @param args command line options
+     * @throws IOException in case the result file cannot be written
+     * @throws InterruptedException if interrupted while waiting for the worker threads
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] levels = {1, 2, 4, 8, 16, 32, 64};
+        long warmup = 2;
+        long duration = 5;
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            weights.put(operation, operation.weight);
+        } // for
+        boolean cache = false;
+        String run = Instant.now().toString();
+        Path out = Paths.get("build", "loadtest", "results.jsonl");
+        for (int i = 0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    levels = Arrays.stream(args[++i].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                    break;
+                case "--warmup":
+                    warmup = Long.parseLong(args[++i]);
+                    break;
+                case "--duration":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                case "--mix":
+                    weights = parseMix(args[++i]);
+                    break;
+                case "--cache":
+                    cache = true;
+                    break;
+                case "--run":
+                    run = args[++i];
+                    break;
+                case "--out":
+                    out = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option "+args[i]);
+            } // switch
+        } // for
+        CoconatContentRepository repository = new CountingRepository(DB_URL);
+        if (cache) {
+            repository.setContentCache(new ConcurrentHashMap<>());
+        } // if
+        LoadTestHarness harness = new LoadTestHarness(repository, weights);
+        if (out.getParent()!=null) {
+            Files.createDirectories(out.getParent());
+        } // if
+        double seconds = duration;
+        System.out.printf("%7s  %-10s %9s %6s %10s %9s %9s %10s %7s%n", "threads", "operation", "count", "errors", "ops/s",
+                "p50 us", "p99 us", "p999 us", "trips");
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (int threads : levels) {
+                Map<Operation, Result> results = harness.runLevel(threads, warmup*1000, duration*1000);
+                Result total = new Result();
+                for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+                    Result result = entry.getValue();
+                    print(threads, seconds, entry.getKey().name, result);
+                    writer.write(json(run, cache, threads, seconds, entry.getKey().name, result)+"\n");
+                    total.add(result.latencies, result.latencies.length, result.roundTrips, result.errors);
+                } // for
+                Arrays.sort(total.latencies);
+                print(threads, seconds, "total", total);
+                writer.write(json(run, cache, threads, seconds, "total", total)+"\n");
+                writer.flush();
+            } // for
+        } // try
+        System.out.println("results appended to "+out);
+    } // main()
+
+} // LoadTestHarness
@@ -0,0 +1,132 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Content;
+import coconat.internal.CoconatContent;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.LazyContentList;
+import coconat.internal.OffHeapContentCache;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Compare garbage collection and read latency of the off-heap cache with an on-heap cache of the same size.
+ *
+ * Not part of the test suite - run manually with a fixed heap, e.g.
+ * java -Xmx512m -cp ... coconat.internal.test.OffHeapCacheBenchmark [entries] [reads]
+ */
+public final class OffHeapCacheBenchmark {
+
+    private OffHeapCacheBenchmark() {
+    }
+
+
+    private static Content createContent(CoconatContentRepository repository, int id, Random random) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ID_", id);
+        properties.put("VERSION_", 1+random.nextInt(5));
+        properties.put("EDITIONDATE_", new Timestamp(1_500_000_000_000L+random.nextInt()));
+        properties.put("title", "Title of document "+id);
+        properties.put("keywords", "benchmark, cache, off-heap, "+random.nextInt(1000));
+        properties.put("teaser", "Teaser text of document "+id+" which is a bit longer to resemble real content.");
+        properties.put("subTopics", new LazyContentList(repository, Arrays.asList(""+random.nextInt(id+1), ""+random.nextInt(id+1))));
+        return new CoconatContent(""+id, "Topic", properties);
+    } // createContent()
+
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+            time += Math.max(0, bean.getCollectionTime());
+        } // for
+        return new long[]{count, time};
+    } // gcTotals()
+
+
+    private static void run(String name, Map<String, Content> cache, CoconatContentRepository repository, int entries, int reads) {
+        System.gc();
+        long[] before = gcTotals();
+        long start = System.nanoTime();
+        Random random = new Random(42);
+        for (int i = 0; i<entries; i++) {
+            cache.put(""+i, createContent(repository, i, random));
+        } // for
+        long[] latencies = new long[reads];
+        int found = 0;
+        for (int i = 0; i<reads; i++) {
+            String id = ""+random.nextInt(entries);
+            long t = System.nanoTime();
+            Content content = cache.get(id);
+            if ((content!=null)&&(content.get("title")!=null)) {
+                found++;
+            } // if
+            latencies[i] = System.nanoTime()-t;
+        } // for
+        long duration = (System.nanoTime()-start)/1_000_000;
+        long[] after = gcTotals();
+        Arrays.sort(latencies);
+        long heap = Runtime.getRuntime().totalMemory()-Runtime.getRuntime().freeMemory();
+        System.out.printf("%-8s %8d ms  gc %5d runs %6d ms  heap %6d MB  hits %8d  p50 %6d ns  p99 %7d ns  p999 %8d ns%n", name,
+                duration, after[0]-before[0], after[1]-before[1], heap>>20, found, latencies[reads/2], latencies[reads*99/100],
+                latencies[reads*999/1000]);
+    } // run()
+
+
+    /**
+     * Run the comparison.
+     *
+     * @param args optional number of cached entries and number of reads
+     */
+    public static void main(String[] args) {
+        int entries = args.length>0 ? Integer.parseInt(args[0]) : 500_000;
+        int reads = args.length>1 ? Integer.parseInt(args[1]) : 2_000_000;
+        CoconatContentRepository repository = new CoconatContentRepository("jdbc:hsqldb:src/test/resources/unittest;readonly=true", "org.hsqldb.jdbcDriver", "sa", "");
+        List<String> order = new ArrayList<>(List.of("on-heap", "off-heap"));
+        Collections.shuffle(order);
+        for (String name : order) {
+            Map<String, Content> cache;
+            if ("on-heap".equals(name)) {
+                cache = Collections.synchronizedMap(new LinkedHashMap<>(entries*2, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Content> eldest) {
+                        return size()>entries;
+                    }
+                });
+            } else {
+                cache = new OffHeapContentCache(repository, 16<<20, Math.max(2, entries/50_000));
+            } // if
+            run(name, cache, repository, entries, reads);
+            cache.clear();
+        } // for
+    } // main()
+
+} // OffHeapCacheBenchmark
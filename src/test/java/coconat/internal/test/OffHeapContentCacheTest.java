@@ -0,0 +1,150 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Blob;
+import coconat.Content;
+import coconat.internal.CoconatContent;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.OffHeapContentCache;
+import coconat.internal.SlotContent;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Check the off-heap content cache and its binary format.
+ */
+@Test
+public class OffHeapContentCacheTest {
+
+    private CoconatContentRepository createRepository() {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String dbUrl = "jdbc:hsqldb:src/test/resources/unittest;readonly=true";
+        String dbUser = "sa";
+        String dbPassword = "";
+        return new CoconatContentRepository(dbUrl, dbDriver, dbUser, dbPassword);
+    } // createRepository()
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRoundTrip() {
+        CoconatContentRepository repository = createRepository();
+        OffHeapContentCache cache = new OffHeapContentCache(repository, 4096, 4);
+        repository.setContentCache(cache);
+        Content loaded = repository.getContent("4");
+        Assert.assertEquals(cache.size(), 1, "Loaded object should have been cached.");
+        Content cached = repository.getContent("4");
+        Assert.assertEquals(cache.getHits(), 1, "Second access should have been taken from the cache.");
+        Assert.assertNotSame(cached, loaded, "Cached objects are decoded views.");
+        Assert.assertEquals(((CoconatContent) cached).getDocumentType(), "RootTopic", "Unexpected document type.");
+        Assert.assertEquals(cached.keySet(), loaded.keySet(), "Unexpected property names.");
+        Assert.assertEquals(cached.get("title"), "CoConAT", "Unexpected title found.");
+        Assert.assertEquals(cached.get("EDITIONDATE_"), loaded.get("EDITIONDATE_"), "Unexpected edition date found.");
+        List<Content> subTopics = (List<Content>) cached.get("subTopics");
+        Assert.assertEquals(subTopics.size(), 2, "Expected to find exactly two sub topics.");
+        Assert.assertEquals(subTopics.get(1).getId(), "8", "Unexpected sub topic.");
+
+        Content logo = ((List<Content>) cached.get("logo")).get(0);
+        Assert.assertNotNull(cache.get("10"), "Linked logo should have been cached.");
+        Blob blob = (Blob) logo.get("data");
+        Assert.assertEquals(blob.getLen(), 10657, "Unexpected blob size.");
+        Assert.assertEquals(blob.getMimeType(), ((Blob) repository.getContent("10").get("data")).getMimeType(), "Unexpected mime type.");
+        Assert.assertEquals(blob.getBytes().length, 10657, "Unexpected number of blob bytes loaded.");
+
+        repository.invalidate("4");
+        Assert.assertFalse(cache.containsKey("4"), "Invalidated object should have been removed.");
+    } // testRoundTrip()
+
+
+    @Test
+    public void testEviction() {
+        CoconatContentRepository repository = createRepository();
+        OffHeapContentCache cache = new OffHeapContentCache(repository, 512, 2);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("title", "Teaser with some text to fill up the slabs");
+        properties.put("rank", 42);
+        for (int i = 100; i<120; i++) {
+            cache.put(""+i, new CoconatContent(""+i, "Topic", new HashMap<>(properties)));
+        } // for
+        Assert.assertTrue(cache.getEvictions()>0, "Full slabs should have been reused.");
+        Assert.assertEquals(cache.size()+cache.getEvictions(), 20, "Each entry should be either cached or evicted.");
+        Assert.assertTrue(cache.getUsedBytes()<=cache.getCapacity(), "Capacity exceeded.");
+        Assert.assertEquals(cache.getLayoutCount(), 1, "All records should share one layout.");
+        Assert.assertNull(cache.get("100"), "Oldest entry should have been evicted.");
+        Content latest = cache.get("119");
+        Assert.assertEquals(latest.get("rank"), 42, "Unexpected integer value.");
+        Assert.assertEquals(latest.get("title"), properties.get("title"), "Unexpected string value.");
+
+        properties.put("unsupported", Arrays.asList("a", "b"));
+        cache.put("200", new CoconatContent("200", "Topic", properties));
+        Assert.assertFalse(cache.containsKey("200"), "Objects with unsupported values should not be cached.");
+
+        Map<String, Object> additionalProperties = new HashMap<>();
+        additionalProperties.put("unsupported", properties.get("unsupported"));
+        repository.setAdditionalProperties(additionalProperties);
+        cache.put("200", new CoconatContent("200", "Topic", properties));
+        Assert.assertTrue(cache.containsKey("200"), "Additional properties of the repository should not be encoded.");
+        Assert.assertEquals(cache.get("200").get("unsupported"), properties.get("unsupported"), "Additional properties should be added again.");
+    } // testEviction()
+
+
+    @Test
+    public void testLayoutsAndTimestamps() {
+        CoconatContentRepository repository = createRepository();
+        OffHeapContentCache cache = new OffHeapContentCache(repository, 4096, 2, 2);
+        Timestamp timestamp = Timestamp.valueOf("2015-04-06 20:15:20.123456789");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("EDITIONDATE_", timestamp);
+        cache.put("100", new CoconatContent("100", "Topic", new HashMap<>(properties)));
+        Assert.assertEquals(cache.get("100").get("EDITIONDATE_"), timestamp, "Nanoseconds should have been kept.");
+        cache.put("102", new CoconatContent("102", "Article", new HashMap<>(properties)));
+        cache.put("104", new CoconatContent("104", "Image", new HashMap<>(properties)));
+        Assert.assertEquals(cache.getLayoutCount(), 2, "Number of layouts should be limited.");
+        Assert.assertFalse(cache.containsKey("104"), "Objects beyond the layout limit should not be cached.");
+        Content handedOut = cache.get("102");
+        cache.clear();
+        cache.put("104", new CoconatContent("104", "Image", new HashMap<>(Map.of("title", "Logo"))));
+        Assert.assertTrue(cache.containsKey("104"), "Clearing should free the layouts.");
+        Assert.assertEquals(handedOut.get("EDITIONDATE_"), timestamp, "Objects from before clearing should stay readable.");
+
+        int[] reads = new int[1];
+        Map<String, Object> counting = new HashMap<>(properties) {
+
+            @Override
+            public Object get(Object key) {
+                reads[0]++;
+                return super.get(key);
+            }
+
+        };
+        SlotContent content = new SlotContent("106", "Topic", counting, new String[]{"EDITIONDATE_"});
+        Assert.assertEquals(reads[0], 0, "Slots should not be filled at creation time.");
+        Assert.assertEquals(content.slot(0), timestamp, "Unexpected slot value.");
+        Assert.assertEquals(content.slot(0), timestamp, "Unexpected slot value.");
+        Assert.assertEquals(reads[0], 1, "Slots should be filled once on first access.");
+    } // testLayoutsAndTimestamps()
+
+} // OffHeapContentCacheTest
@@ -0,0 +1,264 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.Content;
+import coconat.internal.CoconatContentRepository;
+import coconat.internal.ReplicaRouter;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Check routing and fail over over several database instances standing in for replicas.
+ */
+@Test
+public class ReplicaRouterTest {
+
+    private static final String MISSING_REPLICA = "jdbc:hsqldb:file:build/missing/replica;ifexists=true";
+
+    private final List<Path> directories = new ArrayList<>();
+
+
+    /**
+     * Driver for URLs prefixed with jdbc:slow: delaying each statement creation on the wrapped database.
+     */
+    private static final class SlowDriver implements Driver {
+
+        private static final String PREFIX = "jdbc:slow:";
+
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            } // if
+            Connection connection = DriverManager.getConnection("jdbc:"+url.substring(PREFIX.length()), info);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().endsWith("Statement")) {
+                    Thread.sleep(50);
+                } // if
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException ite) {
+                    throw ite.getCause();
+                } // try/catch
+            });
+        } // connect()
+
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(PREFIX);
+        }
+
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+    } // SlowDriver
+
+
+    /**
+     * Copy the test database to a new directory so that it is opened as a separate database instance.
+     */
+    private String createReplica() throws IOException {
+        Path directory = Files.createTempDirectory("replica");
+        directories.add(directory);
+        for (String extension : Arrays.asList(".properties", ".script")) {
+            Files.copy(Paths.get("src/test/resources/unittest"+extension), directory.resolve("unittest"+extension));
+        } // for
+        return "jdbc:hsqldb:"+directory.resolve("unittest")+";readonly=true";
+    } // createReplica()
+
+
+    @AfterClass
+    public void deleteReplicas() throws IOException {
+        for (Path directory : directories) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                } // for
+            } // try
+        } // for
+    } // deleteReplicas()
+
+
+    @Test
+    public void testFailover() throws IOException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        List<String> dbUrls = Arrays.asList(MISSING_REPLICA, createReplica());
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrls, dbDriver, "sa", "");
+        ReplicaRouter router = repository.getReplicaRouter();
+        router.setFailureThreshold(1);
+        Content home = repository.getContent("4");
+        Assert.assertNotNull(home, "Home should have been found on the second replica.");
+        Assert.assertEquals(home.get("title"), "CoConAT", "Unexpected title found.");
+        Assert.assertTrue(router.getFailovers()>0, "Calls should have failed over.");
+        ReplicaRouter.Endpoint missing = router.getEndpoints().get(1);
+        Assert.assertEquals(missing.getUrl(), MISSING_REPLICA, "Failed replica should be tried last.");
+        Assert.assertFalse(missing.isHealthy(), "Failed replica should be out of rotation.");
+        long requests = missing.getRequests();
+        Assert.assertEquals(repository.getChildrenIds("9").size(), 4, "Unexpected number of children.");
+        Assert.assertEquals(missing.getRequests(), requests, "Failed replica should not have been used again.");
+    } // testFailover()
+
+
+    @Test
+    public void testCircuitBreaking() throws IOException, SQLException {
+        AtomicLong clock = new AtomicLong();
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(MISSING_REPLICA, createReplica()), "sa", "", clock::get);
+        router.setFailureThreshold(2);
+        router.setOpenMillis(1000);
+        ReplicaRouter.Endpoint missing = router.getEndpoints().get(0);
+        try (Connection connection = router.getConnection()) {
+            for (int i = 0; i<4; i++) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT id_ FROM Resources WHERE id_ = ?")) {
+                    statement.setInt(1, 9);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        Assert.assertTrue(resultSet.next(), "Folder should have been found.");
+                        Assert.assertEquals(resultSet.getInt(1), 9, "Unexpected ID.");
+                    } // try
+                } // try
+            } // for
+            Assert.assertEquals(missing.getRequests(), 2, "Failing replica should have been used until the threshold.");
+            Assert.assertFalse(missing.isHealthy(), "Failing replica should be out of rotation.");
+            clock.set(1001);
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id_ FROM Resources")) {
+                statement.executeQuery().close();
+                statement.executeQuery().close();
+            } // try
+            Assert.assertEquals(missing.getRequests(), 3, "Failing replica should have been probed exactly once.");
+        } // try
+    } // testCircuitBreaking()
+
+
+    @Test
+    public void testLatencyRouting() throws IOException, SQLException, InterruptedException {
+        String dbDriver = "org.hsqldb.jdbcDriver";
+        String slowUrl = createReplica().replace("jdbc:", SlowDriver.PREFIX);
+        List<String> dbUrls = Arrays.asList(slowUrl, createReplica(), createReplica());
+        SlowDriver slowDriver = new SlowDriver();
+        DriverManager.registerDriver(slowDriver);
+        CoconatContentRepository repository = new CoconatContentRepository(dbUrls, dbDriver, "sa", "");
+        ReplicaRouter router = repository.getReplicaRouter();
+        router.setHedgeDelayMillis(1);
+        for (String url : dbUrls) {
+            // open the databases beforehand so that the first measured call does not include the startup
+            DriverManager.getConnection(url.replace(SlowDriver.PREFIX, "jdbc:"), "sa", "").close();
+        } // for
+        try {
+            for (int i = 0; i<20; i++) {
+                Assert.assertEquals(repository.getContent("4").get("title"), "CoConAT", "Unexpected title found.");
+                Assert.assertEquals(repository.getChildId("/CoConAT/Home"), "4", "Unexpected ID for path.");
+            } // for
+        } finally {
+            DriverManager.deregisterDriver(slowDriver);
+        } // try/finally
+        // hedged calls on the slow replica may still be running after the faster answer was taken
+        long until = System.currentTimeMillis()+2000;
+        while (router.getEndpoints().stream().anyMatch(e -> e.getOutstanding()>0)&&(System.currentTimeMillis()<until)) {
+            Thread.sleep(10);
+        } // while
+        List<ReplicaRouter.Endpoint> endpoints = router.getEndpoints();
+        ReplicaRouter.Endpoint slow = endpoints.get(endpoints.size()-1);
+        Assert.assertEquals(slow.getUrl(), slowUrl, "Slow replica should be ranked last.");
+        Assert.assertTrue(slow.getRequests()<endpoints.get(0).getRequests(), "Slow replica should have been used less.");
+        long requests = 0;
+        for (ReplicaRouter.Endpoint endpoint : endpoints) {
+            Assert.assertTrue(endpoint.getRequests()>0, "Each replica should have been measured.");
+            Assert.assertTrue(endpoint.getLatencyMillis()>=0, "Latency should have been measured.");
+            Assert.assertTrue(endpoint.isHealthy(), "Replicas should be healthy.");
+            Assert.assertEquals(endpoint.getOutstanding(), 0, "No calls should be outstanding.");
+            requests += endpoint.getRequests();
+        } // for
+        Assert.assertEquals(router.getFailovers(), 0, "No calls should have failed.");
+        Assert.assertTrue(requests>=40, "Unexpected number of routed calls.");
+    } // testLatencyRouting()
+
+
+    @Test
+    public void testConnectionSettings() throws IOException, SQLException {
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(createReplica(), createReplica()), "sa", "");
+        try (Connection connection = router.getConnection()) {
+            connection.setAutoCommit(false);
+            for (ReplicaRouter.Endpoint endpoint : router.getEndpoints()) {
+                Assert.assertEquals(endpoint.getRequests(), 0, "Settings should not be routed to a single endpoint.");
+            } // for
+            for (int i = 0; i<10; i++) {
+                try (PreparedStatement statement = connection.prepareStatement("SELECT id_ FROM Resources WHERE id_ = ?")) {
+                    statement.setInt(1, 9);
+                    statement.executeQuery().close();
+                } // try
+            } // for
+            Assert.assertFalse(connection.getAutoCommit(), "Setting should apply to the endpoint connections.");
+            connection.commit();
+        } // try
+    } // testConnectionSettings()
+
+} // ReplicaRouterTest
@@ -0,0 +1,122 @@
+/*
+ *
+ * Copyright 2026 Martin Goellnitz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package coconat.internal.test;
+
+import coconat.internal.SingleFlight;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Check that concurrent loads of the same key are coalesced.
+ */
+@Test
+public class SingleFlightTest {
+
+    @Test
+    public void testCoalescing() throws InterruptedException, ExecutionException {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i<8; i++) {
+                results.add(executor.submit(() -> flight.load("4", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    } // try/catch
+                    return "Home";
+                })));
+            } // for
+            while (flight.getCoalesced()<7) {
+                Thread.sleep(5);
+            } // while
+            Assert.assertEquals(flight.getInFlight(), 1, "Exactly one load should be running.");
+            release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals(result.get(), "Home", "Unexpected value.");
+            } // for
+        } finally {
+            executor.shutdownNow();
+        } // try/finally
+        Assert.assertEquals(calls.get(), 1, "Loader should have been called only once.");
+        Assert.assertEquals(flight.getLoads(), 1, "Unexpected number of loads.");
+        Assert.assertEquals(flight.getInFlight(), 0, "Nothing should be in flight anymore.");
+        Assert.assertEquals(flight.load("4", () -> "Other"), "Other", "Finished loads should not be kept.");
+        Assert.assertEquals(flight.load("6", () -> null), null, "Unexpected null value.");
+        try {
+            flight.load("8", () -> {
+                throw new IllegalStateException("failed");
+            });
+            Assert.fail("Exception expected.");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(flight.getInFlight(), 0, "Failed loads should not be kept.");
+        } // try/catch
+    } // testCoalescing()
+
+
+    @Test
+    public void testNotShared() throws InterruptedException, ExecutionException {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> flight.load("4", () -> {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } // try/catch
+                return null;
+            }, () -> false));
+            while (flight.getInFlight()==0) {
+                Thread.sleep(5);
+            } // while
+            Future<String> follower = executor.submit(() -> flight.load("4", () -> {
+                calls.incrementAndGet();
+                return "Home";
+            }));
+            while (flight.getCoalesced()==0) {
+                Thread.sleep(5);
+            } // while
+            release.countDown();
+            Assert.assertNull(leader.get(), "Leader should get its own result.");
+            Assert.assertEquals(follower.get(), "Home", "Follower should have loaded on its own.");
+        } finally {
+            executor.shutdownNow();
+        } // try/finally
+        Assert.assertEquals(calls.get(), 2, "Loader should have been called again for the follower.");
+        Assert.assertEquals(flight.getInFlight(), 0, "Nothing should be in flight anymore.");
+    } // testNotShared()
+
+} // SingleFlightTest
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2016 Martin Goellnitz
+ * Copyright 2016-2026 Martin Goellnitz
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU Lesser General Public License as published by
@@ -42,5 +42,7 @@ appenders.add('CONSOLE')
 //}
 //appenders.add('FILE')
 
-root DEBUG, appenders
-logger "coconat", DEBUG, appenders, false
+// level can be raised for measurements - e.g. by the load test
+def level = Level.toLevel(System.getProperty('coconat.test.loglevel'), DEBUG)
+root level, appenders
+logger "coconat", level, appenders, false